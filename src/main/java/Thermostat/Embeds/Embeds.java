@@ -7,6 +7,7 @@ import thermostat.util.Constants;
 import thermostat.util.entities.CommandData;
 import thermostat.util.entities.SettingsData;
 import thermostat.util.enumeration.EmbedType;
+import thermostat.util.synapse.BucketEstimator;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -71,6 +72,9 @@ public final class Embeds {
                 case HELP_PREFIX ->             helpPrefix(embed, data.prefix);
                 case HELP_FILTER ->             helpFilter(embed, data.prefix);
                 case HELP_SETCACHE ->           helpCaching(embed, data.prefix);
+                case HELP_CONTROLLER ->         helpController(embed, data.prefix);
+                case HELP_ESTIMATOR ->          helpEstimator(embed, data.prefix);
+                case HELP_FORECAST ->           helpForecast(embed, data.prefix);
                 case SELECTION ->               getInfoSelection(embed);
                 default ->                      throw new IllegalArgumentException("Invalid embed type.");
             };
@@ -82,7 +86,7 @@ public final class Embeds {
                 case CHART_HOLDER ->            chartHolder(embed, (String) options);
                 case NEW_PREFIX ->              setPrefix(embed, (String) options);
                 case CHANNEL_SETTINGS ->        channelSettings(embed, (SettingsData) options);
-                case SET_CACHE ->               setCache(embed, (int) options);
+                case SET_CACHE ->               setCache(embed, (String) options);
                 case ERR_PERMISSION ->          errPermission(embed, (List<Set<Permission>>) options);
                 case ERR_PERMISSION_THERMO ->   errPermission(embed, (Set<Permission>) options);
                 case ERR_INPUT ->               inputError(embed, (String) options);
@@ -139,7 +143,13 @@ public final class Embeds {
         embed.addField(":regional_indicator_m: Monitored:", (data.monitor) ? "Yes" : "No", true);
         embed.addField(":regional_indicator_f: Filtered:", (data.filter) ? "Yes" : "No", true);
         embed.addField(":regional_indicator_s: Sensitivity:", String.format("%.5f", data.sensitivity), true);
-        embed.addField(":regional_indicator_c: Caching Size:", String.valueOf(data.cachingSize), true);
+        embed.addField(":regional_indicator_c: Caching Size:", data.cachingSize, true);
+        embed.addField("🎛 Controller:", data.controller, true);
+        embed.addField("📈 Estimator:", data.estimator, true);
+        embed.addField("🔮 Forecast:", (data.forecast) ? "Yes" : "No", true);
+        if (data.recentMessages >= 0) {
+            embed.addField("💬 Messages (last " + BucketEstimator.SPAN + "s):", String.valueOf(data.recentMessages), true);
+        }
         return embed;
     }
 
@@ -173,7 +183,7 @@ public final class Embeds {
         return embed;
     }
 
-    private static ThermoEmbed setCache(final ThermoEmbed embed, final int newCachingSize) {
+    private static ThermoEmbed setCache(final ThermoEmbed embed, final String newCachingSize) {
         embed.setTitle("The *Caching Size* for your server has been updated to **"
                 + newCachingSize + "**");
         return embed;
@@ -242,17 +252,17 @@ public final class Embeds {
 
     private static ThermoEmbed helpCaching(final ThermoEmbed embed, final String prefix) {
         embed.setTitle(prefix + "setcaching");
-        embed.setDescription("Sets the global caching size for your server");
+        embed.setDescription("Sets the caching size bounds for your server. Thermostat fits the caching size " +
+                "of every monitored channel to its message rate, within these bounds. Give a single size to fix it.");
         embed.addField("Aliases",
                 "**setcaching, sc**",
                 false
         );
         embed.addField("Switches",
-                "• `-s <size>` | The caching size to change to" +
-                "• `-c <channels/categories>` | Provide specific channels to be used in the chart",
+                "• `-s <min> <max>` | The caching size bounds to change to, between 5 and 100",
                 false
         );
-        embed.addField("Example", "`" + prefix + "setcaching -s 20`", false);
+        embed.addField("Example", "`" + prefix + "setcaching -s 10 50`", false);
         return embed;
     }
 
@@ -297,6 +307,7 @@ public final class Embeds {
                         • `--on` | Monitor channels
                         • `--off` | Unmonitor channels
                         • `-c <channels/categories>` | Select the channel to perform action for
+                        • `--category` | Monitor categories as a whole, including channels created in them later
                         • `--all` | Perform this action for all the channels in your server
                         """,
                 false
@@ -324,6 +335,68 @@ public final class Embeds {
         return embed;
     }
 
+    private static ThermoEmbed helpController(final ThermoEmbed embed, final String prefix) {
+        embed.setTitle(prefix + "controller");
+        embed.setDescription("Sets the strategy Thermostat uses to pick the slowmode of the channel. " +
+                "`ladder` steps the slowmode by fixed amounts, `pid` steers the channel towards a steady rate, " +
+                "`hysteresis` only changes the slowmode once the rate clearly leaves its target, " +
+                "and `adaptive` works like `ladder` relative to the usual pace the channel has learned.");
+        embed.addField("Aliases",
+                "**controller, cl**",
+                false
+        );
+        embed.addField("Switches",
+                """
+                        • `-t <ladder/pid/hysteresis/adaptive>` | Controller to use
+                        • `-c <channels/categories>` | Select the channel to perform action for
+                        """,
+                false
+        );
+        embed.addField("Example", "`" + prefix + "controller -t pid`", false);
+        return embed;
+    }
+
+    private static ThermoEmbed helpEstimator(final ThermoEmbed embed, final String prefix) {
+        embed.setTitle(prefix + "estimator");
+        embed.setDescription("Sets how Thermostat measures the message rate of your server's channels. " +
+                "`window` averages every batch of messages (as large as the caching size), " +
+                "`ewma` keeps a running average and reacts as soon as the rate changes, " +
+                "`buckets` counts the messages of the last 30 seconds.");
+        embed.addField("Aliases",
+                "**estimator, es**",
+                false
+        );
+        embed.addField("Switches",
+                """
+                        • `-t <window/ewma/buckets>` | Estimator to use
+                        """,
+                false
+        );
+        embed.addField("Example", "`" + prefix + "estimator -t ewma`", false);
+        return embed;
+    }
+
+    private static ThermoEmbed helpForecast(final ThermoEmbed embed, final String prefix) {
+        embed.setTitle(prefix + "forecast");
+        embed.setDescription("Enables/Disables forecasting for a channel. Thermostat learns the channel's daily and weekly " +
+                "activity pattern, and raises the slowmode a few minutes before a usual peak, lowering it again afterwards. " +
+                "Forecasts need a week of activity before they are used.");
+        embed.addField("Aliases",
+                "**forecast, fc**",
+                false
+        );
+        embed.addField("Switches",
+                """
+                        • `--on` | Enable forecasting
+                        • `--off` | Disable forecasting
+                        • `-c <channels/categories>` | Select the channel to perform action for
+                        """,
+                false
+        );
+        embed.addField("Example", "`" + prefix + "forecast --on`", false);
+        return embed;
+    }
+
     private static ThermoEmbed helpSetBounds(final ThermoEmbed embed, final String prefix) {
         embed.setTitle(prefix + "setbounds");
         embed.setDescription("Sets the upper and lower bounds for the slowmode of the channel. " +
@@ -391,6 +464,9 @@ public final class Embeds {
         embed.addField("setbounds", "`" + prefix + "setbounds --m [value] --M [value] -c [channels/categories]`", false);
         embed.addField("settings", "`" + prefix + "settings -c [channel]`", false);
         embed.addField("sensitivity", "`" + prefix + "sensitivity -s [value] -c [channels]`", false);
+        embed.addField("controller", "`" + prefix + "controller -t [type] -c [channels]`", false);
+        embed.addField("estimator", "`" + prefix + "estimator -t [type]`", false);
+        embed.addField("forecast", "`" + prefix + "forecast --on/--off -c [channels]`", false);
         embed.setFooter("─────────────────────────────\n🔼 to go back, ❌ to exit");
         return embed;
     }
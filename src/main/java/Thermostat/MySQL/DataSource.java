@@ -2,14 +2,10 @@ package thermostat.mySQL;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
-import net.dv8tion.jda.api.entities.Guild;
 
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.util.HashSet;
 import java.util.Objects;
-import java.util.Set;
 
 /**
  * A single Hikari data source for Thermostat.
@@ -33,24 +29,6 @@ public abstract class DataSource {
         }
     }
 
-    /**
-     * Creates database entries for guilds/channels if they do not exist.
-     * @param conn Connection to perform this operation on.
-     * @param guild Guild to check.
-     */
-    public static void syncDatabase(final Connection conn, final Guild guild) throws SQLException {
-        PreparedStatement statement = conn.prepareStatement("SELECT * FROM GUILDS WHERE GUILD_ID = ?");
-        statement.setString(1, guild.getId());
-        if (!statement.executeQuery().next()) {
-            PreparedActions.createGuild(conn, guild.getId());
-        }
-
-        Set<String> channelIds = new HashSet<>();
-        guild.getChannels().forEach(e -> channelIds.add(e.getId()));
-
-        PreparedActions.createChannels(conn, guild.getId(), channelIds, 0);
-    }
-
     /**
      * Used to wrap database actions that return a value.
      * @param <X> Type of result to expect from Database.
@@ -0,0 +1,205 @@
+package thermostat.mySQL;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.GuildChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import thermostat.Thermostat;
+
+import javax.annotation.Nonnull;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind registry of every Guild and Channel that Thermostat
+ * has seen. New entries are recorded in memory and flushed to the
+ * database in batches, so that the message path does not need a
+ * database round trip for Guilds and Channels that are already known.
+ */
+public final class GuildRegistry {
+    /**
+     * Logger for this class.
+     */
+    private static final Logger lgr = LoggerFactory.getLogger(GuildRegistry.class);
+
+    /**
+     * Period between two flushes of the pending entries, in seconds.
+     */
+    private static final long FLUSH_PERIOD = 5;
+
+    /**
+     * IDs of Guilds that are (or are about to be) on the database.
+     */
+    private static final Set<String> knownGuilds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * IDs of Channels that are (or are about to be) on the database.
+     */
+    private static final Set<String> knownChannels = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Entries waiting to be written to the database.
+     * K: Guild ID -> V: Channel ID
+     */
+    private static final Queue<Map.Entry<String, String>> pending = new ConcurrentLinkedQueue<>();
+
+    static {
+        Thermostat.SCHEDULED_EXECUTOR.scheduleWithFixedDelay(GuildRegistry::flush,
+                FLUSH_PERIOD, FLUSH_PERIOD, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Records a Guild and a Channel of it as known. If either of them is
+     * new, it gets queued for insertion on the next flush.
+     * @param guild Guild that the channel belongs to.
+     * @param guildId ID of the Guild.
+     * @param channelId ID of the Channel.
+     */
+    public static void register(@Nonnull final Guild guild, @Nonnull final String guildId, @Nonnull final String channelId) {
+        if (knownGuilds.contains(guildId) && knownChannels.contains(channelId)) {
+            return; // Nothing new, nothing to do.
+        }
+
+        // First sighting of this Guild: queue every channel it has.
+        if (knownGuilds.add(guildId)) {
+            for (final GuildChannel channel : guild.getChannels()) {
+                knownChannels.add(channel.getId());
+                pending.add(Map.entry(guildId, channel.getId()));
+            }
+        }
+
+        if (knownChannels.add(channelId)) {
+            pending.add(Map.entry(guildId, channelId));
+        }
+    }
+
+    /**
+     * Forgets a Guild, so that it gets written to the database again
+     * the next time it is seen. Its pending entries are dropped, so that
+     * a later flush does not write back a Guild that was just deleted.
+     * Synchronized with the flushes, so an entry already taken by one
+     * is written before the caller goes on to delete the Guild.
+     * @param guildId ID of Guild.
+     */
+    public static synchronized void forgetGuild(@Nonnull final String guildId) {
+        knownGuilds.remove(guildId);
+        pending.removeIf(entry -> entry.getKey().equals(guildId));
+    }
+
+    /**
+     * Forgets a Channel, so that it gets written to the database again
+     * the next time it is seen. Its pending entry is dropped, like
+     * in {@link #forgetGuild(String)}.
+     * @param channelId ID of Channel.
+     */
+    public static synchronized void forgetChannel(@Nonnull final String channelId) {
+        knownChannels.remove(channelId);
+        pending.removeIf(entry -> entry.getValue().equals(channelId));
+    }
+
+    /**
+     * Gives back the known Guilds and Channels that are not waiting to be written.
+     * @param guilds Collects the IDs of the Guilds.
+     * @param channels Collects the IDs of the Channels.
+     */
+    public static void getWritten(@Nonnull final Set<String> guilds, @Nonnull final Set<String> channels) {
+        guilds.addAll(knownGuilds);
+        channels.addAll(knownChannels);
+        for (final Map.Entry<String, String> entry : pending) {
+            guilds.remove(entry.getKey());
+            channels.remove(entry.getValue());
+        }
+    }
+
+    /**
+     * Records Guilds and Channels that were on the database before a restart as known,
+     * so they are not written again.
+     * @param guilds IDs of the Guilds.
+     * @param channels IDs of the Channels.
+     */
+    public static void restore(@Nonnull final Collection<String> guilds, @Nonnull final Collection<String> channels) {
+        knownGuilds.addAll(guilds);
+        knownChannels.addAll(channels);
+    }
+
+    /**
+     * Writes every pending Guild and Channel to the database in one batch.
+     * Entries that fail to be written are forgotten, so that they get
+     * queued again the next time they are seen.
+     */
+    public static synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        // Group the pending channels by their Guild.
+        final Map<String, Set<String>> batch = new HashMap<>();
+        Map.Entry<String, String> entry;
+        while ((entry = pending.poll()) != null) {
+            batch.computeIfAbsent(entry.getKey(), k -> new HashSet<>()).add(entry.getValue());
+        }
+
+        write(batch);
+    }
+
+    /**
+     * Writes the pending entries of one Guild right away. Must be called
+     * before writing a Guild's settings, as those rows need the Guild
+     * and Channel rows to be on the database already.
+     * @param guildId ID of Guild.
+     */
+    public static synchronized void flush(@Nonnull final String guildId) {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        final Set<String> channels = new HashSet<>();
+        final Iterator<Map.Entry<String, String>> entries = pending.iterator();
+        while (entries.hasNext()) {
+            final Map.Entry<String, String> entry = entries.next();
+            if (entry.getKey().equals(guildId)) {
+                channels.add(entry.getValue());
+                entries.remove();
+            }
+        }
+
+        if (!channels.isEmpty()) {
+            write(Map.of(guildId, channels));
+        }
+    }
+
+    /**
+     * Writes a batch of Guilds and Channels to the database.
+     * Entries that fail to be written are forgotten, so that they get
+     * queued again the next time they are seen.
+     * @param batch K: Guild ID -> V: IDs of the Guild's Channels
+     */
+    private static void write(@Nonnull final Map<String, Set<String>> batch) {
+        try {
+            DataSource.demand(conn -> {
+                PreparedActions.createGuilds(conn, new HashSet<>(batch.keySet()));
+                for (Map.Entry<String, Set<String>> guild : batch.entrySet()) {
+                    PreparedActions.createChannels(conn, guild.getKey(), new HashSet<>(guild.getValue()), 0);
+                }
+                return null;
+            });
+            lgr.debug("Flushed " + batch.size() + " Guild(s) to the database.");
+        } catch (SQLException | RuntimeException ex) {
+            // Never let the exception escape, it would cancel the scheduled flush.
+            batch.forEach((guildId, channels) -> {
+                knownGuilds.remove(guildId);
+                knownChannels.removeAll(channels);
+            });
+            lgr.warn("Database synchronization failed:", ex);
+        }
+    }
+}
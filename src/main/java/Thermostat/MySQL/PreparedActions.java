@@ -1,14 +1,14 @@
 package thermostat.mySQL;
 
 import net.dv8tion.jda.api.entities.ISnowflake;
-import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
 import net.dv8tion.jda.api.events.message.guild.react.GuildMessageReactionAddEvent;
 import okhttp3.internal.annotations.EverythingIsNonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import thermostat.commands.internal.WordFilter;
 import thermostat.util.GuildCache;
 import thermostat.util.MiscellaneousFunctions;
+import thermostat.util.entities.ChannelSettings;
+import thermostat.util.enumeration.ControllerType;
 import thermostat.util.enumeration.DBActionType;
 
 import javax.annotation.CheckReturnValue;
@@ -17,9 +17,12 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -44,6 +47,33 @@ public final class PreparedActions {
         statement.executeUpdate();
     }
 
+    /**
+     * Creates new entries for the given Guilds that
+     * do NOT already have an entry in the database.
+     * @param guilds The Guilds to be added to the DB.
+     */
+    @EverythingIsNonNull
+    public static void createGuilds(final Connection conn, final Set<String> guilds) throws SQLException {
+        if (guilds.isEmpty()) {
+            return;
+        }
+
+        PreparedStatement statement = conn.prepareStatement("SELECT GUILD_ID FROM GUILDS WHERE GUILD_ID IN (@);"
+                .replaceFirst("@", MiscellaneousFunctions.toQueryString(guilds)));
+        ResultSet rs = statement.executeQuery();
+        while (rs.next()) {
+            guilds.remove(rs.getString(1));
+        }
+
+        if (guilds.isEmpty()) {
+            return;
+        }
+
+        statement = conn.prepareStatement("INSERT INTO GUILDS (GUILD_ID) VALUES @;"
+                .replaceFirst("@", guilds.stream().map(id -> "('" + id + "')").collect(Collectors.joining(", "))));
+        statement.executeUpdate();
+    }
+
     /**
      * Initializes new entries for channel with matching
      * guilds that do NOT already have an entry.
@@ -54,6 +84,10 @@ public final class PreparedActions {
      */
     @EverythingIsNonNull
     public static void createChannels(final Connection conn, final String guildId, final Set<String> channels, final int monitor) throws SQLException {
+        if (channels.isEmpty()) {
+            return;
+        }
+
         Set<String> databaseChannels = new HashSet<>();
 
         PreparedStatement statement = conn.prepareStatement("SELECT CHANNEL_ID FROM CHANNELS WHERE CHANNEL_ID IN (@);"
@@ -108,13 +142,24 @@ public final class PreparedActions {
         for (String channel : channels) {
             builder.append("<#").append(channel).append("> ");
 
-            if (action.equals(DBActionType.MONITOR) && value == 1) {
-                GuildCache.getSynapse(guildId).addChannel(channel); // Add channel to synapse cache.
-            } else {
-                GuildCache.getSynapse(guildId).removeChannel(channel); // Remove from synapse cache.
+            if (action.equals(DBActionType.MONITOR)) {
+                if (value == 1) {
+                    GuildCache.getSynapse(guildId).addChannel(channel); // Add channel to synapse cache.
+                } else {
+                    GuildCache.getSynapse(guildId).removeChannel(channel); // Remove from synapse cache.
+                }
             }
         }
 
+        // Publish the new values to the settings cache.
+        if (action.equals(DBActionType.MONITOR)) {
+            GuildCache.updateChannelSettings(guildId, channels, settings -> settings.withMonitored(value == 1));
+        } else if (action.equals(DBActionType.FORECAST)) {
+            GuildCache.updateChannelSettings(guildId, channels, settings -> settings.withForecast(value == 1));
+        } else {
+            GuildCache.updateChannelSettings(guildId, channels, settings -> settings.withFiltered(value == 1));
+        }
+
         return builder;
     }
 
@@ -176,6 +221,9 @@ public final class PreparedActions {
             statement.setString(4, guildId);
             statement.executeUpdate();
 
+            final int min = minimumNew, max = maximumNew;
+            GuildCache.updateChannelSettings(guildId, channelId, settings -> settings.withBounds(min, max));
+
             builder.append("<#").append(channelId).append("> ");
         }
 
@@ -183,26 +231,27 @@ public final class PreparedActions {
     }
 
     /**
-     * Retrieve whether a channel is filtered or not from the database.
+     * Retrieve the settings of every channel of a Guild from the database.
      * @param conn Connection to apply this action to.
-     * @param guildId ID of guild where the channel is in.
-     * @param channelId ID of channel to check.
-     * @return A boolean that shows whether the channel is filtered.
+     * @param guildId ID of guild to retrieve the settings for.
+     * @return A Map of channel IDs to their settings.
      * @throws SQLException Something went wrong while communicating with the database.
      */
     @EverythingIsNonNull
     @CheckReturnValue
-    public static boolean isFiltered(final Connection conn, final String guildId, final String channelId) throws SQLException {
-        PreparedStatement statement = conn.prepareStatement("SELECT FILTERED FROM CHANNEL_SETTINGS JOIN CHANNELS ON " +
-                "(CHANNELS.CHANNEL_ID = CHANNEL_SETTINGS.CHANNEL_ID) WHERE CHANNELS.GUILD_ID = ? " +
-                "AND CHANNELS.CHANNEL_ID = ?");
+    public static Map<String, ChannelSettings> getChannelSettings(final Connection conn, final String guildId) throws SQLException {
+        Map<String, ChannelSettings> settings = new HashMap<>();
+        PreparedStatement statement = conn.prepareStatement("SELECT CHANNEL_SETTINGS.CHANNEL_ID, MIN_SLOW, MAX_SLOW, " +
+                "SENSOFFSET, MONITORED, FILTERED, CONTROLLER, FORECAST FROM CHANNEL_SETTINGS JOIN CHANNELS ON " +
+                "(CHANNELS.CHANNEL_ID = CHANNEL_SETTINGS.CHANNEL_ID) WHERE CHANNELS.GUILD_ID = ?");
         statement.setString(1, guildId);
-        statement.setString(2, channelId);
         ResultSet rs = statement.executeQuery();
-        if (rs.next()) {
-            return rs.getBoolean(1);
+        while (rs.next()) {
+            settings.put(rs.getString(1), new ChannelSettings(rs.getInt(2), rs.getInt(3),
+                    rs.getFloat(4), rs.getBoolean(5), rs.getBoolean(6), ControllerType.of(rs.getString(7)),
+                    rs.getBoolean(8)));
         }
-        return false;
+        return settings;
     }
 
     /**
@@ -324,26 +373,6 @@ public final class PreparedActions {
         }
     }
 
-    /**
-     * Perform grouped up actions necessary every time a GuildMessageReceivedEvent is triggered.
-     * @param event Event that triggered this set of actions.
-     */
-    public static void performGMREActions(final GuildMessageReceivedEvent event) {
-        try {
-            DataSource.demand(conn -> {
-                DataSource.syncDatabase(conn, event.getGuild());
-                // Make sure to implement cache checks before communicating with the database.
-                // TBD - Bookmark
-                if (PreparedActions.isFiltered(conn, event.getGuild().getId(), event.getChannel().getId())) {
-                    new WordFilter(event); // If channel is filtered, send a WordFilter Command.
-                }
-                return null;
-            });
-        } catch (SQLException ex) {
-            lgr.warn("Database synchronization failed:", ex);
-        }
-    }
-
     /**
      * Increment the "Monitored" value of a channel.
      * @param guildId Guild's Discord ID.
@@ -356,6 +385,38 @@ public final class PreparedActions {
         statement.executeUpdate();
     }
 
+    /**
+     * Saves the learned baselines of channels.
+     * @param baselines K: Channel ID -> V: Serialized baseline
+     */
+    public static void saveBaselines(final Connection conn, final Map<String, byte[]> baselines) throws SQLException {
+        PreparedStatement statement = conn.prepareStatement("UPDATE CHANNEL_SETTINGS SET BASELINE = ? WHERE CHANNEL_ID = ?");
+        for (Map.Entry<String, byte[]> baseline : baselines.entrySet()) {
+            statement.setBytes(1, baseline.getValue());
+            statement.setString(2, baseline.getKey());
+            statement.addBatch();
+        }
+        statement.executeBatch();
+    }
+
+    /**
+     * Records the start or the end of a raid on a Guild.
+     * @param guildId Guild's Discord ID.
+     * @param started True for the start of a raid, false for its end.
+     * @param time Time of the transition, in epoch millis.
+     * @param messages Messages in the raid detector's span at the transition.
+     */
+    public static void recordRaid(final Connection conn, final String guildId, final boolean started,
+                                  final long time, final int messages) throws SQLException {
+        PreparedStatement statement = conn.prepareStatement("INSERT INTO RAIDS (GUILD_ID, EVENT, EVENT_TIME, MESSAGES) " +
+                "VALUES (?, ?, ?, ?)");
+        statement.setString(1, guildId);
+        statement.setString(2, started ? "START" : "END");
+        statement.setTimestamp(3, new Timestamp(time));
+        statement.setInt(4, messages);
+        statement.executeUpdate();
+    }
+
     /**
      * Creates a database entry for a Webhook with the given parameters.
      * @param webId ID of Webhook.
@@ -11,8 +11,12 @@ import net.dv8tion.jda.api.utils.MemberCachePolicy;
 import net.dv8tion.jda.api.utils.cache.CacheFlag;
 import net.dv8tion.jda.api.utils.data.DataObject;
 import thermostat.dispatchers.MiscellaneousDispatcher;
+import thermostat.dispatchers.SynapseDispatcher;
+import thermostat.events.EventRouter;
 import thermostat.events.Ready;
 import thermostat.mySQL.DataSource;
+import thermostat.mySQL.GuildRegistry;
+import thermostat.util.CacheSnapshot;
 import thermostat.util.Constants;
 
 import javax.annotation.Nonnull;
@@ -77,6 +81,11 @@ public abstract class Thermostat {
      */
     protected static void initializeThermostat() throws Exception, Error {
         String[] config = initializeTokens();
+        CacheSnapshot.restore(); // Before the gateway connects, so the first events hit a warm cache
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            SynapseDispatcher.shutdown();
+            CacheSnapshot.write(); // Once the Synapse workers are stopped
+        }, "Snapshot"));
 
         thermo = JDABuilder
                 .create(
@@ -96,6 +105,7 @@ public abstract class Thermostat {
                 .setMemberCachePolicy(MemberCachePolicy.NONE)
                 .setChunkingFilter(ChunkingFilter.NONE)
                 .setEnableShutdownHook(true)
+                .setEventManager(new EventRouter())
                 .addEventListeners(new Ready())
                 .build();
 
@@ -135,8 +145,11 @@ public abstract class Thermostat {
      * or failure to initialize necessary configuration files.
      */
     public static void shutdownThermostat() {
+        GuildRegistry.flush(); // Write pending Guilds/Channels while the executors are still up
+        SynapseDispatcher.persistBaselines();
         SCHEDULED_EXECUTOR.shutdown();
         NON_SCHEDULED_EXECUTOR.shutdown();
+        // The shutdown hook stops the Synapse workers and writes the cache snapshot.
 
         if (thermo != null) {
             thermo.shutdown();
@@ -1,7 +1,6 @@
 package thermostat.commands;
 
 import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
-import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import thermostat.commands.informational.ChartCommand;
@@ -10,6 +9,9 @@ import thermostat.commands.informational.InfoCommand;
 import thermostat.commands.informational.SettingsCommand;
 import thermostat.commands.internal.SendGuide;
 import thermostat.commands.monitoring.CSizeCommand;
+import thermostat.commands.monitoring.ControllerCommand;
+import thermostat.commands.monitoring.EstimatorCommand;
+import thermostat.commands.monitoring.ForecastCommand;
 import thermostat.commands.monitoring.MonitorCommand;
 import thermostat.commands.monitoring.SensitivityCommand;
 import thermostat.commands.monitoring.SetBoundsCommand;
@@ -17,49 +19,21 @@ import thermostat.commands.other.InviteCommand;
 import thermostat.commands.other.PrefixCommand;
 import thermostat.commands.other.VoteCommand;
 import thermostat.commands.utility.FilterCommand;
-import thermostat.mySQL.PreparedActions;
-import thermostat.util.ArgumentParser;
-import thermostat.util.GuildCache;
 import thermostat.util.enumeration.CommandType;
 
-import javax.annotation.Nonnull;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 /**
- * Adapter for any sort of action based on the
- * GuildMessageReactionEvent event class.
+ * Creates the Command that matches a CommandType
+ * found in a received message.
+ * @see thermostat.events.MessagePipeline
  */
-public final class CommandTrigger extends ListenerAdapter {
+public final class CommandTrigger {
     /**
      * Logger for this class.
      */
     private static final Logger lgr = LoggerFactory.getLogger(CommandTrigger.class);
 
-    /**
-     * Trigger a new command when a message calling thermostat gets sent.
-     * @param event Event that contains sent message.
-     */
-    @Override
-    public void onGuildMessageReceived(@Nonnull final GuildMessageReceivedEvent event) {
-        if (!ArgumentParser.validateEvent(event)) { // If the event is invalid or the member is a bot, don't reply
-            return;
-        }
-
-        // Get the arguments from the event and split them appropriately.
-        ArrayList<String> arguments = new ArrayList<>(Arrays.asList(event.getMessage().getContentRaw().split("\\s+")));
-        String prefix = GuildCache.getPrefix(event.getGuild().getId()); // Retrieves the prefix for this Guild
-        CommandType type = ArgumentParser.getCommandByInit(arguments, prefix); // Get the type of the Command & prep arguments.
-        PreparedActions.performGMREActions(event); // Run Database sync & Word Filter
-
-        if (type == null) {
-            return;
-        }
-
-        forwardCommand(type, event, arguments, prefix); // Create the command and queue it
-    }
-
     /**
      * Matches a given CommandType with a Command and creates one.
      * @param type Type of Command.
@@ -67,7 +41,7 @@ public final class CommandTrigger extends ListenerAdapter {
      * @param arguments Arguments to use in the Command.
      * @param prefix Prefix of the Guild that called this command.
      */
-    private static void forwardCommand(final CommandType type, final GuildMessageReceivedEvent event,
+    public static void forwardCommand(final CommandType type, final GuildMessageReceivedEvent event,
                                        final List<String> arguments, final String prefix) {
         switch (type) {
             // Informational
@@ -85,6 +59,9 @@ public final class CommandTrigger extends ListenerAdapter {
             case SENSITIVITY -> new SensitivityCommand(event, arguments, prefix);
             case SETBOUNDS -> new SetBoundsCommand(event, arguments, prefix);
             case SETCACHING -> new CSizeCommand(event, arguments, prefix);
+            case CONTROLLER -> new ControllerCommand(event, arguments, prefix);
+            case ESTIMATOR -> new EstimatorCommand(event, arguments, prefix);
+            case FORECAST -> new ForecastCommand(event, arguments, prefix);
             // Other
             case GUIDE -> new SendGuide(event, prefix);
             case INVITE -> new InviteCommand(event, prefix);
@@ -1,5 +1,6 @@
 package thermostat.commands.informational;
 
+import net.dv8tion.jda.api.entities.Category;
 import net.dv8tion.jda.api.entities.TextChannel;
 import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
 import org.knowm.xchart.BitmapEncoder;
@@ -118,9 +119,12 @@ public class ChartCommand implements Command {
         for (Map.Entry<String, Integer> entry : top5slowmode.entrySet()) {
             String channelName = entry.getKey();
             TextChannel channel = data.event.getGuild().getTextChannelById(entry.getKey());
+            Category category = data.event.getGuild().getCategoryById(entry.getKey());
 
             if (channel != null) {
                 channelName = channel.getName();
+            } else if (category != null) {
+                channelName = category.getName(); // Monitored as a whole
             }
 
             chart.addSeries(
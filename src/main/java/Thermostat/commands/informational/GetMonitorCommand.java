@@ -1,5 +1,6 @@
 package thermostat.commands.informational;
 
+import net.dv8tion.jda.api.entities.Category;
 import net.dv8tion.jda.api.entities.TextChannel;
 import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
 import org.slf4j.Logger;
@@ -113,9 +114,12 @@ public class GetMonitorCommand implements Command {
         // every monitored/filtered guild to the ending embed
         for (final String it : list) {
             TextChannel filteredChannel = data.event.getGuild().getTextChannelById(it);
+            Category category = data.event.getGuild().getCategoryById(it);
 
             if (filteredChannel != null)
                 string.append("<#").append(filteredChannel.getId()).append("> ");
+            else if (category != null)
+                string.append("📁 ").append(category.getName()).append(" ");
             else
                 string.append(it).append(" ");
         }
@@ -10,10 +10,15 @@ import thermostat.dispatchers.ResponseDispatcher;
 import thermostat.embeds.Embeds;
 import thermostat.mySQL.DataSource;
 import thermostat.util.Constants;
+import thermostat.util.GuildCache;
 import thermostat.util.entities.CommandData;
+import thermostat.util.entities.MonitoredChannel;
 import thermostat.util.entities.SettingsData;
 import thermostat.util.enumeration.CommandType;
+import thermostat.util.enumeration.ControllerType;
 import thermostat.util.enumeration.EmbedType;
+import thermostat.util.enumeration.EstimatorType;
+import thermostat.util.synapse.BucketEstimator;
 
 import javax.annotation.Nonnull;
 import java.sql.PreparedStatement;
@@ -77,17 +82,48 @@ public class SettingsCommand implements Command {
         settingsAction(channel);
     }
 
+    /**
+     * @param channel Channel to look up.
+     * @return Messages counted in the channel's latest seconds, as of its latest message.
+     * -1 if the channel's messages are not counted.
+     */
+    private static int getRecentMessages(final @Nonnull TextChannel channel) {
+        MonitoredChannel monitoredChannel = GuildCache.getSynapse(channel.getGuild().getId()).getUnit(channel.getId());
+        if (monitoredChannel == null || !(monitoredChannel.getEstimator() instanceof BucketEstimator)) {
+            return -1;
+        }
+        return ((BucketEstimator) monitoredChannel.getEstimator()).getCount() * monitoredChannel.getSamplingFactor();
+    }
+
+    /**
+     * @param channel Channel to look up.
+     * @param minCachingSize Minimum caching size of the channel's Guild.
+     * @param maxCachingSize Maximum caching size of the channel's Guild.
+     * @return The caching size bounds, and the size the channel's window has been fitted to if it is monitored.
+     */
+    private static String getCachingSize(final @Nonnull TextChannel channel, final int minCachingSize, final int maxCachingSize) {
+        String bounds = (minCachingSize == maxCachingSize) ? String.valueOf(maxCachingSize) : minCachingSize + "-" + maxCachingSize;
+        MonitoredChannel monitoredChannel = GuildCache.getSynapse(channel.getGuild().getId()).getUnit(channel.getId());
+        if (monitoredChannel == null || minCachingSize == maxCachingSize) {
+            return bounds;
+        }
+        return bounds + " (now " + monitoredChannel.getCapacity() + ")";
+    }
+
     private void settingsAction(final @Nonnull TextChannel channel) {
         // Retrieve the settings values from the database and send a response.
         try {
             DataSource.demand(conn -> {
-                int min = 0, max = 0, cachingSize = Constants.DEFAULT_CACHING_SIZE;
+                int min = 0, max = 0, minCachingSize = Constants.MIN_CACHING_SIZE, maxCachingSize = Constants.MAX_CACHING_SIZE;
                 float sens = 0;
-                boolean monitored = false, filtered = false;
+                boolean monitored = false, filtered = false, forecast = false;
+                ControllerType controller = ControllerType.LADDER;
+                EstimatorType estimator = EstimatorType.WINDOW;
 
-                PreparedStatement statement = conn.prepareStatement("SELECT MIN_SLOW, MAX_SLOW, SENSOFFSET, MONITORED, FILTERED " +
+                PreparedStatement statement = conn.prepareStatement("SELECT MIN_SLOW, MAX_SLOW, SENSOFFSET, MONITORED, FILTERED, CONTROLLER, FORECAST " +
                         "FROM CHANNEL_SETTINGS WHERE CHANNEL_ID = ?");
-                statement.setString(1, channel.getId());
+                // Channels covered by a monitored category show the category's settings
+                statement.setString(1, GuildCache.getSynapse(channel.getGuild().getId()).getSettingsId(channel.getId()));
                 ResultSet rs = statement.executeQuery();
 
                 if (rs.next()) {
@@ -100,17 +136,25 @@ public class SettingsCommand implements Command {
                     monitored = rs.getBoolean(4);
                     // Filtered
                     filtered = rs.getBoolean(5);
+                    // Controller
+                    controller = ControllerType.of(rs.getString(6));
+                    // Forecast
+                    forecast = rs.getBoolean(7);
                 }
 
-                statement = conn.prepareStatement("SELECT CACHING_SIZE FROM GUILDS WHERE GUILD_ID = ?");
+                statement = conn.prepareStatement("SELECT MIN_CACHING_SIZE, CACHING_SIZE, ESTIMATOR FROM GUILDS WHERE GUILD_ID = ?");
                 statement.setString(1, channel.getGuild().getId());
                 rs = statement.executeQuery();
 
                 if (rs.next()) {
-                    cachingSize = rs.getInt(1);
+                    maxCachingSize = rs.getInt(2);
+                    minCachingSize = Math.min(rs.getInt(1), maxCachingSize);
+                    estimator = EstimatorType.of(rs.getString(3));
                 }
 
-                SettingsData settingsData = new SettingsData(channel.getName(), min, max, cachingSize, sens, monitored, filtered);
+                SettingsData settingsData = new SettingsData(channel.getName(), min, max,
+                        getCachingSize(channel, minCachingSize, maxCachingSize), sens, monitored, filtered,
+                        controller.name().toLowerCase(), estimator.name().toLowerCase(), getRecentMessages(channel), forecast);
                 ResponseDispatcher.commandSucceeded(this,
                         Embeds.getEmbed(EmbedType.CHANNEL_SETTINGS, data, settingsData)
                 );
@@ -0,0 +1,87 @@
+package thermostat.commands.internal;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.TextChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import thermostat.Thermostat;
+import thermostat.commands.Command;
+import thermostat.dispatchers.CommandDispatcher;
+import thermostat.dispatchers.SlowmodeDispatcher;
+import thermostat.util.GuildCache;
+import thermostat.util.entities.ChannelSettings;
+import thermostat.util.entities.CommandData;
+import thermostat.util.entities.Synapse;
+import thermostat.util.enumeration.CommandType;
+import thermostat.util.synapse.RaidDetector;
+
+/**
+ * Raises a single channel straight to the raid slowmode, without waiting
+ * for its rate to be evaluated. Used when the same message is being
+ * pasted over and over in a Guild.
+ * @see thermostat.util.synapse.DuplicateDetector
+ */
+public class EscalateChannel implements Command {
+    private static final Logger lgr = LoggerFactory.getLogger(EscalateChannel.class);
+
+    /**
+     * Synapse of the channel's Guild.
+     */
+    private final Synapse synapse;
+
+    /**
+     * Data package for this command.
+     */
+    private final CommandData data;
+
+    /**
+     * ID of channel to escalate.
+     */
+    private final String channelId;
+
+    /**
+     * Create a new escalation of a channel.
+     * @param synapse Synapse of the channel's Guild.
+     * @param channelId ID of channel to escalate.
+     */
+    public EscalateChannel(final Synapse synapse, final String channelId) {
+        this.data = new CommandData(null);
+        this.synapse = synapse;
+        this.channelId = channelId;
+
+        CommandDispatcher.queueCommand(this);
+    }
+
+    @Override
+    public void run() {
+        Guild guild = Thermostat.thermo.getGuildById(synapse.getGuildId());
+        TextChannel channel = (guild == null) ? null : guild.getTextChannelById(channelId);
+        if (channel == null) {
+            return;
+        }
+
+        ChannelSettings settings = GuildCache.getChannelSettings(guild.getId(), synapse.getSettingsId(channelId)); // Inherited from a monitored category
+        int raid = RaidDetector.getRaidSlowmode(settings);
+        if (SlowmodeDispatcher.getSlowmode(channel) >= raid) {
+            return;
+        }
+
+        SlowmodeDispatcher.request(channel, raid);
+        lgr.info("[Copy-Paste Raid - " + guild.getName() + "] - Escalated: [" + channel.getName() + "]");
+    }
+
+    @Override
+    public CommandType getType() {
+        return CommandType.ESCALATE_CHANNEL;
+    }
+
+    @Override
+    public Logger getLogger() {
+        return lgr;
+    }
+
+    @Override
+    public CommandData getData() {
+        return data;
+    }
+}
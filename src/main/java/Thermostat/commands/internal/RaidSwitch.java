@@ -0,0 +1,158 @@
+package thermostat.commands.internal;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.TextChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import thermostat.Thermostat;
+import thermostat.commands.Command;
+import thermostat.dispatchers.CommandDispatcher;
+import thermostat.dispatchers.SlowmodeDispatcher;
+import thermostat.mySQL.DataSource;
+import thermostat.mySQL.PreparedActions;
+import thermostat.util.GuildCache;
+import thermostat.util.entities.ChannelSettings;
+import thermostat.util.entities.CommandData;
+import thermostat.util.entities.MonitoredChannel;
+import thermostat.util.entities.Synapse;
+import thermostat.util.enumeration.CommandType;
+import thermostat.util.synapse.RaidDetector;
+
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Applies or releases the raid slowmode on every monitored
+ * channel of a Guild in one pass, and records the transition.
+ * @see RaidDetector
+ */
+public class RaidSwitch implements Command {
+    private static final Logger lgr = LoggerFactory.getLogger(RaidSwitch.class);
+
+    /**
+     * Synapse of the raided Guild.
+     */
+    private final Synapse synapse;
+
+    /**
+     * Data package for this command.
+     */
+    private final CommandData data;
+
+    /**
+     * True if the raid started, false if it ended.
+     */
+    private final boolean started;
+
+    /**
+     * Time of the transition, in epoch millis.
+     */
+    private final long time = System.currentTimeMillis();
+
+    /**
+     * Create a new raid transition for a Synapse.
+     * @param synapse Synapse whose Guild is raided.
+     * @param started True if the raid started, false if it ended.
+     */
+    public RaidSwitch(final Synapse synapse, final boolean started) {
+        this.data = new CommandData(null);
+        this.synapse = synapse;
+        this.started = started;
+
+        CommandDispatcher.queueCommand(this);
+    }
+
+    @Override
+    public void run() {
+        final RaidDetector detector = synapse.getRaidDetector();
+        final Guild guild = Thermostat.thermo.getGuildById(synapse.getGuildId());
+        if (guild == null) {
+            detector.getPreviousSlowmodes().clear();
+            return;
+        }
+
+        int switched = 0;
+        for (final MonitoredChannel monitoredChannel : synapse.getMonitoredChannels()) {
+            final ChannelSettings settings = GuildCache.getChannelSettings(guild.getId(), monitoredChannel.getChannelId());
+            for (final TextChannel channel : synapse.getTextChannels(guild, monitoredChannel)) {
+                if (started ? raise(detector, channel, settings) : release(detector, channel, settings)) {
+                    ++switched;
+                }
+            }
+        }
+        if (!started) {
+            detector.getPreviousSlowmodes().clear();
+        }
+
+        lgr.info("[Raid Mode - " + guild.getName() + "] - " + (started ? "Started" : "Ended") +
+                ", adjusted " + switched + " channels. Peak: " + detector.getPeak() + " messages.");
+
+        try {
+            DataSource.demand(conn -> {
+                PreparedActions.recordRaid(conn, synapse.getGuildId(), started, time,
+                        started ? detector.getPeak() : detector.getRecentMessages());
+                return null;
+            });
+        } catch (SQLException ex) {
+            lgr.info("Failure in recording raid of Guild " + synapse.getGuildId() + ".", ex);
+        }
+    }
+
+    /**
+     * Raises a channel's slowmode to the raid slowmode, remembering the one it had.
+     * @param settings Settings of the channel, or of its monitored category.
+     * @return Whether the slowmode was changed.
+     */
+    private static boolean raise(final RaidDetector detector, final TextChannel channel, final ChannelSettings settings) {
+        final int slow = SlowmodeDispatcher.getSlowmode(channel);
+        final int raid = RaidDetector.getRaidSlowmode(settings);
+
+        detector.getPreviousSlowmodes().putIfAbsent(channel.getId(), slow);
+        if (slow >= raid) {
+            return false;
+        }
+        SlowmodeDispatcher.request(channel, raid);
+        return true;
+    }
+
+    /**
+     * Gives a channel back the slowmode it had before the raid, unless
+     * its controller has since moved it above the raid slowmode.
+     * @param settings Settings of the channel, or of its monitored category.
+     * @return Whether the slowmode was changed.
+     */
+    private static boolean release(final RaidDetector detector, final TextChannel channel, final ChannelSettings settings) {
+        final Map<String, Integer> previousSlowmodes = detector.getPreviousSlowmodes();
+        final int slow = SlowmodeDispatcher.getSlowmode(channel);
+
+        if (slow > RaidDetector.getRaidSlowmode(settings)) {
+            return false;
+        }
+
+        int previous = previousSlowmodes.getOrDefault(channel.getId(), settings.min);
+        previous = Math.max(previous, settings.min);
+        if (settings.max > 0) {
+            previous = Math.min(previous, settings.max);
+        }
+        if (previous == slow) {
+            return false;
+        }
+        SlowmodeDispatcher.request(channel, previous);
+        return true;
+    }
+
+    @Override
+    public CommandType getType() {
+        return CommandType.RAID_SWITCH;
+    }
+
+    @Override
+    public Logger getLogger() {
+        return lgr;
+    }
+
+    @Override
+    public CommandData getData() {
+        return data;
+    }
+}
@@ -7,24 +7,33 @@ import org.slf4j.LoggerFactory;
 import thermostat.Thermostat;
 import thermostat.commands.Command;
 import thermostat.dispatchers.CommandDispatcher;
+import thermostat.dispatchers.SlowmodeDispatcher;
 import thermostat.mySQL.DataSource;
 import thermostat.mySQL.PreparedActions;
-import thermostat.util.MiscellaneousFunctions;
+import thermostat.util.GuildCache;
+import thermostat.util.entities.ChannelSettings;
 import thermostat.util.entities.CommandData;
+import thermostat.util.entities.MonitoredChannel;
 import thermostat.util.entities.Synapse;
 import thermostat.util.enumeration.CommandType;
+import thermostat.util.enumeration.ControllerType;
+import thermostat.util.synapse.RateReading;
+import thermostat.util.synapse.SpaceSaving;
 
-import javax.annotation.Nullable;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import javax.annotation.Nonnull;
 import java.sql.SQLException;
-import java.time.OffsetDateTime;
-import java.util.LinkedList;
+import java.util.List;
 
 public class SynapseMonitor implements Command {
     private static final Logger lgr = LoggerFactory.getLogger(SynapseMonitor.class);
 
+    /**
+     * Share of a window's messages, and minimum amount of them,
+     * that make a sender a heavy sender.
+     */
+    private static final double HEAVY_SENDER_SHARE = 0.5;
+    private static final long HEAVY_SENDER_MINIMUM = 5;
+
     /**
      * Synapse that started this monitoring event.
      */
@@ -36,24 +45,45 @@ public class SynapseMonitor implements Command {
     private final CommandData data;
 
     /**
-     * ID of Channel to monitor.
+     * ID of Channel or category to monitor.
      */
     private final String channelId;
 
     /**
-     * List of channel's messages, according to the Synapse's caching size.
+     * Monitoring state of the channel or category, according to the Synapse's caching size.
+     */
+    private final MonitoredChannel monitoredChannel;
+
+    /**
+     * Reading of the channel's message rate. Owned by this
+     * monitor until it is given back to the channel.
+     */
+    private final RateReading reading;
+
+    /**
+     * Heaviest senders of the channel's window.
      */
-    private final LinkedList<OffsetDateTime> channelMessages;
+    private final SpaceSaving.Snapshot senders;
+
+    /**
+     * Amount of messages each recorded message of the reading stands for.
+     */
+    private final int samplingFactor;
 
     /**
      * Create a new Monitor event for each Synapse.
      * @param synapse Synapse to take as an argument.
+     * @param monitoredChannel Channel that is due for an evaluation.
+     * @param reading Reading of the channel's message rate, handed out by its estimator.
      */
-    public SynapseMonitor(final Synapse synapse, final LinkedList<OffsetDateTime> channelMessages, final String channelId) {
+    public SynapseMonitor(final Synapse synapse, final MonitoredChannel monitoredChannel, final RateReading reading) {
         this.data = new CommandData(null);
         this.synapse = synapse;
-        this.channelId = channelId;
-        this.channelMessages = channelMessages;
+        this.channelId = monitoredChannel.getChannelId();
+        this.monitoredChannel = monitoredChannel;
+        this.reading = reading;
+        this.senders = monitoredChannel.getSenders(); // Taken on the producer, next to the reading
+        this.samplingFactor = monitoredChannel.getSamplingFactor();
 
         CommandDispatcher.queueCommand(this);
     }
@@ -66,99 +96,172 @@ public class SynapseMonitor implements Command {
                 lgr.info("[Slowmode Dispatch] Could not monitor null Guild - ID: " + synapse.getGuildId());
                 return;
             }
-            TextChannel channel = synapseGuild.getTextChannelById(channelId);
-            if (channel == null) {
+            List<TextChannel> channels = synapse.getTextChannels(synapseGuild, monitoredChannel);
+            if (channels.isEmpty()) {
                 lgr.info("[Slowmode Dispatch] Could not monitor null Channel" +
                         " - Guild ID: " + synapseGuild.getName() + " - Channel ID: " + channelId);
                 return;
             }
 
-            slowmodeSwitch(channel, MiscellaneousFunctions.calculateAverageTime(channelMessages));
-            lgr.info("[Synapse Stats - " + synapseGuild.getName() + "] - Adjusted: [" + channel.getName() + "]");
-            channelMessages.clear();
+            slowmodeSwitch(channels, reading.getAverageDelay() / samplingFactor); // Scaled back up when sampled
+            lgr.info("[Synapse Stats - " + synapseGuild.getName() + "] - Adjusted: [" + getName(channels) + "]");
+            reportHeavySenders(synapseGuild, getName(channels));
         } catch (SQLException ex) {
             lgr.info("Failure in monitoring Guild " + synapse.getGuildId() + ".", ex);
+        } finally {
+            monitoredChannel.recycle(reading);
         }
     }
 
     /**
-     * Calculates the slowmode for a certain channel.
-     * @param channel          The channel that will have the slowmode adjusted.
-     * @param averageDelay     The average delay between the past 25 messages.
+     * Reports the senders that account for a large share of the channel's window,
+     * so escalation can target them instead of the whole channel.
+     * @param guild Guild of the channel.
+     * @param name Name of the evaluated channel or category.
      */
-    private static void slowmodeSwitch(@Nullable final TextChannel channel, final long averageDelay) throws SQLException
+    private void reportHeavySenders(@Nonnull final Guild guild, @Nonnull final String name) {
+        if (senders == null) {
+            return;
+        }
+
+        for (final SpaceSaving.Sender sender : senders.getHeavyHitters(HEAVY_SENDER_SHARE, HEAVY_SENDER_MINIMUM)) {
+            lgr.info("[Synapse Stats - " + guild.getName() + "] - Heavy sender in [" + name + "]: " +
+                    sender.authorId + " sent " + sender.count + "/" + senders.total + " messages.");
+        }
+    }
+
+    /**
+     * Lowers the slowmode of a channel that has gone quiet by the
+     * same step as the slowest message rate, down to the channel's minimum,
+     * or to its floor while its Guild is being raided or a peak is forecast.
+     * Only reads cached data, so it is cheap enough to run on every decay tick.
+     * @param synapse Synapse of the channel's Guild.
+     * @param monitoredChannel Monitoring state of the channel or category.
+     * @param channels The channels that will have the slowmode relaxed.
+     */
+    public static void relaxSlowmode(@Nonnull final Synapse synapse, @Nonnull final MonitoredChannel monitoredChannel,
+                                     @Nonnull final List<TextChannel> channels)
     {
-        DataSource.demand(conn -> {
-            if (channel == null) {
-                return null;
-            }
+        ChannelSettings settings = GuildCache.getChannelSettings(synapse.getGuildId(), monitoredChannel.getChannelId());
+        int floor = getFloor(synapse, monitoredChannel, settings);
+        int slow = getSlowmode(channels);
+        if (slow <= floor) {
+            return;
+        }
+
+        try {
+            putSlowmode(channels, monitoredChannel.getChannelId(), slow, Math.max(slow - 4, floor), settings.min, settings.max);
+        } catch (SQLException ex) { // Not thrown when lowering the slowmode
+            lgr.info("Failure in relaxing slowmode for channel " + monitoredChannel.getChannelId() + ".", ex);
+        }
+    }
 
-            // gets the maximum and minimum slowmode values
-            // from the database.
-            PreparedStatement statement = conn.prepareStatement("SELECT MIN_SLOW, MAX_SLOW, SENSOFFSET " +
-                    "FROM CHANNEL_SETTINGS WHERE CHANNEL_ID = ?");
-            statement.setString(1, channel.getId());
-            ResultSet rs = statement.executeQuery();
-
-            if (rs.next()) {
-                int min = rs.getInt(1);
-                int max = rs.getInt(2);
-                float offset = rs.getFloat(3);
-
-                // accounting for each delay of the messages
-                // this function picks an appropriate slowmode
-                // adjustment number for each case.
-                if (averageDelay <= 100 * offset) {
-                    putSlowmode(conn, channel, 20, min, max);
-                } else if (averageDelay <= 250 * offset) {
-                    putSlowmode(conn, channel, 10, min, max);
-                } else if (averageDelay <= 500 * offset) {
-                    putSlowmode(conn, channel, 6, min, max);
-                } else if (averageDelay <= 750 * offset) {
-                    putSlowmode(conn, channel, 4, min, max);
-                } else if (averageDelay <= 1000 * offset) {
-                    putSlowmode(conn, channel, 2, min, max);
-                } else if (averageDelay <= 1250 * offset) {
-                    putSlowmode(conn, channel, 1, min, max);
-                } else if (averageDelay <= 1500 * offset) {
-                    putSlowmode(conn, channel, 0, min, max);
-                } else if (averageDelay <= 2000 * offset) {
-                    putSlowmode(conn, channel, -1, min, max);
-                } else if (averageDelay <= 2500 * offset) {
-                    putSlowmode(conn, channel, -2, min, max);
-                } else {
-                    putSlowmode(conn, channel, -4, min, max);
-                }
+    /**
+     * Raises the slowmode of channels to a floor, if they are below it.
+     * Never lowers the slowmode and never touches the database.
+     * @param channels Channels to raise.
+     * @param floor Floor of the channels' slowmode, in seconds.
+     */
+    public static void holdFloor(@Nonnull final List<TextChannel> channels, final int floor) {
+        for (final TextChannel channel : channels) {
+            if (SlowmodeDispatcher.getSlowmode(channel) < floor) {
+                SlowmodeDispatcher.request(channel, floor);
             }
-            return null;
-        });
+        }
+    }
+
+    /**
+     * @param channels Channels of a monitored channel or category, not empty.
+     * @return Highest slowmode the channels have, or are heading to.
+     */
+    private static int getSlowmode(@Nonnull final List<TextChannel> channels) {
+        int slow = 0;
+        for (final TextChannel channel : channels) {
+            slow = Math.max(slow, SlowmodeDispatcher.getSlowmode(channel));
+        }
+        return slow;
     }
 
     /**
-     * Adjusts the slowmode for the given channel.
-     * @param channel TextChannel that will have the slowmode adjusted.
-     * @param time    Int representing the adjustment time.
+     * @param channels Channels of the monitored channel or category, not empty.
+     * @return Name of the channel, or of the category.
      */
-    private static void putSlowmode(@Nullable final Connection conn, final TextChannel channel, final int time,
+    @Nonnull
+    private String getName(@Nonnull final List<TextChannel> channels) {
+        if (!monitoredChannel.isCategory() || channels.get(0).getParent() == null) {
+            return channels.get(0).getName();
+        }
+        return channels.get(0).getParent().getName() + " (" + channels.size() + " channels)";
+    }
+
+    /**
+     * @param synapse Synapse of the channel's Guild.
+     * @param monitoredChannel Monitoring state of the channel.
+     * @param settings Settings of the channel.
+     * @return Slowmode the channel may not go below: the raid floor of its Guild,
+     * or the floor of a forecast peak if the channel has forecasting enabled.
+     */
+    private static int getFloor(@Nonnull final Synapse synapse, @Nonnull final MonitoredChannel monitoredChannel,
+                                @Nonnull final ChannelSettings settings)
+    {
+        int floor = synapse.getRaidDetector().getFloor(settings);
+        if (settings.forecast) {
+            floor = Math.max(floor, monitoredChannel.getForecaster().getFloor(System.currentTimeMillis(), settings));
+        }
+        return floor;
+    }
+
+    /**
+     * Calculates the slowmode for a certain channel, or for every channel
+     * of a category, with the controller of the channel or category.
+     * @param channels         The channels that will have the slowmode adjusted.
+     * @param averageDelay     The average delay between the channel's messages.
+     */
+    private void slowmodeSwitch(@Nonnull final List<TextChannel> channels, final long averageDelay) throws SQLException
+    {
+        // gets the bounds, sensitivity and controller
+        // from the settings cache, the category's for a category.
+        ChannelSettings settings = GuildCache.getChannelSettings(synapse.getGuildId(), channelId);
+        int slow = getSlowmode(channels); // gets the slowmode the channels are heading to
+
+        long delay = (settings.controller == ControllerType.ADAPTIVE)
+                ? monitoredChannel.getBaseline().normalize(averageDelay) // relative to the channel's usual pace
+                : averageDelay;
+        int target = monitoredChannel.getController(settings.controller).nextSlowmode(slow, delay, settings);
+        target = Math.max(target, getFloor(synapse, monitoredChannel, settings)); // Raids and peaks hold the slowmode up
+        putSlowmode(channels, channelId, slow, target, settings.min, settings.max);
+    }
+
+    /**
+     * Adjusts the slowmode for the given channels, keeping it within their bounds.
+     * @param channels  TextChannels that will have the slowmode adjusted.
+     * @param chartId   ID the monitor chart counts the change for: the channel's, or the category's.
+     * @param slow      Slowmode the channels have, or are heading to.
+     * @param target    Slowmode picked for the channels.
+     */
+    private static void putSlowmode(final List<TextChannel> channels, final String chartId, final int slow, final int target,
                                     final int min, final int max) throws SQLException
     {
         int slowmodeToSet;
 
-        int slow = channel.getSlowmode(); // gets the current slowmode in the channel
-
-        if (slow + time > max && max > 0) { // if slowmode and the added time exceed the max slowmode
+        if (target > max && max > 0) { // if the new slowmode exceeds the max slowmode
             slowmodeToSet = max; // Set slowmode to the maximum value taken from the database.
-        } else if (slow + time > TextChannel.MAX_SLOWMODE) {
+        } else if (target > TextChannel.MAX_SLOWMODE) {
             slowmodeToSet = TextChannel.MAX_SLOWMODE; // sets to discord's maximum slowmode value
         } else {
-            slowmodeToSet = Math.max(slow + time, min);
+            slowmodeToSet = Math.max(target, min);
         }
 
-        channel.getManager().setSlowmode(slowmodeToSet).queue();
+        for (final TextChannel channel : channels) {
+            SlowmodeDispatcher.request(channel, slowmodeToSet); // Coalesced, no-ops are dropped
+        }
 
         // Adds +1 when a channel gets monitored.
-        if (slow == min && slowmodeToSet > min && conn != null) {
-            PreparedActions.incrementMonitorChart(conn, channel.getGuild().getId(), channel.getId());
+        if (slow == min && slowmodeToSet > min) {
+            DataSource.demand(conn -> {
+                PreparedActions.incrementMonitorChart(conn, channels.get(0).getGuild().getId(), chartId);
+                return null;
+            });
         }
     }
 
@@ -12,6 +12,7 @@ import thermostat.Thermostat;
 import thermostat.commands.Command;
 import thermostat.dispatchers.CommandDispatcher;
 import thermostat.dispatchers.ResponseDispatcher;
+import thermostat.dispatchers.RestDispatcher;
 import thermostat.embeds.Embeds;
 import thermostat.embeds.ThermoEmbed;
 import thermostat.mySQL.PreparedActions;
@@ -19,6 +20,7 @@ import thermostat.util.GuildCache;
 import thermostat.util.entities.CommandData;
 import thermostat.util.enumeration.CommandType;
 import thermostat.util.enumeration.EmbedType;
+import thermostat.util.enumeration.RestPriority;
 
 import javax.annotation.CheckReturnValue;
 import javax.annotation.Nonnull;
@@ -56,9 +58,8 @@ public class WordFilter implements Command {
     @Override
     public void run() {
         if (checkMessageForProfanity()) {
-            data.event.getMessage().delete()
-                    .reason("Inappropriate Language Filter")
-                    .queue();
+            RestDispatcher.queue(RestPriority.MODERATION, "messages/" + data.event.getChannel().getId(),
+                    data.event.getMessage().delete().reason("Inappropriate Language Filter"));
             try {
                 webhookAction(); // Proceeding carefully with handling this raw connection.
             } catch (SQLException ex) {
@@ -72,31 +73,35 @@ public class WordFilter implements Command {
         final String[] webhookIdentity = PreparedActions.getWebhookValue(data.event.getChannel().getId());
 
         if (webhookIdentity[0].equals("0")) {
-            createWebhook()
-                    .map(webhook -> {
-                        sendWebhookMessage(webhook.getId(), webhook.getToken());
-                        ResponseDispatcher.commandSucceeded(this, (ThermoEmbed) null);
-                        return webhook;
-                    })
-                    .onErrorMap(t -> {
-                        ResponseDispatcher.commandFailed(this, Embeds.getEmbed(EmbedType.ERR, data, t.getMessage()), t);
-                        return null;
-                    }).queue();
+            RestDispatcher.queue(RestPriority.RESPONSE, "webhooks/" + data.event.getChannel().getId(),
+                    createWebhook()
+                            .map(webhook -> {
+                                sendWebhookMessage(webhook.getId(), webhook.getToken());
+                                ResponseDispatcher.commandSucceeded(this, (ThermoEmbed) null);
+                                return webhook;
+                            })
+                            .onErrorMap(t -> {
+                                ResponseDispatcher.commandFailed(this, Embeds.getEmbed(EmbedType.ERR, data, t.getMessage()), t);
+                                return null;
+                            })
+            );
         } else {
-            updateWebhook(data.event.getAuthor(), webhookIdentity[0])
-                    .map(webhook -> {
-                        sendWebhookMessage(webhookIdentity[0], webhookIdentity[1]);
-                        ResponseDispatcher.commandSucceeded(this, (ThermoEmbed) null);
-                        return webhook;
-                    })
-                    // if something is wrong with the previous webhook, create a new one
-                    .onErrorMap(t -> {
-                        try {
-                            PreparedActions.deleteWebhook(data.event.getChannel().getId());
-                        } catch (SQLException ignored) {
-                        }
-                        return null;
-                    }).queue();
+            RestDispatcher.queue(RestPriority.RESPONSE, "webhooks/" + data.event.getChannel().getId(),
+                    updateWebhook(data.event.getAuthor(), webhookIdentity[0])
+                            .map(webhook -> {
+                                sendWebhookMessage(webhookIdentity[0], webhookIdentity[1]);
+                                ResponseDispatcher.commandSucceeded(this, (ThermoEmbed) null);
+                                return webhook;
+                            })
+                            // if something is wrong with the previous webhook, create a new one
+                            .onErrorMap(t -> {
+                                try {
+                                    PreparedActions.deleteWebhook(data.event.getChannel().getId());
+                                } catch (SQLException ignored) {
+                                }
+                                return null;
+                            })
+            );
         }
     }
 
@@ -164,7 +169,8 @@ public class WordFilter implements Command {
                 .createWebhook(username)
                 .map(
                         webhook -> {
-                            webhook.getManager().setAvatar(userAvatar).setName(username).queue();
+                            RestDispatcher.queue(RestPriority.COSMETIC, "webhooks/" + webhook.getId(),
+                                    webhook.getManager().setAvatar(userAvatar).setName(username));
                             try {
                                 PreparedActions.createWebhook(webhook.getId(), webhook.getToken(), data.event.getChannel().getId());
                             } catch (SQLException ex) {
@@ -8,6 +8,7 @@ import thermostat.dispatchers.CommandDispatcher;
 import thermostat.dispatchers.ResponseDispatcher;
 import thermostat.embeds.Embeds;
 import thermostat.mySQL.DataSource;
+import thermostat.util.Constants;
 import thermostat.util.GuildCache;
 import thermostat.util.entities.CommandData;
 import thermostat.util.enumeration.CommandType;
@@ -40,13 +41,12 @@ public class CSizeCommand implements Command {
 
     /**
      * Command form: th!setcaching
-     * -s <size>
-     * -c <channels/categories>
+     * -s <min> <max>, or -s <size>
      */
     @Override
     public void run() {
         final List<String> cachingSize = data.parameters.get("s");
-        int newCachingSize;
+        int minCachingSize, maxCachingSize;
 
         // Check that size has arguments
         if (!hasArguments(cachingSize)) {
@@ -58,35 +58,40 @@ public class CSizeCommand implements Command {
 
         // Parse caching size argument
         try {
-            newCachingSize = Integer.parseInt(cachingSize.get(0));
+            minCachingSize = Integer.parseInt(cachingSize.get(0));
+            maxCachingSize = (cachingSize.size() > 1) ? Integer.parseInt(cachingSize.get(1)) : minCachingSize;
 
-            if (newCachingSize < 5 || newCachingSize > 100) {
+            if (minCachingSize < Constants.MIN_CACHING_SIZE || maxCachingSize > Constants.MAX_CACHING_SIZE
+                    || minCachingSize > maxCachingSize) {
                 throw new NumberFormatException();
             }
         } catch (NumberFormatException ex) {
             ResponseDispatcher.commandFailed(this,
                     Embeds.getEmbed(EmbedType.ERR_INPUT, data,
-                            "Caching size must be between 5 (inclusive) and 100 (inclusive)."),
+                            "Caching size must be between 5 (inclusive) and 100 (inclusive), " +
+                                    "and the minimum may not exceed the maximum."),
                     "Incorrect caching size.");
             return;
         }
 
         try {
-            cacheSizeAction(newCachingSize);
+            cacheSizeAction(minCachingSize, maxCachingSize);
         } catch (Exception ex) {
             ResponseDispatcher.commandFailed(this, Embeds.getEmbed(EmbedType.ERR, data, ex.getMessage()), ex);
             return;
         }
 
-        GuildCache.setCacheSize(data.event.getGuild().getId(), newCachingSize); // Set CSize Cache
-        ResponseDispatcher.commandSucceeded(this, Embeds.getEmbed(EmbedType.SET_CACHE, data, newCachingSize)); // Send embed to user
+        GuildCache.setCacheSize(data.event.getGuild().getId(), minCachingSize, maxCachingSize); // Set CSize Cache
+        ResponseDispatcher.commandSucceeded(this, Embeds.getEmbed(EmbedType.SET_CACHE, data,
+                (minCachingSize == maxCachingSize) ? String.valueOf(maxCachingSize) : minCachingSize + "-" + maxCachingSize)); // Send embed to user
     }
 
-    private void cacheSizeAction(final int newCachingSize) throws SQLException {
+    private void cacheSizeAction(final int minCachingSize, final int maxCachingSize) throws SQLException {
         DataSource.demand(conn -> {
-            PreparedStatement statement = conn.prepareStatement("UPDATE GUILDS SET CACHING_SIZE = ? WHERE GUILD_ID = ?");
-            statement.setInt(1, newCachingSize);
-            statement.setString(2, data.event.getGuild().getId());
+            PreparedStatement statement = conn.prepareStatement("UPDATE GUILDS SET MIN_CACHING_SIZE = ?, CACHING_SIZE = ? WHERE GUILD_ID = ?");
+            statement.setInt(1, minCachingSize);
+            statement.setInt(2, maxCachingSize);
+            statement.setString(3, data.event.getGuild().getId());
             statement.executeUpdate();
             return null;
         });
@@ -0,0 +1,133 @@
+package thermostat.commands.monitoring;
+
+import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import thermostat.commands.Command;
+import thermostat.dispatchers.CommandDispatcher;
+import thermostat.dispatchers.ResponseDispatcher;
+import thermostat.embeds.Embeds;
+import thermostat.mySQL.DataSource;
+import thermostat.util.ArgumentParser;
+import thermostat.util.GuildCache;
+import thermostat.util.entities.CommandArguments;
+import thermostat.util.entities.CommandData;
+import thermostat.util.enumeration.CommandType;
+import thermostat.util.enumeration.ControllerType;
+import thermostat.util.enumeration.EmbedType;
+
+import javax.annotation.Nonnull;
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+import java.util.List;
+
+import static thermostat.util.ArgumentParser.hasArguments;
+
+public class ControllerCommand implements Command {
+    private static final Logger lgr = LoggerFactory.getLogger(ControllerCommand.class);
+    private final CommandData data;
+
+    public ControllerCommand(@Nonnull GuildMessageReceivedEvent data, @Nonnull List<String> arguments, @Nonnull String prefix) {
+        this.data = new CommandData(data, arguments, prefix);
+
+        if (this.data.parameters == null) {
+            ResponseDispatcher.commandFailed(
+                    this,
+                    Embeds.getEmbed(EmbedType.HELP_CONTROLLER, this.data),
+                    "Bad arguments.");
+            return;
+        }
+
+        CommandDispatcher.checkPermissionsAndQueue(this);
+    }
+
+    /**
+     * Command form: th!controller
+     * -t <ladder/pid/hysteresis/adaptive>
+     * -c <channels/categories>
+     */
+    @Override
+    public void run() {
+        final List<String> channels = data.parameters.get("c");
+        final List<String> type = data.parameters.get("t");
+
+        // Check that type has arguments
+        if (!hasArguments(type)) {
+            ResponseDispatcher.commandFailed(this,
+                    Embeds.getEmbed(EmbedType.HELP_CONTROLLER, data),
+                    "User did not provide arguments.");
+            return;
+        }
+
+        // Parse type argument
+        final ControllerType controller = ControllerType.of(type.get(0));
+        if (!controller.name().equalsIgnoreCase(type.get(0))) {
+            ResponseDispatcher.commandFailed(this,
+                    Embeds.getEmbed(EmbedType.ERR_INPUT, data,
+                            "Controller must be one of: ladder, pid, hysteresis, adaptive."),
+                    "Invalid controller type.");
+            return;
+        }
+
+        controllerAction(
+                ArgumentParser.parseChannelArgument(data.event.getChannel(), channels),
+                controller
+        );
+    }
+
+    private void controllerAction(final CommandArguments arguments, final ControllerType controller) {
+        StringBuilder complete = new StringBuilder();
+
+        // Update controller on the database
+        try {
+            DataSource.demand(conn -> {
+                for (final String channel : arguments.channels) {
+                    PreparedStatement statement = conn.prepareStatement("UPDATE CHANNEL_SETTINGS SET CONTROLLER = ? WHERE CHANNEL_ID = ?");
+                    statement.setString(1, controller.name());
+                    statement.setString(2, channel);
+                    statement.executeUpdate();
+                    complete.append("<#").append(channel).append("> ");
+                }
+                return null;
+            });
+        } catch (Exception ex) {
+            ResponseDispatcher.commandFailed(this,
+                    Embeds.getEmbed(EmbedType.ERR, data, ex.getMessage()),
+                    ex);
+            return;
+        }
+
+        // Publish the new controller to the settings cache
+        GuildCache.updateChannelSettings(data.event.getGuild().getId(), arguments.channels,
+                settings -> settings.withController(controller));
+
+        // Send embed results to user
+        ResponseDispatcher.commandSucceeded(this,
+                Embeds.getEmbed(EmbedType.DYNAMIC, data,
+                        Arrays.asList(
+                                "Channels now controlled by " + controller.name().toLowerCase() + ":",
+                                complete.toString(),
+                                "Channels that were not valid or found:",
+                                arguments.nonValid.toString(),
+                                "Categories with no Text Channels:",
+                                arguments.noText.toString()
+                        )
+                )
+        );
+    }
+
+    @Override
+    public CommandType getType() {
+        return CommandType.CONTROLLER;
+    }
+
+    @Override
+    public Logger getLogger() {
+        return lgr;
+    }
+
+    @Override
+    public CommandData getData() {
+        return data;
+    }
+}
@@ -0,0 +1,111 @@
+package thermostat.commands.monitoring;
+
+import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import thermostat.commands.Command;
+import thermostat.dispatchers.CommandDispatcher;
+import thermostat.dispatchers.ResponseDispatcher;
+import thermostat.embeds.Embeds;
+import thermostat.mySQL.DataSource;
+import thermostat.util.GuildCache;
+import thermostat.util.entities.CommandData;
+import thermostat.util.enumeration.CommandType;
+import thermostat.util.enumeration.EmbedType;
+import thermostat.util.enumeration.EstimatorType;
+
+import javax.annotation.Nonnull;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+import static thermostat.util.ArgumentParser.hasArguments;
+
+public class EstimatorCommand implements Command {
+    private static final Logger lgr = LoggerFactory.getLogger(EstimatorCommand.class);
+    private final CommandData data;
+
+    public EstimatorCommand(@Nonnull GuildMessageReceivedEvent data, @Nonnull List<String> arguments, @Nonnull String prefix) {
+        this.data = new CommandData(data, arguments, prefix);
+
+        if (this.data.parameters == null) {
+            ResponseDispatcher.commandFailed(
+                    this,
+                    Embeds.getEmbed(EmbedType.HELP_ESTIMATOR, this.data),
+                    "Bad arguments.");
+            return;
+        }
+
+        CommandDispatcher.checkPermissionsAndQueue(this);
+    }
+
+    /**
+     * Command form: th!estimator
+     * -t <window/ewma/buckets>
+     */
+    @Override
+    public void run() {
+        final List<String> type = data.parameters.get("t");
+
+        // Check that type has arguments
+        if (!hasArguments(type)) {
+            ResponseDispatcher.commandFailed(this,
+                    Embeds.getEmbed(EmbedType.HELP_ESTIMATOR, data),
+                    "User did not provide arguments.");
+            return;
+        }
+
+        // Parse type argument
+        final EstimatorType estimator = EstimatorType.of(type.get(0));
+        if (!estimator.name().equalsIgnoreCase(type.get(0))) {
+            ResponseDispatcher.commandFailed(this,
+                    Embeds.getEmbed(EmbedType.ERR_INPUT, data,
+                            "Estimator must be one of: window, ewma, buckets."),
+                    "Invalid estimator type.");
+            return;
+        }
+
+        try {
+            estimatorAction(estimator);
+        } catch (Exception ex) {
+            ResponseDispatcher.commandFailed(this, Embeds.getEmbed(EmbedType.ERR, data, ex.getMessage()), ex);
+            return;
+        }
+
+        GuildCache.setEstimator(data.event.getGuild().getId(), estimator); // Swap the Synapse's estimators
+        ResponseDispatcher.commandSucceeded(this,
+                Embeds.getEmbed(EmbedType.DYNAMIC, data,
+                        Arrays.asList(
+                                "Message rates in your server are now measured with:",
+                                estimator.name().toLowerCase()
+                        )
+                )
+        );
+    }
+
+    private void estimatorAction(final EstimatorType estimator) throws SQLException {
+        DataSource.demand(conn -> {
+            PreparedStatement statement = conn.prepareStatement("UPDATE GUILDS SET ESTIMATOR = ? WHERE GUILD_ID = ?");
+            statement.setString(1, estimator.name());
+            statement.setString(2, data.event.getGuild().getId());
+            statement.executeUpdate();
+            return null;
+        });
+    }
+
+    @Override
+    public CommandType getType() {
+        return CommandType.ESTIMATOR;
+    }
+
+    @Override
+    public Logger getLogger() {
+        return lgr;
+    }
+
+    @Override
+    public CommandData getData() {
+        return data;
+    }
+}
@@ -0,0 +1,118 @@
+package thermostat.commands.monitoring;
+
+import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import thermostat.commands.Command;
+import thermostat.dispatchers.CommandDispatcher;
+import thermostat.dispatchers.ResponseDispatcher;
+import thermostat.embeds.Embeds;
+import thermostat.mySQL.DataSource;
+import thermostat.mySQL.PreparedActions;
+import thermostat.util.ArgumentParser;
+import thermostat.util.MiscellaneousFunctions;
+import thermostat.util.entities.CommandArguments;
+import thermostat.util.entities.CommandData;
+import thermostat.util.enumeration.CommandType;
+import thermostat.util.enumeration.DBActionType;
+import thermostat.util.enumeration.EmbedType;
+
+import javax.annotation.Nonnull;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+public class ForecastCommand implements Command {
+    private static final Logger lgr = LoggerFactory.getLogger(ForecastCommand.class);
+    private final CommandData data;
+
+    public ForecastCommand(@Nonnull GuildMessageReceivedEvent data, @Nonnull List<String> arguments, @Nonnull String prefix) {
+        this.data = new CommandData(data, arguments, prefix);
+
+        if (this.data.parameters == null) {
+            ResponseDispatcher.commandFailed(
+                    this,
+                    Embeds.getEmbed(EmbedType.HELP_FORECAST, this.data),
+                    "Bad arguments.");
+            return;
+        }
+
+        CommandDispatcher.checkPermissionsAndQueue(this);
+    }
+
+    /**
+     * Command form: th!forecast
+     * --on/--off
+     * -c <channels/categories>
+     */
+    @Override
+    public void run() {
+        final List<String> channels = data.parameters.get("c");
+        final List<String> onSwitch = data.parameters.get("-on");
+        final List<String> offSwitch = data.parameters.get("-off");
+
+        if (offSwitch == null && onSwitch == null) {
+            ResponseDispatcher.commandFailed(this, Embeds.getEmbed(EmbedType.HELP_FORECAST, data),
+                    "User did not provide arguments.");
+            return;
+        }
+
+        forecastAction(
+                ArgumentParser.parseChannelArgument(data.event.getChannel(), channels),
+                MiscellaneousFunctions.getMonitorValue(onSwitch, offSwitch)
+        );
+    }
+
+    private void forecastAction(final CommandArguments arguments, final int forecast) {
+        final StringBuilder complete;
+
+        // Update forecast on the database and the settings cache
+        try {
+            complete = DataSource.demand(conn -> PreparedActions.modifyChannel(
+                    conn, DBActionType.FORECAST, forecast, data.event.getGuild().getId(), arguments.channels)
+            );
+        } catch (SQLException ex) {
+            ResponseDispatcher.commandFailed(this,
+                    Embeds.getEmbed(EmbedType.ERR, data, ex.getMessage()),
+                    ex);
+            return;
+        }
+
+        // Switch message depending on user action
+        final String message;
+        if (forecast == 1) {
+            message = "Enabled forecasting on:";
+        } else {
+            message = "Disabled forecasting on:";
+        }
+
+        // Send the results embed to dispatch
+        ResponseDispatcher.commandSucceeded(this,
+                Embeds.getEmbed(EmbedType.DYNAMIC, data,
+                        Arrays.asList(
+                                message,
+                                complete.toString(),
+                                "Channels that were not valid or found:",
+                                arguments.nonValid.toString(),
+                                "Categories with no Text Channels:",
+                                arguments.noText.toString()
+                        )
+                )
+        );
+    }
+
+    @Override
+    public CommandType getType() {
+        return CommandType.FORECAST;
+    }
+
+    @Override
+    public Logger getLogger() {
+        return lgr;
+    }
+
+    @Override
+    public CommandData getData() {
+        return data;
+    }
+}
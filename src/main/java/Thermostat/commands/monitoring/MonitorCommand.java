@@ -23,6 +23,7 @@ import thermostat.util.enumeration.MenuType;
 import javax.annotation.CheckReturnValue;
 import javax.annotation.Nonnull;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 
 /**
@@ -54,6 +55,7 @@ public class MonitorCommand implements Command {
      * --on
      * --off
      * --all
+     * --category
      * -c [channels/categories]
      */
     @Override
@@ -62,6 +64,7 @@ public class MonitorCommand implements Command {
         final List<String> onSwitch = data.parameters.get("-on");
         final List<String> offSwitch = data.parameters.get("-off");
         final List<String> allSwitch = data.parameters.get("-all");
+        final List<String> categorySwitch = data.parameters.get("-category");
 
         if (offSwitch == null && onSwitch == null) {
             ResponseDispatcher.commandFailed(this, Embeds.getEmbed(EmbedType.HELP_MONITOR, data));
@@ -73,24 +76,40 @@ public class MonitorCommand implements Command {
             return;
         }
 
+        // Categories are monitored as a whole, instead of channel by channel
+        if (categorySwitch != null) {
+            monitorAction(
+                    ArgumentParser.parseCategoryArgument(data.event.getChannel(), channels),
+                    MiscellaneousFunctions.getMonitorValue(onSwitch, offSwitch),
+                    true
+            );
+            return;
+        }
+
         monitorAction(
                 ArgumentParser.parseChannelArgument(data.event.getChannel(), channels),
-                MiscellaneousFunctions.getMonitorValue(onSwitch, offSwitch)
+                MiscellaneousFunctions.getMonitorValue(onSwitch, offSwitch),
+                false
         );
     }
 
-    private void monitorAction(final CommandArguments commandArguments, final int monitor) {
+    private void monitorAction(final CommandArguments commandArguments, final int monitor, final boolean categories) {
         final StringBuilder complete;
 
         // Monitor target channels
         try {
-            complete = DataSource.demand(conn ->
-                    PreparedActions.modifyChannel(
-                            conn, DBActionType.MONITOR,
-                            monitor, data.event.getGuild().getId(),
-                            commandArguments.channels
-                    )
-            );
+            complete = DataSource.demand(conn -> {
+                // Categories never send messages, so they might not be registered yet
+                if (categories) {
+                    PreparedActions.createChannels(conn, data.event.getGuild().getId(),
+                            new HashSet<>(commandArguments.channels), 0);
+                }
+                return PreparedActions.modifyChannel(
+                        conn, DBActionType.MONITOR,
+                        monitor, data.event.getGuild().getId(),
+                        commandArguments.channels
+                );
+            });
         } catch (Exception ex) {
             // Issues with the database transaction
             ResponseDispatcher.commandFailed(this, Embeds.getEmbed(EmbedType.ERR, data, ex.getMessage()), ex);
@@ -9,6 +9,7 @@ import thermostat.dispatchers.ResponseDispatcher;
 import thermostat.embeds.Embeds;
 import thermostat.mySQL.DataSource;
 import thermostat.util.ArgumentParser;
+import thermostat.util.GuildCache;
 import thermostat.util.entities.CommandArguments;
 import thermostat.util.entities.CommandData;
 import thermostat.util.enumeration.CommandType;
@@ -100,6 +101,10 @@ public class SensitivityCommand implements Command {
             return;
         }
 
+        // Publish the new sensitivity to the settings cache
+        GuildCache.updateChannelSettings(data.event.getGuild().getId(), arguments.channels,
+                settings -> settings.withSensOffset(offset));
+
         // Send embed results to user
         ResponseDispatcher.commandSucceeded(this,
                 Embeds.getEmbed(EmbedType.DYNAMIC, data,
@@ -7,9 +7,11 @@ import org.slf4j.LoggerFactory;
 import thermostat.Thermostat;
 import thermostat.commands.Command;
 import thermostat.embeds.Embeds;
+import thermostat.mySQL.GuildRegistry;
 import thermostat.util.Constants;
 import thermostat.util.RestActions;
 import thermostat.util.enumeration.EmbedType;
+import thermostat.util.enumeration.RestPriority;
 
 import javax.annotation.Nonnull;
 import java.util.Arrays;
@@ -44,6 +46,8 @@ public final class CommandDispatcher {
                 Command commandToProcess = null;
                 try {
                     commandToProcess = commands.take(); // Take a command from the request queue
+                    // Commands write settings, which need the Guild's rows on the database.
+                    GuildRegistry.flush(commandToProcess.getData().event.getGuild().getId());
                     commandToProcess.run(); // Run the command
                 } catch (RuntimeException ex) {
                     if (commandToProcess != null) {
@@ -107,9 +111,10 @@ public final class CommandDispatcher {
                         command.getLogger().info("Missing permissions on (" + commandEvent.getGuild().getName() +
                                 "/" + commandEvent.getGuild().getId() + "):" +
                                 " " + missingThermostatPerms.toString() + "");
-                        RestActions.sendMessage(commandEvent.getChannel(),
-                                Embeds.getEmbed(EmbedType.ERR_PERMISSION_THERMO,
-                                        command.getData(), missingThermostatPerms)).queue();
+                        RestDispatcher.queue(RestPriority.RESPONSE, "messages/" + commandEvent.getChannel().getId(),
+                                RestActions.sendMessage(commandEvent.getChannel(),
+                                        Embeds.getEmbed(EmbedType.ERR_PERMISSION_THERMO,
+                                                command.getData(), missingThermostatPerms)));
                     }
                     return thermostat;
                 }).queue();
@@ -139,8 +144,9 @@ public final class CommandDispatcher {
                         command.getLogger().info("Missing permissions on (" + commandEvent.getGuild().getName() +
                                 "/" + commandEvent.getGuild().getId() + "):" +
                                 " " + missingThermostatPerms.toString() + " " + missingMemberPerms.toString() + "");
-                        RestActions.sendMessage(commandEvent.getChannel(), Embeds.getEmbed(EmbedType.ERR_PERMISSION,
-                                command.getData(), Arrays.asList(missingThermostatPerms, missingMemberPerms))).queue();
+                        RestDispatcher.queue(RestPriority.RESPONSE, "messages/" + commandEvent.getChannel().getId(),
+                                RestActions.sendMessage(commandEvent.getChannel(), Embeds.getEmbed(EmbedType.ERR_PERMISSION,
+                                        command.getData(), Arrays.asList(missingThermostatPerms, missingMemberPerms))));
                     }
                     return thermostat;
                 }).queue();
@@ -15,6 +15,7 @@ import thermostat.util.entities.ReactionMenu;
 import thermostat.util.enumeration.DBActionType;
 import thermostat.util.enumeration.EmbedType;
 import thermostat.util.enumeration.MenuType;
+import thermostat.util.enumeration.RestPriority;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -94,8 +95,8 @@ public class MenuDispatcher extends ListenerAdapter {
                 }
             }
         } catch (Exception ex) {
-            sendMessage(event.getChannel(),
-                    Embeds.getEmbed(EmbedType.ERR, "Something went wrong. Please try again.")).queue();
+            RestDispatcher.queue(RestPriority.RESPONSE, "messages/" + event.getChannel().getId(),
+                    sendMessage(event.getChannel(), Embeds.getEmbed(EmbedType.ERR, "Something went wrong. Please try again.")));
             ex.printStackTrace();
         }
     }
@@ -137,10 +138,12 @@ public class MenuDispatcher extends ListenerAdapter {
             // Close Menu
             case "❌" -> {
                 removeMenu(reactionMenu.getMessageId());
-                event.getChannel().retrieveMessageById(reactionMenu.getMessageId()).flatMap(Message::delete).queue();
+                RestDispatcher.queue(RestPriority.COSMETIC, "messages/" + event.getChannel().getId(),
+                        event.getChannel().retrieveMessageById(reactionMenu.getMessageId()).flatMap(Message::delete));
             }
             // Remove invalid reaction
-            default -> event.getReaction().removeReaction().queue();
+            default -> RestDispatcher.queue(RestPriority.COSMETIC, "reactions/" + event.getChannel().getId(),
+                    event.getReaction().removeReaction());
         }
     }
 
@@ -154,20 +157,24 @@ public class MenuDispatcher extends ListenerAdapter {
             final String prefix = GuildCache.getPrefix(event.getGuild().getId());
 
             // Action to update the menu to a submenu
-            event.getChannel().retrieveMessageById(reactionMenu.getMessageId())
-                    .flatMap(message ->
-                            message.clearReactions()
-                            .and(editMessage(message, Embeds.getEmbed(type, prefix)))
-                            .and(addReactions(message, Arrays.asList("🔼", "❌")))
-                    ).queue();
+            RestDispatcher.queue(RestPriority.COSMETIC, "reactions/" + event.getChannel().getId(),
+                    event.getChannel().retrieveMessageById(reactionMenu.getMessageId())
+                            .flatMap(message ->
+                                    message.clearReactions()
+                                    .and(editMessage(message, Embeds.getEmbed(type, prefix)))
+                                    .and(addReactions(message, Arrays.asList("🔼", "❌")))
+                            )
+            );
         } else {
             // Go back to the main menu
-            event.getChannel().retrieveMessageById(reactionMenu.getMessageId())
-                    .flatMap(message ->
-                            message.clearReactions()
-                            .and(editMessage(message, Embeds.getEmbed(type)))
-                            .and(addReactions(message, Arrays.asList("⏱", "🔧", "✨", "❌")))
-                    ).queue();
+            RestDispatcher.queue(RestPriority.COSMETIC, "reactions/" + event.getChannel().getId(),
+                    event.getChannel().retrieveMessageById(reactionMenu.getMessageId())
+                            .flatMap(message ->
+                                    message.clearReactions()
+                                    .and(editMessage(message, Embeds.getEmbed(type)))
+                                    .and(addReactions(message, Arrays.asList("⏱", "🔧", "✨", "❌")))
+                            )
+            );
         }
     }
 
@@ -198,10 +205,12 @@ public class MenuDispatcher extends ListenerAdapter {
 
             expungeMenu(reactionMenu.getMessageId()); // remove the menu from the list of menus
 
-            event.getChannel().retrieveMessageById(event.getMessageId())
-                    .flatMap(message -> editMessage(message, Embeds.getEmbed(EmbedType.ACTION_SUCCESSFUL,
-                            reactionMenu.getCommand().getData())))
-                    .flatMap(Message::clearReactions).queue();
+            RestDispatcher.queue(RestPriority.RESPONSE, "messages/" + event.getChannel().getId(),
+                    event.getChannel().retrieveMessageById(event.getMessageId())
+                            .flatMap(message -> editMessage(message, Embeds.getEmbed(EmbedType.ACTION_SUCCESSFUL,
+                                    reactionMenu.getCommand().getData())))
+                            .flatMap(Message::clearReactions)
+            );
         }
     }
 
@@ -5,6 +5,7 @@ import org.jetbrains.annotations.Contract;
 import thermostat.commands.Command;
 import thermostat.embeds.ThermoEmbed;
 import thermostat.util.RestActions;
+import thermostat.util.enumeration.RestPriority;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -25,7 +26,7 @@ public final class ResponseDispatcher {
     @Contract("null, _ -> fail; _, null -> fail")
     public static void commandSucceeded(final Command command, RestAction<?> action) {
         command.getLogger().info("Command with ID [" + command.getData().commandId + "] was successful.");
-        action.queue();
+        RestDispatcher.queue(RestPriority.RESPONSE, route(command), action);
     }
 
     /**
@@ -38,7 +39,8 @@ public final class ResponseDispatcher {
     public static void commandSucceeded(final Command command, @Nullable final ThermoEmbed embed) {
         command.getLogger().info("Command with ID [" + command.getData().commandId + "] was successful.");
         if (embed != null)
-            RestActions.sendMessage(command.getData().event.getChannel(), embed).queue();
+            RestDispatcher.queue(RestPriority.RESPONSE, route(command),
+                    RestActions.sendMessage(command.getData().event.getChannel(), embed));
     }
 
     /**
@@ -52,10 +54,11 @@ public final class ResponseDispatcher {
     @Contract("null, _, _ -> fail")
     public static void commandSucceeded(final Command command, @Nonnull ThermoEmbed embed, @Nonnull InputStream inputStream) {
         command.getLogger().info("Command with ID [" + command.getData().commandId + "] was successful.");
-        command.getData().event.getChannel()
-                .sendFile(inputStream, "chart.png")
-                .embed(embed.setImage("attachment://chart.png").build())
-                .queue();
+        RestDispatcher.queue(RestPriority.RESPONSE, route(command),
+                command.getData().event.getChannel()
+                        .sendFile(inputStream, "chart.png")
+                        .embed(embed.setImage("attachment://chart.png").build())
+        );
     }
 
     /**
@@ -69,7 +72,8 @@ public final class ResponseDispatcher {
     public static void commandFailed(final Command command, @Nullable ThermoEmbed embed, @Nonnull String reason) {
         command.getLogger().info("Command with ID [" + command.getData().commandId + "] has failed. Reason: " + reason);
         if (embed != null)
-            RestActions.sendMessage(command.getData().event.getChannel(), embed).queue();
+            RestDispatcher.queue(RestPriority.RESPONSE, route(command),
+                    RestActions.sendMessage(command.getData().event.getChannel(), embed));
     }
 
     /**
@@ -82,7 +86,8 @@ public final class ResponseDispatcher {
     public static void commandFailed(final Command command, @Nullable ThermoEmbed embed, @Nonnull Throwable throwable) {
         command.getLogger().info("Command with ID [" + command.getData().commandId + "] has failed. Details: ", throwable);
         if (embed != null)
-            RestActions.sendMessage(command.getData().event.getChannel(), embed).queue();
+            RestDispatcher.queue(RestPriority.RESPONSE, route(command),
+                    RestActions.sendMessage(command.getData().event.getChannel(), embed));
     }
 
     /**
@@ -95,6 +100,16 @@ public final class ResponseDispatcher {
         Objects.requireNonNull(command);
         command.getLogger().info("Command with ID [" + command.getData().commandId + "] has failed. (Replied with help Embed).");
         if (embed != null)
-            RestActions.sendMessage(command.getData().event.getChannel(), embed).queue();
+            RestDispatcher.queue(RestPriority.RESPONSE, route(command),
+                    RestActions.sendMessage(command.getData().event.getChannel(), embed));
+    }
+
+    /**
+     * @param command Command to reply to.
+     * @return REST route of the messages in the Command's channel.
+     */
+    @Nonnull
+    private static String route(final Command command) {
+        return "messages/" + command.getData().event.getChannel().getId();
     }
 }
@@ -0,0 +1,285 @@
+package thermostat.dispatchers;
+
+import net.dv8tion.jda.api.requests.RestAction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import thermostat.util.enumeration.RestPriority;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Schedules outgoing REST actions by priority before they reach JDA's
+ * request queue. Moderation actions are sent right away; Command responses
+ * and cosmetic actions wait in lanes while too many actions are in flight.
+ * Only one action per route is in flight at a time, so a busy route cannot
+ * fill JDA's queue while it waits for its rate limit. Cosmetic actions only
+ * go out when no response is waiting, and stale or overflowing lane
+ * entries are dropped.
+ */
+public final class RestDispatcher {
+    /**
+     * Logger for this class.
+     */
+    private static final Logger lgr = LoggerFactory.getLogger(RestDispatcher.class);
+
+    /**
+     * Maximum amount of actions in flight.
+     */
+    private static final int MAX_IN_FLIGHT = 8;
+
+    /**
+     * Cosmetic actions are only sent while fewer actions than this are in flight.
+     */
+    private static final int COSMETIC_IN_FLIGHT = 2;
+
+    /**
+     * Maximum amount of actions waiting in the response and cosmetic lanes.
+     */
+    private static final int RESPONSE_CAPACITY = 500, COSMETIC_CAPACITY = 200;
+
+    /**
+     * Time after which a waiting action is dropped, in millis.
+     */
+    private static final long RESPONSE_MAX_AGE = TimeUnit.SECONDS.toMillis(60),
+            COSMETIC_MAX_AGE = TimeUnit.SECONDS.toMillis(15);
+
+    /**
+     * Guards every field below.
+     */
+    private static final Object lock = new Object();
+
+    private static final ArrayDeque<Task> responses = new ArrayDeque<>();
+    private static final ArrayDeque<Task> cosmetics = new ArrayDeque<>();
+
+    /**
+     * Routes that have an action in flight.
+     */
+    private static final Set<String> busyRoutes = new HashSet<>();
+
+    /**
+     * Amount of actions in flight.
+     */
+    private static int inFlight = 0;
+
+    /**
+     * Dropped actions, by priority.
+     */
+    private static final long[] dropped = new long[RestPriority.values().length];
+
+    /**
+     * Queues a RestAction with the default callbacks.
+     * @param priority Priority of the action.
+     * @param route Route of the action, for example "messages/" + channel ID.
+     * @param action Action to send.
+     */
+    public static void queue(@Nonnull final RestPriority priority, @Nonnull final String route,
+                             @Nonnull final RestAction<?> action)
+    {
+        queue(priority, route, action, null, null);
+    }
+
+    /**
+     * Queues a RestAction.
+     * @param priority Priority of the action.
+     * @param route Route of the action, for example "messages/" + channel ID.
+     * @param action Action to send.
+     * @param success Called with the result. Null for JDA's default.
+     * @param failure Called with the error, or a CancellationException if the action was dropped.
+     *                Null for JDA's default.
+     * @param <T> Type of the action's result.
+     */
+    public static <T> void queue(@Nonnull final RestPriority priority, @Nonnull final String route,
+                                 @Nonnull final RestAction<T> action,
+                                 @Nullable final Consumer<? super T> success,
+                                 @Nullable final Consumer<? super Throwable> failure)
+    {
+        final Task task = new Task(priority, route, failure, done -> action.queue(
+                result -> {
+                    done.run();
+                    if (success != null) {
+                        success.accept(result);
+                    } else {
+                        RestAction.getDefaultSuccess().accept(result);
+                    }
+                },
+                error -> {
+                    done.run();
+                    if (failure != null) {
+                        failure.accept(error);
+                    } else {
+                        RestAction.getDefaultFailure().accept(error);
+                    }
+                }
+        ));
+
+        if (priority == RestPriority.MODERATION) {
+            synchronized (lock) {
+                ++inFlight; // Sent right away, but holds back the lanes while in flight
+            }
+            send(task);
+            return;
+        }
+
+        Task overflow = null;
+        synchronized (lock) {
+            ArrayDeque<Task> lane = lane(priority);
+            lane.addLast(task);
+            if (lane.size() > ((priority == RestPriority.RESPONSE) ? RESPONSE_CAPACITY : COSMETIC_CAPACITY)) {
+                overflow = lane.pollFirst();
+                ++dropped[priority.ordinal()];
+            }
+        }
+
+        if (overflow != null) {
+            overflow.drop();
+        }
+        pump();
+    }
+
+    /**
+     * @param priority Priority class.
+     * @return Amount of actions of the class that were dropped since startup.
+     */
+    public static long getDropped(@Nonnull final RestPriority priority) {
+        synchronized (lock) {
+            return dropped[priority.ordinal()];
+        }
+    }
+
+    /**
+     * @param priority Priority class.
+     * @return Amount of actions of the class waiting to be sent.
+     */
+    public static int getWaiting(@Nonnull final RestPriority priority) {
+        synchronized (lock) {
+            return (priority == RestPriority.MODERATION) ? 0 : lane(priority).size();
+        }
+    }
+
+    /**
+     * Sends waiting actions while there is room for them.
+     */
+    private static void pump() {
+        final List<Task> ready = new ArrayList<>();
+        final List<Task> expired = new ArrayList<>();
+
+        synchronized (lock) {
+            final long now = System.currentTimeMillis();
+            while (inFlight < MAX_IN_FLIGHT) {
+                Task task = poll(responses, now - RESPONSE_MAX_AGE, expired);
+                if (task == null && responses.isEmpty() && inFlight < COSMETIC_IN_FLIGHT) {
+                    task = poll(cosmetics, now - COSMETIC_MAX_AGE, expired);
+                }
+                if (task == null) {
+                    break;
+                }
+
+                ++inFlight;
+                busyRoutes.add(task.route);
+                ready.add(task);
+            }
+        }
+
+        expired.forEach(Task::drop);
+        ready.forEach(RestDispatcher::send);
+    }
+
+    /**
+     * Takes the oldest action of a lane whose route is free, dropping expired actions on the way.
+     * @param lane Lane to poll.
+     * @param deadline Actions queued before this time are expired.
+     * @param expired Collects the expired actions.
+     * @return Action to send. Null if none can be sent.
+     */
+    @Nullable
+    private static Task poll(@Nonnull final ArrayDeque<Task> lane, final long deadline, @Nonnull final List<Task> expired) {
+        final Iterator<Task> iterator = lane.iterator();
+        while (iterator.hasNext()) {
+            final Task task = iterator.next();
+            if (task.queuedAt < deadline) {
+                iterator.remove();
+                ++dropped[task.priority.ordinal()];
+                expired.add(task);
+            } else if (!busyRoutes.contains(task.route)) {
+                iterator.remove();
+                return task;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Hands an action to JDA.
+     * @param task Action to send.
+     */
+    private static void send(@Nonnull final Task task) {
+        try {
+            task.sender.accept(() -> complete(task));
+        } catch (RuntimeException ex) {
+            complete(task);
+            lgr.warn("Could not queue " + task.priority + " action on route " + task.route + ":", ex);
+            if (task.failure != null) {
+                task.failure.accept(ex); // Callers clean up here, as if the action had failed
+            }
+        }
+    }
+
+    /**
+     * Frees the slot of a finished action and sends the next ones.
+     * @param task Finished action.
+     */
+    private static void complete(@Nonnull final Task task) {
+        synchronized (lock) {
+            if (task.completed) {
+                return;
+            }
+            task.completed = true;
+            --inFlight;
+            if (task.priority != RestPriority.MODERATION) {
+                busyRoutes.remove(task.route);
+            }
+        }
+        pump();
+    }
+
+    @Nonnull
+    private static ArrayDeque<Task> lane(@Nonnull final RestPriority priority) {
+        return (priority == RestPriority.RESPONSE) ? responses : cosmetics;
+    }
+
+    /**
+     * An action waiting to be sent.
+     */
+    private static final class Task {
+        private final RestPriority priority;
+        private final String route;
+        private final Consumer<? super Throwable> failure;
+        private final Consumer<Runnable> sender;
+        private final long queuedAt = System.currentTimeMillis();
+        private boolean completed = false;
+
+        private Task(@Nonnull final RestPriority priority, @Nonnull final String route,
+                     @Nullable final Consumer<? super Throwable> failure, @Nonnull final Consumer<Runnable> sender)
+        {
+            this.priority = priority;
+            this.route = route;
+            this.failure = failure;
+            this.sender = sender;
+        }
+
+        /**
+         * Notifies the failure callback that the action will not be sent.
+         */
+        private void drop() {
+            lgr.debug("Dropped " + priority + " action on route " + route + ".");
+            if (failure != null) {
+                failure.accept(new CancellationException("Dropped under REST pressure."));
+            }
+        }
+    }
+}
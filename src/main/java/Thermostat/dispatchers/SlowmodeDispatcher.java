@@ -0,0 +1,212 @@
+package thermostat.dispatchers;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.TextChannel;
+import net.dv8tion.jda.api.requests.RestAction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import thermostat.Thermostat;
+import thermostat.util.enumeration.RestPriority;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies slowmode changes to channels through one actuator per channel.
+ * Every actuator keeps only the latest requested slowmode, drops changes
+ * that would not change anything, never has more than one request in flight
+ * and spaces the requests out so channel edits stay clear of Discord's rate limits.
+ * @see thermostat.commands.internal.SynapseMonitor
+ */
+public final class SlowmodeDispatcher {
+    /**
+     * Logger for this class.
+     */
+    private static final Logger lgr = LoggerFactory.getLogger(SlowmodeDispatcher.class);
+
+    /**
+     * Minimum time between two changes of a channel's slowmode, in millis.
+     */
+    private static final long MIN_INTERVAL = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * Maximum amount of changes of a channel's slowmode per hour.
+     */
+    private static final int MAX_CHANGES_PER_HOUR = 60;
+
+    /**
+     * Actuators of every channel that has had its slowmode changed.
+     * K: Channel ID -> V: Actuator of channel
+     */
+    private static final Map<String, Actuator> actuators = new ConcurrentHashMap<>();
+
+    /**
+     * Requests a new slowmode for a channel. The change is applied as soon
+     * as the channel's limits allow it, unless a newer request replaces it first.
+     * @param channel Channel to change the slowmode of.
+     * @param slowmode Slowmode to set, in seconds.
+     */
+    public static void request(@Nonnull final TextChannel channel, final int slowmode) {
+        actuators.computeIfAbsent(channel.getId(), id -> new Actuator(channel.getGuild().getId(), id))
+                .request(slowmode);
+    }
+
+    /**
+     * Gives back the slowmode a channel is heading to: the latest requested
+     * slowmode if it has not been applied yet, otherwise the current one.
+     * @param channel Channel to look up.
+     * @return Slowmode of channel, in seconds.
+     */
+    public static int getSlowmode(@Nonnull final TextChannel channel) {
+        Actuator actuator = actuators.get(channel.getId());
+        return (actuator == null) ? channel.getSlowmode() : actuator.getTarget(channel);
+    }
+
+    /**
+     * Removes the actuator of a deleted channel, cancelling pending changes.
+     * @param channelId ID of channel.
+     */
+    public static void forgetChannel(@Nonnull final String channelId) {
+        Actuator actuator = actuators.remove(channelId);
+        if (actuator != null) {
+            actuator.cancel();
+        }
+    }
+
+    /**
+     * Removes the actuators of every channel of a Guild, cancelling pending changes.
+     * @param guildId ID of Guild.
+     */
+    public static void forgetGuild(@Nonnull final String guildId) {
+        actuators.values().removeIf(actuator -> {
+            if (actuator.guildId.equals(guildId)) {
+                actuator.cancel();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Coalescing slowmode actuator of a single channel.
+     */
+    private static final class Actuator {
+        private final String guildId;
+        private final String channelId;
+
+        /**
+         * Latest requested slowmode that has not been sent yet. -1 if none.
+         */
+        private int pending = -1;
+
+        /**
+         * Slowmode of the request in flight. -1 if none.
+         */
+        private int inFlight = -1;
+
+        /**
+         * Times of the latest changes, used as a ring of MAX_CHANGES_PER_HOUR entries.
+         */
+        private final long[] changes = new long[MAX_CHANGES_PER_HOUR];
+        private int changeIndex = 0;
+
+        /**
+         * Scheduled retry while the channel's limits hold a change back.
+         */
+        private ScheduledFuture<?> retry;
+
+        private Actuator(@Nonnull final String guildId, @Nonnull final String channelId) {
+            this.guildId = guildId;
+            this.channelId = channelId;
+        }
+
+        private synchronized void request(final int slowmode) {
+            pending = slowmode;
+            submit();
+        }
+
+        private synchronized int getTarget(@Nonnull final TextChannel channel) {
+            if (pending != -1) {
+                return pending;
+            }
+            return (inFlight != -1) ? inFlight : channel.getSlowmode();
+        }
+
+        private synchronized void cancel() {
+            pending = -1;
+            if (retry != null) {
+                retry.cancel(false);
+                retry = null;
+            }
+        }
+
+        /**
+         * Sends the pending slowmode if nothing is in flight and the limits allow it.
+         */
+        private synchronized void submit() {
+            if (pending == -1 || inFlight != -1 || retry != null) {
+                return; // Picked up once the request in flight or the retry completes
+            }
+
+            final TextChannel channel = getChannel();
+            if (channel == null) {
+                pending = -1;
+                return;
+            }
+
+            if (pending == channel.getSlowmode()) {
+                pending = -1; // No-op change
+                return;
+            }
+
+            final long now = System.currentTimeMillis();
+            final long lastChange = changes[Math.floorMod(changeIndex - 1, changes.length)];
+            final long wait = Math.max(lastChange + MIN_INTERVAL, changes[changeIndex] + TimeUnit.HOURS.toMillis(1)) - now;
+            if (wait > 0) {
+                retry = Thermostat.SCHEDULED_EXECUTOR.schedule(this::retry, wait, TimeUnit.MILLISECONDS);
+                return;
+            }
+
+            // Built before anything is claimed: getManager() throws without MANAGE_CHANNEL
+            final RestAction<Void> action;
+            try {
+                action = channel.getManager().setSlowmode(pending);
+            } catch (RuntimeException ex) {
+                lgr.info("Could not set slowmode of channel " + channelId + ": " + ex.getMessage());
+                pending = -1;
+                return;
+            }
+
+            changes[changeIndex] = now;
+            changeIndex = (changeIndex + 1) % changes.length;
+            inFlight = pending;
+            pending = -1;
+
+            RestDispatcher.queue(RestPriority.MODERATION, "channels/" + channelId, action,
+                    success -> complete(),
+                    failure -> {
+                        lgr.info("Could not set slowmode of channel " + channelId + ": " + failure.getMessage());
+                        complete();
+                    }
+            );
+        }
+
+        private synchronized void retry() {
+            retry = null;
+            submit();
+        }
+
+        private synchronized void complete() {
+            inFlight = -1;
+            submit();
+        }
+
+        private TextChannel getChannel() {
+            Guild guild = Thermostat.thermo.getGuildById(guildId);
+            return (guild == null) ? null : guild.getTextChannelById(channelId);
+        }
+    }
+}
@@ -0,0 +1,695 @@
+package thermostat.dispatchers;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.TextChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import thermostat.Thermostat;
+import thermostat.commands.internal.RaidSwitch;
+import thermostat.commands.internal.SynapseMonitor;
+import thermostat.mySQL.DataSource;
+import thermostat.mySQL.GuildRegistry;
+import thermostat.mySQL.PreparedActions;
+import thermostat.util.Constants;
+import thermostat.util.GuildCache;
+import thermostat.util.entities.ChannelSettings;
+import thermostat.util.entities.MonitoredChannel;
+import thermostat.util.entities.Synapse;
+import thermostat.util.enumeration.SynapseState;
+import thermostat.util.synapse.RateReading;
+import thermostat.util.synapse.SeasonalForecaster;
+import thermostat.util.synapse.TimingWheel;
+
+import javax.annotation.Nonnull;
+import java.lang.invoke.VarHandle;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Hands received messages from the gateway thread over to the Synapses.
+ * The gateway thread only writes a compact (guild, channel, author, time, content) record
+ * into a preallocated ring and returns; Synapse workers drain the rings
+ * and do the actual accounting, including the loading of new Synapses.
+ * Records are partitioned by Guild, so every channel, and every monitored
+ * category whose channels share one state, is always drained by the same
+ * worker and its messages stay in order.
+ * Each worker also owns a timing wheel with one timer per active channel,
+ * which evaluates the channel over time and relaxes it once it goes quiet.
+ * A periodic decay tick disables Synapses that have been idle for long.
+ * Anything else that reads a Synapse's channels runs on its worker too,
+ * see {@link #serialize(Function)}.
+ * @see Synapse
+ */
+public final class SynapseDispatcher {
+    /**
+     * Logger for this class.
+     */
+    private static final Logger lgr = LoggerFactory.getLogger(SynapseDispatcher.class);
+
+    /**
+     * Amount of records each partition can hold. Must be a power of two.
+     */
+    private static final int PARTITION_CAPACITY = 4096;
+
+    /**
+     * Times an idle worker spins before it parks until the next tick of its
+     * timing wheel, or until a record or task for it comes in.
+     */
+    private static final int IDLE_SPINS = 100;
+
+    /**
+     * Time to wait for the Synapse workers to stop or to serialize their Synapses, in seconds.
+     */
+    private static final long SHUTDOWN_TIMEOUT = 5;
+
+    /**
+     * Period of the decay tick, in seconds.
+     */
+    private static final long DECAY_PERIOD = 30;
+
+    /**
+     * Period of the persistence of the channels' baselines, in minutes.
+     */
+    private static final long BASELINE_PERIOD = 10;
+
+    /**
+     * Length of a tick of the timing wheels, in millis.
+     */
+    private static final long WHEEL_TICK_MILLIS = 250;
+
+    /**
+     * Amount of slots of the timing wheels. A rotation spans 64 seconds.
+     */
+    private static final int WHEEL_SIZE = 256;
+
+    /**
+     * Period of a channel's timer, in millis.
+     */
+    private static final long CHANNEL_TIMER_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * Time without messages after which a channel's slowmode starts relaxing, in millis.
+     */
+    private static final long CHANNEL_IDLE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Minimum time between two relaxations of a channel's slowmode, in millis.
+     */
+    private static final long RELAX_PERIOD_MILLIS = TimeUnit.SECONDS.toMillis(DECAY_PERIOD);
+
+    /**
+     * Time without messages after which a Synapse is disabled, in millis.
+     */
+    private static final long SYNAPSE_IDLE_MILLIS = TimeUnit.MINUTES.toMillis(15);
+
+    /**
+     * Ring partitions, one per Synapse worker.
+     */
+    private static final Partition[] partitions;
+
+    /**
+     * Threads that drain the partitions. Kept apart from the Command
+     * workers, since the drainers never give their threads back.
+     */
+    private static final ExecutorService SYNAPSE_EXECUTOR;
+
+    /**
+     * Thread that writes the channels' baselines to the database, so the
+     * batches never hold up a thread of the shared scheduler.
+     */
+    private static final ScheduledExecutorService BASELINE_EXECUTOR;
+
+    /**
+     * Drop counter value at the time of the last report.
+     */
+    private static long reportedDrops = 0;
+
+    static {
+        partitions = new Partition[Math.max(Constants.AVAILABLE_CORES / 2, 1)];
+
+        SYNAPSE_EXECUTOR = Executors.newFixedThreadPool(partitions.length, new ThreadFactory() {
+            private int counter = 1;
+
+            @Override
+            public Thread newThread(@Nonnull final Runnable r) {
+                Thread thread = new Thread(r, "Synapse-" + counter++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        for (int index = 0; index < partitions.length; ++index) {
+            partitions[index] = new Partition(PARTITION_CAPACITY);
+            SYNAPSE_EXECUTOR.submit(partitions[index]);
+        }
+
+        Thermostat.SCHEDULED_EXECUTOR.scheduleWithFixedDelay(SynapseDispatcher::reportDrops, 1, 1, TimeUnit.MINUTES);
+        Thermostat.SCHEDULED_EXECUTOR.scheduleWithFixedDelay(SynapseDispatcher::decay, DECAY_PERIOD, DECAY_PERIOD, TimeUnit.SECONDS);
+        BASELINE_EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Synapse-Baselines");
+            thread.setDaemon(true);
+            return thread;
+        });
+        BASELINE_EXECUTOR.scheduleWithFixedDelay(SynapseDispatcher::persistBaselines,
+                BASELINE_PERIOD, BASELINE_PERIOD, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Queues a received message for its Guild's Synapse.
+     * Never blocks: if the Guild's partition is full the record is dropped.
+     * Must only be called from the gateway thread, which is the single
+     * producer of every partition.
+     * @param guildId ID of the message's Guild.
+     * @param channelId ID of the message's channel.
+     * @param authorId ID of the message's author.
+     * @param messageTime Creation time of message, in epoch millis.
+     * @param content Raw content of the message.
+     * @return False if the record was dropped.
+     */
+    public static boolean offer(final long guildId, final long channelId, final long authorId,
+                                final long messageTime, @Nonnull final String content)
+    {
+        return partitions[partitionOf(guildId)].offer(guildId, channelId, authorId, messageTime, content);
+    }
+
+    /**
+     * @return Amount of records waiting in every partition.
+     */
+    public static long getDepth() {
+        long depth = 0;
+        for (final Partition partition : partitions) {
+            depth += partition.depth();
+        }
+        return depth;
+    }
+
+    /**
+     * @return Amount of records every partition can hold.
+     */
+    public static long getCapacity() {
+        return (long) partitions.length * PARTITION_CAPACITY;
+    }
+
+    /**
+     * @return Amount of records dropped because their partition was full, since startup.
+     */
+    public static long getDropped() {
+        long dropped = 0;
+        for (final Partition partition : partitions) {
+            dropped += partition.dropped.get();
+        }
+        return dropped;
+    }
+
+    /**
+     * Stops the Synapse workers and waits for them to finish what they are
+     * accounting. Records still in the rings are discarded.
+     */
+    public static void shutdown() {
+        BASELINE_EXECUTOR.shutdown();
+        SYNAPSE_EXECUTOR.shutdownNow();
+        try {
+            if (!SYNAPSE_EXECUTOR.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+                lgr.warn("Synapse workers did not stop in time.");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Serializes every loaded Synapse on the worker that owns its Guild, so the
+     * serializer never reads a window or a baseline while the worker updates it.
+     * Once the workers are stopped, the Synapses are serialized on the calling thread.
+     * @param serializer Serializes one Synapse. Synapses it returns null for are left out.
+     * @param <T> Serialized form of a Synapse.
+     * @return K: Guild ID -> V: Serialized Synapse
+     * @throws IllegalStateException If a worker did not serialize its Synapses in time.
+     */
+    @Nonnull
+    public static <T> Map<String, T> serialize(@Nonnull final Function<Synapse, T> serializer) {
+        final Map<String, T> serialized = new ConcurrentHashMap<>();
+        if (SYNAPSE_EXECUTOR.isTerminated()) {
+            for (final Synapse synapse : GuildCache.getLoadedSynapses()) {
+                serializeInto(serialized, serializer, synapse);
+            }
+            return serialized;
+        }
+
+        final CompletableFuture<?>[] done = new CompletableFuture<?>[partitions.length];
+        for (int index = 0; index < partitions.length; ++index) {
+            final int partition = index;
+            final CompletableFuture<Void> future = new CompletableFuture<>();
+            done[index] = future;
+            partitions[index].submit(() -> {
+                try {
+                    for (final Synapse synapse : GuildCache.getLoadedSynapses()) {
+                        if (partitionOf(Long.parseUnsignedLong(synapse.getGuildId())) == partition) {
+                            serializeInto(serialized, serializer, synapse);
+                        }
+                    }
+                    future.complete(null);
+                } catch (RuntimeException ex) {
+                    future.completeExceptionally(ex);
+                }
+            });
+        }
+
+        try {
+            CompletableFuture.allOf(done).get(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while serializing the Synapses.", ex);
+        } catch (ExecutionException | TimeoutException ex) {
+            throw new IllegalStateException("Synapse workers could not serialize their Synapses.", ex);
+        }
+        return serialized;
+    }
+
+    /**
+     * @param serialized Map to put the serialized Synapse in.
+     * @param serializer Serializes one Synapse.
+     * @param synapse Synapse to serialize.
+     */
+    private static <T> void serializeInto(@Nonnull final Map<String, T> serialized,
+                                          @Nonnull final Function<Synapse, T> serializer, @Nonnull final Synapse synapse)
+    {
+        final T value = serializer.apply(synapse);
+        if (value != null) {
+            serialized.put(synapse.getGuildId(), value);
+        }
+    }
+
+    /**
+     * Writes the baselines that changed since the last run to the database,
+     * so restarts do not reset what the channels have learned.
+     * The changes are taken by the Synapse workers, and written by the calling thread.
+     */
+    public static void persistBaselines() {
+        final Map<String, Map<String, byte[]>> changes;
+        try {
+            changes = serialize(synapse -> {
+                final Map<String, byte[]> baselines = synapse.takeBaselineChanges();
+                return baselines.isEmpty() ? null : baselines;
+            });
+        } catch (IllegalStateException ex) {
+            lgr.warn("Could not take the changed baselines:", ex);
+            return;
+        }
+
+        for (final Map.Entry<String, Map<String, byte[]>> guild : changes.entrySet()) {
+            try {
+                GuildRegistry.flush(guild.getKey());
+                DataSource.demand(conn -> {
+                    PreparedActions.saveBaselines(conn, guild.getValue());
+                    return null;
+                });
+            } catch (SQLException ex) {
+                lgr.warn("Could not persist the baselines of Guild " + guild.getKey() + ":", ex);
+            }
+        }
+    }
+
+    /**
+     * Logs the records dropped since the last report, if any.
+     */
+    private static void reportDrops() {
+        long dropped = getDropped();
+        if (dropped != reportedDrops) {
+            lgr.warn("Synapse ingest dropped " + (dropped - reportedDrops) + " messages in the last minute. " +
+                    "Depth: " + getDepth() + "/" + getCapacity());
+            reportedDrops = dropped;
+        }
+    }
+
+    /**
+     * Periodic pass over the loaded Synapses, ending raids that are over
+     * and disabling the Synapses that have been idle for long.
+     * Channels that have not had a message since their Synapse was loaded have no timer,
+     * so their slowmode is relaxed here instead.
+     * Works only with cached data; it never touches the database.
+     */
+    private static void decay() {
+        if (Thermostat.thermo == null) {
+            return;
+        }
+
+        final long now = System.currentTimeMillis();
+        for (final Synapse synapse : GuildCache.getLoadedSynapses()) {
+            try {
+                decay(synapse, now);
+            } catch (RuntimeException ex) {
+                lgr.error("Decay tick failed for Guild " + synapse.getGuildId() + ":", ex);
+            }
+        }
+    }
+
+    /**
+     * Decay tick for a single Synapse.
+     * @param synapse Synapse to check.
+     * @param now Current time, in epoch millis.
+     */
+    private static void decay(@Nonnull final Synapse synapse, final long now) {
+        if (synapse.getRaidDetector().poll(now)) {
+            new RaidSwitch(synapse, false);
+        }
+
+        for (final MonitoredChannel monitoredChannel : synapse.getMonitoredChannels()) {
+            if (monitoredChannel.getLastMessageTime() == 0) {
+                relax(synapse, monitoredChannel);
+            }
+        }
+
+        if (synapse.getState() == SynapseState.ACTIVE && now - synapse.getLastActivity() >= SYNAPSE_IDLE_MILLIS) {
+            synapse.deactivate();
+            lgr.info("Synapse deactivated due to inactivity. Guild: " + synapse.getGuildId());
+        }
+    }
+
+    /**
+     * Partitions by Guild rather than by channel: the channels of a monitored
+     * category share one monitoring state, which must only have one producer.
+     * @param guildId ID of a Guild.
+     * @return Index of the partition the Guild's records go to.
+     */
+    private static int partitionOf(final long guildId) {
+        // Snowflakes keep their entropy in the high bits, spread them out.
+        long hash = guildId ^ (guildId >>> 22) ^ (guildId >>> 42);
+        return (int) Long.remainderUnsigned(hash, partitions.length);
+    }
+
+    /**
+     * Adds a drained record to its Guild's Synapse, and starts the channel's
+     * timer if it has none. Runs on a Synapse worker, so loading a new Synapse
+     * never blocks the gateway.
+     * @param wheel Timing wheel of the worker.
+     */
+    private static void account(@Nonnull final TimingWheel wheel, final long guildId,
+                                final long channelId, final long authorId, final long messageTime,
+                                @Nonnull final String content)
+    {
+        final String channel = Long.toUnsignedString(channelId);
+        final Synapse synapse = GuildCache.getSynapse(Long.toUnsignedString(guildId));
+
+        if (synapse.getState() == SynapseState.INACTIVE && synapse.getUnit(channel) != null) {
+            synapse.setState(SynapseState.ACTIVE);
+            lgr.info("Synapse reactivated! Guild: " + synapse.getGuildId());
+        }
+
+        final MonitoredChannel monitoredChannel = synapse.addMessage(channel, authorId, messageTime, content);
+        if (monitoredChannel != null && monitoredChannel.getTimer() == null) {
+            arm(wheel, synapse, monitoredChannel, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Schedules the next run of a channel's timer.
+     * @param wheel Timing wheel of the channel's worker.
+     * @param synapse Synapse of the channel.
+     * @param monitoredChannel Channel to schedule.
+     * @param now Current time, in epoch millis.
+     */
+    private static void arm(@Nonnull final TimingWheel wheel, @Nonnull final Synapse synapse,
+                            @Nonnull final MonitoredChannel monitoredChannel, final long now)
+    {
+        monitoredChannel.setTimer(wheel.schedule(now + CHANNEL_TIMER_MILLIS,
+                () -> expire(wheel, synapse, monitoredChannel)));
+    }
+
+    /**
+     * Timer of a channel. Lets the channel's estimator evaluate it over time and
+     * relaxes its slowmode once it has gone quiet, since a quiet channel will not
+     * ask for a SynapseMonitor by itself. The timer keeps running until the channel
+     * has been quiet for as long as it takes to disable a Synapse; the next message
+     * starts it again. Channels with forecasting enabled keep their timer running,
+     * so a forecast peak can raise their slowmode before its first message.
+     * Runs on the channel's worker, like its messages.
+     */
+    private static void expire(@Nonnull final TimingWheel wheel, @Nonnull final Synapse synapse,
+                               @Nonnull final MonitoredChannel monitoredChannel)
+    {
+        monitoredChannel.setTimer(null);
+        if (synapse.getMonitoredChannel(monitoredChannel.getChannelId()) != monitoredChannel) {
+            return; // Unmonitored channel
+        }
+
+        final long now = System.currentTimeMillis();
+        final boolean active = synapse.getState() != SynapseState.INACTIVE;
+        boolean forecasting = false;
+        try {
+            forecasting = forecast(synapse, monitoredChannel, now);
+            if (active) {
+                final RateReading reading = monitoredChannel.poll(now);
+                if (reading != null) {
+                    new SynapseMonitor(synapse, monitoredChannel, reading);
+                }
+
+                if (now - monitoredChannel.getLastMessageTime() >= CHANNEL_IDLE_MILLIS
+                        && now - monitoredChannel.getRelaxedAt() >= RELAX_PERIOD_MILLIS) {
+                    monitoredChannel.setRelaxedAt(now);
+                    relax(synapse, monitoredChannel);
+                }
+            }
+        } catch (RuntimeException ex) {
+            lgr.error("Timer failed for channel " + monitoredChannel.getChannelId() + ":", ex);
+        }
+
+        if (forecasting || (active && now - monitoredChannel.getLastMessageTime() < SYNAPSE_IDLE_MILLIS)) {
+            arm(wheel, synapse, monitoredChannel, now);
+        }
+    }
+
+    /**
+     * Closes the elapsed hours of a channel's forecaster and, if the channel has
+     * forecasting enabled, raises its slowmode to the floor of an upcoming peak.
+     * The floor is lowered again by the channel's controller and relaxations once the peak is over.
+     * @param synapse Synapse of the channel.
+     * @param monitoredChannel Channel to forecast.
+     * @param now Current time, in epoch millis.
+     * @return Whether the channel's forecasts are in use.
+     */
+    private static boolean forecast(@Nonnull final Synapse synapse, @Nonnull final MonitoredChannel monitoredChannel,
+                                    final long now)
+    {
+        final SeasonalForecaster forecaster = monitoredChannel.getForecaster();
+        forecaster.advance(now);
+
+        final List<TextChannel> channels = getTextChannels(synapse, monitoredChannel);
+        if (channels.isEmpty()) {
+            return false; // Deleted channel or left Guild, let the timer run out
+        }
+
+        final ChannelSettings settings = GuildCache.getChannelSettings(synapse.getGuildId(), monitoredChannel.getChannelId());
+        if (!settings.forecast || !forecaster.isReady()) {
+            return false;
+        }
+
+        final int floor = forecaster.getFloor(now, settings);
+        if (floor > settings.min) {
+            SynapseMonitor.holdFloor(channels, floor);
+        }
+        return true;
+    }
+
+    /**
+     * Relaxes the slowmode of a quiet channel.
+     * @param synapse Synapse of the channel.
+     * @param monitoredChannel Channel to relax.
+     */
+    private static void relax(@Nonnull final Synapse synapse, @Nonnull final MonitoredChannel monitoredChannel) {
+        final List<TextChannel> channels = getTextChannels(synapse, monitoredChannel);
+        if (!channels.isEmpty()) {
+            SynapseMonitor.relaxSlowmode(synapse, monitoredChannel, channels);
+        }
+    }
+
+    /**
+     * @param synapse Synapse of the channel.
+     * @param monitoredChannel Monitoring state of the channel or category.
+     * @return The channels it covers. Empty if they or their Guild are not available.
+     */
+    @Nonnull
+    private static List<TextChannel> getTextChannels(@Nonnull final Synapse synapse,
+                                                     @Nonnull final MonitoredChannel monitoredChannel)
+    {
+        if (Thermostat.thermo == null) {
+            return Collections.emptyList();
+        }
+        final Guild guild = Thermostat.thermo.getGuildById(synapse.getGuildId());
+        return (guild == null) ? Collections.emptyList() : synapse.getTextChannels(guild, monitoredChannel);
+    }
+
+    /**
+     * Single-producer/single-consumer ring of message records.
+     * Records live in preallocated parallel arrays, so the producer
+     * never allocates; the sequences are published with ordered writes.
+     * The consumer also owns the timing wheel of the partition's channels.
+     */
+    private static final class Partition implements Runnable {
+        private final long[] guildIds;
+        private final long[] channelIds;
+        private final long[] authorIds;
+        private final long[] messageTimes;
+        private final String[] contents;
+        private final int mask;
+
+        /**
+         * Timers of the partition's channels. Owned by the consumer.
+         */
+        private final TimingWheel wheel = new TimingWheel(WHEEL_TICK_MILLIS, WHEEL_SIZE, System.currentTimeMillis());
+
+        /**
+         * Tasks that must run on the consumer, between two batches of records.
+         */
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        /**
+         * Thread of the consumer, to unpark it.
+         */
+        private volatile Thread consumer;
+
+        /**
+         * Whether the consumer is about to park or parked.
+         */
+        private volatile boolean parked = false;
+
+        /**
+         * Next sequence the consumer will read.
+         */
+        private final AtomicLong head = new AtomicLong();
+
+        /**
+         * Next sequence the producer will write.
+         */
+        private final AtomicLong tail = new AtomicLong();
+
+        /**
+         * Records dropped because the ring was full.
+         */
+        private final AtomicLong dropped = new AtomicLong();
+
+        private Partition(final int capacity) {
+            this.guildIds = new long[capacity];
+            this.channelIds = new long[capacity];
+            this.authorIds = new long[capacity];
+            this.messageTimes = new long[capacity];
+            this.contents = new String[capacity];
+            this.mask = capacity - 1;
+        }
+
+        private boolean offer(final long guildId, final long channelId, final long authorId,
+                              final long messageTime, final String content)
+        {
+            final long sequence = tail.get();
+            if (sequence - head.get() > mask) {
+                dropped.lazySet(dropped.get() + 1); // Only the producer writes this counter
+                return false;
+            }
+
+            final int slot = (int) sequence & mask;
+            guildIds[slot] = guildId;
+            channelIds[slot] = channelId;
+            authorIds[slot] = authorId;
+            messageTimes[slot] = messageTime;
+            contents[slot] = content;
+            tail.lazySet(sequence + 1); // Publish the record
+            wake();
+            return true;
+        }
+
+        /**
+         * Queues a task for the consumer.
+         * @param task Task to run between two batches of records. Must not throw.
+         */
+        private void submit(@Nonnull final Runnable task) {
+            tasks.add(task);
+            wake();
+        }
+
+        /**
+         * Unparks the consumer if it parked. The consumer raises its flag before
+         * it checks for records and tasks a last time, so either it sees the new
+         * one or it gets unparked.
+         */
+        private void wake() {
+            VarHandle.fullFence(); // Orders the publication before the read of the flag
+            if (parked) {
+                LockSupport.unpark(consumer);
+            }
+        }
+
+        private long depth() {
+            return Math.max(tail.get() - head.get(), 0);
+        }
+
+        @Override
+        public void run() {
+            consumer = Thread.currentThread();
+            int idle = 0;
+            while (!Thread.currentThread().isInterrupted()) {
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run(); // Never throws, the tasks handle their own failures
+                }
+
+                final long now = System.currentTimeMillis();
+                if (now >= wheel.getNextTick()) {
+                    try {
+                        wheel.advance(now); // Fires the due timers as one batch
+                    } catch (RuntimeException ex) {
+                        lgr.error(Thread.currentThread().getName() + " encountered a runtime exception:", ex);
+                    }
+                }
+
+                long sequence = head.get();
+                final long available = tail.get();
+
+                if (sequence == available) {
+                    if (++idle < IDLE_SPINS) {
+                        Thread.onSpinWait();
+                    } else {
+                        parked = true;
+                        if (tail.get() == available && tasks.isEmpty()) {
+                            final long untilTick = wheel.getNextTick() - System.currentTimeMillis();
+                            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(Math.max(untilTick, 1)));
+                        }
+                        parked = false;
+                    }
+                    continue;
+                }
+
+                idle = 0;
+                for (; sequence < available; ++sequence) {
+                    final int slot = (int) sequence & mask;
+                    final long guildId = guildIds[slot], channelId = channelIds[slot],
+                            authorId = authorIds[slot], messageTime = messageTimes[slot];
+                    final String content = contents[slot];
+                    contents[slot] = null; // Let the content be collected
+                    head.lazySet(sequence + 1); // Release the slot before the slow part
+
+                    try {
+                        account(wheel, guildId, channelId, authorId, messageTime, content);
+                    } catch (RuntimeException ex) {
+                        lgr.error(Thread.currentThread().getName() + " encountered a runtime exception:", ex);
+                    }
+                }
+            }
+        }
+    }
+}
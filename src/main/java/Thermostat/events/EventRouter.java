@@ -0,0 +1,152 @@
+package thermostat.events;
+
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.events.ReadyEvent;
+import net.dv8tion.jda.api.events.channel.category.CategoryDeleteEvent;
+import net.dv8tion.jda.api.events.channel.text.TextChannelCreateEvent;
+import net.dv8tion.jda.api.events.channel.text.TextChannelDeleteEvent;
+import net.dv8tion.jda.api.events.channel.text.update.TextChannelUpdateParentEvent;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.guild.UnavailableGuildLeaveEvent;
+import net.dv8tion.jda.api.events.message.guild.GuildMessageDeleteEvent;
+import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
+import net.dv8tion.jda.api.events.message.guild.react.GuildMessageReactionAddEvent;
+import net.dv8tion.jda.api.hooks.IEventManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import thermostat.dispatchers.MenuDispatcher;
+
+import javax.annotation.Nonnull;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Event manager that hands every JDA event straight to the one
+ * component that handles its type, instead of offering each event
+ * to every registered listener.
+ */
+public final class EventRouter implements IEventManager {
+    /**
+     * Logger for this class.
+     */
+    private static final Logger lgr = LoggerFactory.getLogger(EventRouter.class);
+
+    /**
+     * Every registered listener, as reported to JDA.
+     */
+    private final List<Object> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile Ready ready;
+    private volatile MessagePipeline messagePipeline;
+    private volatile MenuDispatcher menuDispatcher;
+    private volatile SynapseEvents synapseEvents;
+
+    /**
+     * Registers one of Thermostat's event handlers.
+     * @param listener Handler to register.
+     * @throws IllegalArgumentException If the handler is not one the router knows how to route to.
+     */
+    @Override
+    public void register(@Nonnull final Object listener) {
+        if (listener instanceof Ready) {
+            ready = (Ready) listener;
+        } else if (listener instanceof MessagePipeline) {
+            messagePipeline = (MessagePipeline) listener;
+        } else if (listener instanceof MenuDispatcher) {
+            menuDispatcher = (MenuDispatcher) listener;
+        } else if (listener instanceof SynapseEvents) {
+            synapseEvents = (SynapseEvents) listener;
+        } else {
+            throw new IllegalArgumentException("Listener " + listener.getClass().getName() + " cannot be routed.");
+        }
+        listeners.add(listener);
+    }
+
+    @Override
+    public void unregister(@Nonnull final Object listener) {
+        if (listener == ready) {
+            ready = null;
+        } else if (listener == messagePipeline) {
+            messagePipeline = null;
+        } else if (listener == menuDispatcher) {
+            menuDispatcher = null;
+        } else if (listener == synapseEvents) {
+            synapseEvents = null;
+        }
+        listeners.remove(listener);
+    }
+
+    /**
+     * Routes an event to its handler. Events that no handler
+     * is interested in are dropped right away.
+     * @param event Event to route.
+     */
+    @Override
+    public void handle(@Nonnull final GenericEvent event) {
+        try {
+            if (event instanceof GuildMessageReceivedEvent) {
+                final MessagePipeline pipeline = messagePipeline;
+                if (pipeline != null) {
+                    pipeline.handle((GuildMessageReceivedEvent) event);
+                }
+            } else if (event instanceof GuildMessageReactionAddEvent) {
+                final MenuDispatcher dispatcher = menuDispatcher;
+                if (dispatcher != null) {
+                    dispatcher.onGuildMessageReactionAdd((GuildMessageReactionAddEvent) event);
+                }
+            } else if (event instanceof GuildMessageDeleteEvent) {
+                final MenuDispatcher dispatcher = menuDispatcher;
+                if (dispatcher != null) {
+                    dispatcher.onGuildMessageDelete((GuildMessageDeleteEvent) event);
+                }
+            } else if (event instanceof TextChannelDeleteEvent) {
+                final SynapseEvents events = synapseEvents;
+                if (events != null) {
+                    events.onTextChannelDelete((TextChannelDeleteEvent) event);
+                }
+            } else if (event instanceof TextChannelCreateEvent) {
+                final SynapseEvents events = synapseEvents;
+                if (events != null) {
+                    events.onTextChannelCreate((TextChannelCreateEvent) event);
+                }
+            } else if (event instanceof TextChannelUpdateParentEvent) {
+                final SynapseEvents events = synapseEvents;
+                if (events != null) {
+                    events.onTextChannelUpdateParent((TextChannelUpdateParentEvent) event);
+                }
+            } else if (event instanceof CategoryDeleteEvent) {
+                final SynapseEvents events = synapseEvents;
+                if (events != null) {
+                    events.onCategoryDelete((CategoryDeleteEvent) event);
+                }
+            } else if (event instanceof GuildLeaveEvent) {
+                final SynapseEvents events = synapseEvents;
+                if (events != null) {
+                    events.onGuildLeave((GuildLeaveEvent) event);
+                }
+            } else if (event instanceof UnavailableGuildLeaveEvent) {
+                final SynapseEvents events = synapseEvents;
+                if (events != null) {
+                    events.onUnavailableGuildLeave((UnavailableGuildLeaveEvent) event);
+                }
+            } else if (event instanceof ReadyEvent) {
+                final Ready readyListener = ready;
+                if (readyListener != null) {
+                    readyListener.onReady((ReadyEvent) event);
+                }
+            }
+        } catch (Throwable throwable) {
+            lgr.error("An event handler had an uncaught exception:", throwable);
+            if (throwable instanceof Error) {
+                throw (Error) throwable;
+            }
+        }
+    }
+
+    @Nonnull
+    @Override
+    public List<Object> getRegisteredListeners() {
+        return Collections.unmodifiableList(listeners);
+    }
+}
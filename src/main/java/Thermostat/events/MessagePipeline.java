@@ -0,0 +1,67 @@
+package thermostat.events;
+
+import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
+import thermostat.commands.CommandTrigger;
+import thermostat.commands.internal.WordFilter;
+import thermostat.dispatchers.SynapseDispatcher;
+import thermostat.mySQL.GuildRegistry;
+import thermostat.util.ArgumentParser;
+import thermostat.util.CommandLookup;
+import thermostat.util.GuildCache;
+import thermostat.util.MiscellaneousFunctions;
+import thermostat.util.entities.CachedGuild;
+import thermostat.util.entities.ChannelSettings;
+import thermostat.util.enumeration.CommandType;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Handles every GuildMessageReceivedEvent in a single pass:
+ * hand-off to the Synapses, validation, database registry,
+ * word filter and command detection.
+ * @see EventRouter
+ */
+public final class MessagePipeline {
+    /**
+     * Run a received message through the pipeline.
+     * @param event Event that contains sent message.
+     */
+    public void handle(@Nonnull final GuildMessageReceivedEvent event) {
+        // #1 - Every message counts towards the channel's activity.
+        SynapseDispatcher.offer(event.getGuild().getIdLong(), event.getChannel().getIdLong(),
+                event.getAuthor().getIdLong(), MiscellaneousFunctions.getCreationMillis(event.getMessageIdLong()),
+                event.getMessage().getContentRaw());
+
+        // #2 - If the event is invalid or the member is a bot, go no further.
+        if (!ArgumentParser.validateEvent(event)) {
+            return;
+        }
+
+        final String guildId = event.getGuild().getId();
+        final String channelId = event.getChannel().getId();
+
+        // #3 - Queue unknown Guilds/Channels for the database & run the Word Filter.
+        GuildRegistry.register(event.getGuild(), guildId, channelId);
+        final CachedGuild guild = GuildCache.get(guildId);
+        final ChannelSettings settings = guild.getChannelSettings(guildId, channelId);
+        if (settings.filtered) {
+            new WordFilter(event);
+        }
+
+        // #4 - Drop messages that do not initiate a Command before anything is built for them.
+        final String content = event.getMessage().getContentRaw();
+        final CommandLookup lookup = GuildCache.getCommandLookup(guildId);
+        final CommandType type = lookup.match(content);
+        if (type == null) {
+            return;
+        }
+
+        // #5 - Prep arguments, without the initialization that was matched.
+        ArrayList<String> arguments = new ArrayList<>(Arrays.asList(content.split("\\s+")));
+        ArgumentParser.removeInit(arguments);
+
+        CommandTrigger.forwardCommand(type, event, arguments, lookup.getPrefix()); // Create the command and queue it
+    }
+}
@@ -8,7 +8,6 @@ import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import thermostat.Thermostat;
-import thermostat.commands.CommandTrigger;
 import thermostat.commands.internal.WordFilter;
 import thermostat.dispatchers.MenuDispatcher;
 
@@ -44,7 +43,7 @@ public class Ready extends ListenerAdapter {
             initializeDefaultFiles("niceWords.txt", "badWords.txt");
 
             thermo.addEventListener(
-                    new CommandTrigger(),
+                    new MessagePipeline(),
                     new MenuDispatcher(),
                     new SynapseEvents()
             );
@@ -1,53 +1,67 @@
 package thermostat.events;
 
+import net.dv8tion.jda.api.entities.Category;
+import net.dv8tion.jda.api.events.channel.category.CategoryDeleteEvent;
+import net.dv8tion.jda.api.events.channel.text.TextChannelCreateEvent;
 import net.dv8tion.jda.api.events.channel.text.TextChannelDeleteEvent;
+import net.dv8tion.jda.api.events.channel.text.update.TextChannelUpdateParentEvent;
 import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
 import net.dv8tion.jda.api.events.guild.UnavailableGuildLeaveEvent;
-import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import org.jetbrains.annotations.NotNull;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import thermostat.dispatchers.SlowmodeDispatcher;
+import thermostat.mySQL.GuildRegistry;
 import thermostat.mySQL.PreparedActions;
 import thermostat.util.GuildCache;
-import thermostat.util.entities.Synapse;
-import thermostat.util.enumeration.SynapseState;
 
 /**
  * Manages all JDA Events that relate to Synapses.
+ * Messages are accounted for by the MessagePipeline.
+ * @see MessagePipeline
  */
 public class SynapseEvents extends ListenerAdapter {
     /**
-     * Logger for SynapseEvents.
+     * If a TextChannel is deleted from a Guild, it will be removed from the
+     * Synapse's monitored channels cache.
      */
-    private static final Logger lgr = LoggerFactory.getLogger(SynapseEvents.class);
+    @Override
+    public void onTextChannelDelete(@NotNull TextChannelDeleteEvent event) {
+        GuildCache.getSynapse(event.getGuild().getId()).removeChannel(event.getChannel().getId());
+        GuildCache.removeChannelSettings(event.getGuild().getId(), event.getChannel().getId());
+        GuildRegistry.forgetChannel(event.getChannel().getId());
+        SlowmodeDispatcher.forgetChannel(event.getChannel().getId());
+    }
 
     /**
-     * Lazy-loader for Synapses that is tied to a GuildMessageReceivedEvent.
-     *
-     * @param event Event that contains the ID of the Guild that
-     *              the Synapse will be initialized on.
+     * A TextChannel created in a monitored category is covered by it right away.
      */
     @Override
-    public void onGuildMessageReceived(@NotNull GuildMessageReceivedEvent event) {
-        Synapse synapse = GuildCache.getSynapse(event.getGuild().getId());
-
-        // Re-activate Synapse if it was disabled due to inactivity.
-        if (synapse.getState() == SynapseState.INACTIVE && synapse.getChannels().contains(event.getChannel().getId())) {
-            synapse.setState(SynapseState.ACTIVE);
-            lgr.info("Synapse reactivated! Guild: " + event.getGuild().getName());
+    public void onTextChannelCreate(@NotNull TextChannelCreateEvent event) {
+        Category parent = event.getChannel().getParent();
+        if (parent != null) {
+            GuildCache.getSynapse(event.getGuild().getId()).moveChannel(event.getChannel().getId(), parent.getId());
         }
+    }
 
-        synapse.addMessage(event.getChannel().getId(), event.getMessage().getTimeCreated());
+    /**
+     * A TextChannel moved between categories follows its new category.
+     */
+    @Override
+    public void onTextChannelUpdateParent(@NotNull TextChannelUpdateParentEvent event) {
+        Category parent = event.getNewParent();
+        GuildCache.getSynapse(event.getGuild().getId())
+                .moveChannel(event.getChannel().getId(), (parent == null) ? null : parent.getId());
     }
 
     /**
-     * If a TextChannel is deleted from a Guild, it will be removed from the
+     * If a monitored category is deleted from a Guild, it will be removed from the
      * Synapse's monitored channels cache.
      */
     @Override
-    public void onTextChannelDelete(@NotNull TextChannelDeleteEvent event) {
-        GuildCache.getSynapse(event.getGuild().getId()).removeChannel(event.getChannel().getId());
+    public void onCategoryDelete(@NotNull CategoryDeleteEvent event) {
+        GuildCache.getSynapse(event.getGuild().getId()).removeChannel(event.getCategory().getId());
+        GuildCache.removeChannelSettings(event.getGuild().getId(), event.getCategory().getId());
+        GuildRegistry.forgetChannel(event.getCategory().getId());
     }
 
     /**
@@ -56,6 +70,8 @@ public class SynapseEvents extends ListenerAdapter {
     @Override
     public void onGuildLeave(@NotNull GuildLeaveEvent event) {
         GuildCache.expungeGuild(event.getGuild().getId());
+        GuildRegistry.forgetGuild(event.getGuild().getId());
+        SlowmodeDispatcher.forgetGuild(event.getGuild().getId());
         PreparedActions.deleteGuild(event.getGuild().getId());
     }
 
@@ -65,5 +81,7 @@ public class SynapseEvents extends ListenerAdapter {
     @Override
     public void onUnavailableGuildLeave(@NotNull UnavailableGuildLeaveEvent event) {
         GuildCache.expungeGuild(event.getGuildId());
+        GuildRegistry.forgetGuild(event.getGuildId());
+        SlowmodeDispatcher.forgetGuild(event.getGuildId());
     }
 }
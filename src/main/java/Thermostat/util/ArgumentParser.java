@@ -4,7 +4,6 @@ import net.dv8tion.jda.api.entities.Category;
 import net.dv8tion.jda.api.entities.TextChannel;
 import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
 import thermostat.util.entities.CommandArguments;
-import thermostat.util.enumeration.CommandType;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -108,6 +107,10 @@ public class ArgumentParser {
                     for (TextChannel it : TextChannels) {
                         newArgs.add(0, it.getId());
                     }
+                    // a category monitored as a whole has a settings row of its own
+                    if (isMonitoredCategory(channelContainer)) {
+                        newArgs.add(channelContainer.getId());
+                    }
                 }
 
                 // removes element from arguments if it's not a valid channel ID
@@ -122,6 +125,49 @@ public class ArgumentParser {
         return new CommandArguments(nonValid, noText, newArgs);
     }
 
+    /**
+     * Parses the channel argument of a command that acts on whole categories.
+     * @param eventChannel Channel where the command was called. Its category
+     *                     is the target if no arguments were given.
+     * @param rawCategories List of arguments
+     * @return a list of target category IDs, along with
+     * the arguments that were not categories.
+     */
+    @Nonnull
+    public static CommandArguments parseCategoryArgument(@Nonnull final TextChannel eventChannel, final List<String> rawCategories) {
+        ArrayList<String> newArgs = new ArrayList<>();
+        StringBuilder nonValid = new StringBuilder(), noText = new StringBuilder();
+
+        if (!hasArguments(rawCategories)) {
+            Category parent = eventChannel.getParent();
+            if (parent == null) {
+                nonValid.append("<#").append(eventChannel.getId()).append("> ");
+            } else {
+                newArgs.add(parent.getId());
+            }
+            return new CommandArguments(nonValid, noText, newArgs);
+        }
+
+        for (final String argument : rawCategories) {
+            Category category = eventChannel.getGuild().getCategoryById(parseMention(argument, "#"));
+            if (category == null) {
+                nonValid.append("\"").append(argument).append("\" ");
+            } else {
+                newArgs.add(category.getId());
+            }
+        }
+
+        return new CommandArguments(nonValid, noText, newArgs);
+    }
+
+    /**
+     * @param category Category to check.
+     * @return Whether the category is monitored as a single unit.
+     */
+    private static boolean isMonitoredCategory(@Nonnull final Category category) {
+        return GuildCache.getSynapse(category.getGuild().getId()).getMonitoredChannel(category.getId()) != null;
+    }
+
     /**
      * A function that's used to grab IDs from Discord message mentions.
      *
@@ -229,41 +275,16 @@ public class ArgumentParser {
     }
 
     /**
-     * Matches the initialization of a Command with a CommandType alias, and returns the CommandType.
+     * Removes the initialization of a Command from its arguments, once it
+     * has been matched by {@link CommandLookup#match(String)}.
      * @param arguments Arguments provided by the user.
-     * @param prefix Prefix of the Guild.
-     * @return Type of Command. Null if type could not be matched.
      */
-    @Nullable
-    public static CommandType getCommandByInit(final List<String> arguments, final String prefix) {
-        final String initPrefix = arguments.get(0); // First init: Initialization with a prefix. (th!cmd)
-        String initMention = null;
-        if (arguments.size() > 1) {
-            initMention = arguments.get(0).concat(arguments.get(1)); // Second init: Initialization by mention. (@Thermostat cmd)
-        }
-
-        // Check if @Thermostat was called without a command
-        if (arguments.size() == 1 && arguments.get(0).equalsIgnoreCase("<@!" + Constants.THERMOSTAT_USER_ID + ">")) {
-            return CommandType.GUIDE;
-        }
-
-        for (final CommandType t : CommandType.class.getEnumConstants()) {
-            if (initPrefix.equalsIgnoreCase(prefix + t.alias1) ||
-                    initPrefix.equalsIgnoreCase(prefix + t.alias2))
-            {
-                arguments.remove(0); // Remove the initialization to use in a command.
-                return t; // Return the command type if there is a match
-            }
-
-            if (initMention != null) {  // Do not proceed if there is less than two arguments.
-                if (initMention.equalsIgnoreCase("<@!" + Constants.THERMOSTAT_USER_ID + ">" + t.alias1) ||
-                        initMention.equalsIgnoreCase("<@!" + Constants.THERMOSTAT_USER_ID + ">" + t.alias2))
-                {
-                    arguments.subList(0, 2).clear(); // Remove the initialization to use in a command.
-                    return t; // Return command type if there is a match
-                }
-            }
+    public static void removeInit(final List<String> arguments) {
+        // Initialization by mention (@Thermostat cmd) spans two arguments, the one with a prefix (th!cmd) one.
+        if (CommandLookup.isMention(arguments.get(0))) {
+            arguments.subList(0, Math.min(2, arguments.size())).clear();
+        } else {
+            arguments.remove(0);
         }
-        return null; // Could not match type.
     }
 }
@@ -0,0 +1,578 @@
+package thermostat.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import thermostat.Thermostat;
+import thermostat.dispatchers.SynapseDispatcher;
+import thermostat.mySQL.GuildRegistry;
+import thermostat.util.entities.CachedGuild;
+import thermostat.util.entities.ChannelSettings;
+import thermostat.util.entities.MonitoredChannel;
+import thermostat.util.entities.Synapse;
+import thermostat.util.enumeration.ControllerType;
+import thermostat.util.enumeration.EstimatorType;
+import thermostat.util.synapse.RaidDetector;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Warm-restart snapshot of the Guild cache. The Synapses (with their
+ * windows, baselines and forecasts), channel settings, prefixes and known
+ * Guilds/Channels are written to a memory-mapped file on shutdown and
+ * periodically, and put back on startup before the gateway connects,
+ * so a redeploy does not turn into a wave of database round trips.
+ * The Synapses are serialized by their own workers, see {@link SynapseDispatcher#serialize}.
+ * A snapshot that is too old, of another version or does not match
+ * its checksum is ignored whole, and the cache fills up lazily as before.
+ */
+public final class CacheSnapshot {
+    /**
+     * Logger for this class.
+     */
+    private static final Logger lgr = LoggerFactory.getLogger(CacheSnapshot.class);
+
+    /**
+     * File the snapshot is kept in.
+     */
+    private static final Path SNAPSHOT_FILE = Paths.get("thermostat.snapshot");
+
+    /**
+     * "THSN", marks the file as a snapshot.
+     */
+    private static final int MAGIC = 0x5448534E;
+
+    /**
+     * Version of the layout. Snapshots of any other version are ignored.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Magic, version, write time, payload length and checksum.
+     */
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + Long.BYTES + 2 * Integer.BYTES;
+
+    /**
+     * Age after which a snapshot is stale, in millis. By then the windows no
+     * longer describe the channels, and the settings may have changed elsewhere.
+     */
+    private static final long MAX_AGE = TimeUnit.MINUTES.toMillis(15);
+
+    /**
+     * Windows whose latest message is older than this are not written, in millis.
+     * Their estimator would discard them anyway.
+     */
+    private static final long WINDOW_MAX_AGE = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Period between two snapshots, in minutes.
+     */
+    private static final long SNAPSHOT_PERIOD = 5;
+
+    /**
+     * Initial size of the mapping the snapshot is written to, in bytes. Doubled until the snapshot fits.
+     */
+    private static final int INITIAL_BYTES = 1 << 20;
+
+    /**
+     * Initial size of the buffer a Synapse is serialized to, in bytes. Doubled until the Synapse fits.
+     */
+    private static final int SYNAPSE_BYTES = 1 << 12;
+
+    /**
+     * Size of the latest snapshot, in bytes, so the next one is usually mapped right the first time.
+     */
+    private static int lastBytes = INITIAL_BYTES;
+
+    /**
+     * Whether the snapshot was restored on startup. Until then nothing is
+     * written, so a failed startup never replaces a usable snapshot with an empty one.
+     */
+    private static volatile boolean started = false;
+
+    /**
+     * Writes a snapshot of the cache. The snapshot is mapped into a temporary file
+     * that replaces the previous snapshot once it is complete, so a crash while
+     * writing never leaves a half-written snapshot behind.
+     */
+    public static synchronized void write() {
+        if (!started) {
+            return;
+        }
+
+        try {
+            write(SNAPSHOT_FILE);
+        } catch (IOException | RuntimeException ex) {
+            // Never let the exception escape, it would cancel the scheduled snapshots.
+            lgr.warn("Could not write cache snapshot:", ex);
+        }
+    }
+
+    /**
+     * Puts back the cache from the latest snapshot, if there is a usable one,
+     * and starts the periodic snapshots. Must be called on startup, before the gateway connects.
+     */
+    public static void restore() {
+        try {
+            read();
+        } finally {
+            started = true;
+            Thermostat.SCHEDULED_EXECUTOR.scheduleWithFixedDelay(CacheSnapshot::write,
+                    SNAPSHOT_PERIOD, SNAPSHOT_PERIOD, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Reads the latest snapshot and publishes its entries, if it is usable.
+     */
+    private static void read() {
+        if (!Files.exists(SNAPSHOT_FILE)) {
+            lgr.info("No cache snapshot found, starting cold.");
+            return;
+        }
+        read(SNAPSHOT_FILE);
+    }
+
+    /**
+     * Writes a snapshot of the cache to a file, through a temporary file next to it.
+     * @param file File to write the snapshot to.
+     * @throws IOException If the file cannot be written.
+     */
+    static void write(@Nonnull final Path file) throws IOException {
+        final long start = System.nanoTime();
+        final long now = System.currentTimeMillis();
+        final Map<String, byte[]> synapses = SynapseDispatcher.serialize(synapse -> toBytes(synapse, now));
+        final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        int bytes = lastBytes;
+        while (true) {
+            try {
+                final int written = write(temp, bytes, synapses);
+                lastBytes = Math.max(INITIAL_BYTES, written);
+                break;
+            } catch (BufferOverflowException ex) {
+                if (bytes > Integer.MAX_VALUE / 2) {
+                    throw new IOException("Snapshot does not fit in a single mapping.");
+                }
+                bytes *= 2;
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        lgr.debug("Wrote cache snapshot of " + lastBytes + " bytes in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms.");
+    }
+
+    /**
+     * Reads a snapshot and publishes its entries, if it is usable.
+     * @param file File the snapshot is in.
+     * @return Whether the entries were published.
+     */
+    static boolean read(@Nonnull final Path file) {
+        final long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                lgr.warn("Ignoring cache snapshot: Unexpected size of " + channel.size() + " bytes.");
+                return false;
+            }
+
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            final String problem = check(buffer, System.currentTimeMillis());
+            if (problem != null) {
+                lgr.warn("Ignoring cache snapshot: " + problem);
+                return false;
+            }
+
+            final Restored restored = read(buffer);
+            GuildRegistry.restore(restored.knownGuilds, restored.knownChannels);
+            for (final RestoredGuild guild : restored.guilds) {
+                GuildCache.restore(guild.guildId, guild.prefix, guild.settings, guild.synapse);
+            }
+            lgr.info("Restored " + restored.guilds.size() + " Guild(s) and " + restored.channels + " channel(s) from the cache snapshot in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms.");
+            return true;
+        } catch (IOException | RuntimeException ex) {
+            // Nothing was published, the cache fills up from the database instead.
+            lgr.warn("Ignoring unreadable cache snapshot:", ex);
+            return false;
+        }
+    }
+
+    /**
+     * Maps the temporary file and writes a snapshot to it.
+     * @param temp Temporary file.
+     * @param bytes Size of the mapping, in bytes.
+     * @param synapses K: Guild ID -> V: Serialized Synapse
+     * @return Size of the snapshot, in bytes.
+     * @throws BufferOverflowException If the snapshot does not fit in the mapping.
+     * @throws IOException If the file cannot be written.
+     */
+    private static int write(@Nonnull final Path temp, final int bytes, @Nonnull final Map<String, byte[]> synapses)
+            throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            buffer.position(HEADER_BYTES);
+            writePayload(buffer, synapses);
+            final int end = buffer.position();
+
+            final CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().position(HEADER_BYTES).limit(end));
+            buffer.position(0);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis())
+                    .putInt(end - HEADER_BYTES).putInt((int) crc.getValue());
+            buffer.force();
+            channel.truncate(end);
+            return end;
+        }
+    }
+
+    /**
+     * Writes the known Guilds/Channels and every cached Guild.
+     * @param buffer Buffer to write to.
+     * @param synapses K: Guild ID -> V: Serialized Synapse
+     */
+    private static void writePayload(@Nonnull final ByteBuffer buffer, @Nonnull final Map<String, byte[]> synapses) {
+        final Set<String> guilds = new HashSet<>(), channels = new HashSet<>();
+        GuildRegistry.getWritten(guilds, channels);
+        putIds(buffer, guilds);
+        putIds(buffer, channels);
+
+        final Map<String, CachedGuild> cached = new HashMap<>(GuildCache.getCachedGuilds());
+        buffer.putInt(cached.size());
+        for (final Map.Entry<String, CachedGuild> entry : cached.entrySet()) {
+            buffer.putLong(Long.parseUnsignedLong(entry.getKey()));
+            putString(buffer, entry.getValue().getPrefix());
+            putSettings(buffer, entry.getValue().getLoadedChannelSettings());
+
+            final byte[] synapse = synapses.get(entry.getKey());
+            if (synapse == null) {
+                buffer.put((byte) 0);
+            } else {
+                buffer.put((byte) 1);
+                buffer.put(synapse);
+            }
+        }
+    }
+
+    /**
+     * Serializes a Synapse. Runs on the Synapse's worker.
+     * @param synapse Synapse of a Guild.
+     * @param now Current time, in epoch millis.
+     * @return The Synapse, laid out as in the snapshot.
+     */
+    @Nonnull
+    private static byte[] toBytes(@Nonnull final Synapse synapse, final long now) {
+        ByteBuffer buffer = ByteBuffer.allocate(SYNAPSE_BYTES);
+        while (true) {
+            try {
+                putSynapse(buffer, synapse, now);
+                return Arrays.copyOf(buffer.array(), buffer.position());
+            } catch (BufferOverflowException ex) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+            }
+        }
+    }
+
+    /**
+     * @param buffer Buffer to write to.
+     * @param settings Settings of every channel of a Guild. Null if they were not loaded.
+     */
+    private static void putSettings(@Nonnull final ByteBuffer buffer, @Nullable final Map<String, ChannelSettings> settings) {
+        if (settings == null) {
+            buffer.putInt(-1);
+            return;
+        }
+
+        final Map<String, ChannelSettings> copy = new HashMap<>(settings);
+        buffer.putInt(copy.size());
+        for (final Map.Entry<String, ChannelSettings> entry : copy.entrySet()) {
+            final ChannelSettings value = entry.getValue();
+            buffer.putLong(Long.parseUnsignedLong(entry.getKey()));
+            buffer.putInt(value.min).putInt(value.max).putFloat(value.sensOffset);
+            buffer.put((byte) ((value.monitored ? 1 : 0) | (value.filtered ? 2 : 0) | (value.forecast ? 4 : 0)));
+            buffer.put((byte) value.controller.ordinal());
+        }
+    }
+
+    /**
+     * @param buffer Buffer to write to.
+     * @param synapse Synapse of a Guild.
+     * @param now Current time, in epoch millis.
+     */
+    private static void putSynapse(@Nonnull final ByteBuffer buffer, @Nonnull final Synapse synapse, final long now) {
+        buffer.putInt(synapse.getMinCachingSize()).putInt(synapse.getMaxCachingSize());
+        buffer.put((byte) synapse.getEstimator().ordinal());
+        final RaidDetector detector = synapse.getRaidDetector();
+        buffer.putDouble(detector.isWarm() ? detector.getBaseline() : -1); // Negative: not learned yet
+
+        final List<MonitoredChannel> units = new ArrayList<>(synapse.getMonitoredChannels());
+        buffer.putInt(units.size());
+        for (final MonitoredChannel unit : units) {
+            buffer.putLong(Long.parseUnsignedLong(unit.getChannelId()));
+            buffer.put((byte) (unit.isCategory() ? 1 : 0));
+            buffer.putInt(unit.getCapacity());
+            putBytes(buffer, (unit.getBaseline().getSketch().getTotal() > 0) ? unit.getBaseline().getSketch().toBytes() : null);
+            putBytes(buffer, unit.getForecaster().toBytes());
+
+            final long[] messages = (now - unit.getLastMessageTime() < WINDOW_MAX_AGE)
+                    ? unit.getEstimator().getRecentMessages() : new long[0];
+            buffer.putInt(messages.length);
+            for (final long message : messages) {
+                buffer.putLong(message);
+            }
+        }
+
+        final Map<String, MonitoredChannel> members = new HashMap<>(synapse.getCategoryMembers());
+        buffer.putInt(members.size());
+        for (final Map.Entry<String, MonitoredChannel> entry : members.entrySet()) {
+            buffer.putLong(Long.parseUnsignedLong(entry.getKey()));
+            buffer.putLong(Long.parseUnsignedLong(entry.getValue().getChannelId()));
+        }
+    }
+
+    /**
+     * Validates the header and checksum of a snapshot.
+     * @param buffer Mapped snapshot.
+     * @param now Current time, in epoch millis.
+     * @return Why the snapshot cannot be used. Null if it can.
+     */
+    @Nullable
+    private static String check(@Nonnull final ByteBuffer buffer, final long now) {
+        if (buffer.getInt() != MAGIC) {
+            return "Not a snapshot.";
+        }
+        final int version = buffer.getInt();
+        if (version != VERSION) {
+            return "Version " + version + " does not match version " + VERSION + ".";
+        }
+        final long writtenAt = buffer.getLong();
+        if (writtenAt > now || now - writtenAt > MAX_AGE) {
+            return "Stale, written " + TimeUnit.MILLISECONDS.toSeconds(now - writtenAt) + "s ago.";
+        }
+        final int length = buffer.getInt();
+        if (length != buffer.capacity() - HEADER_BYTES) {
+            return "Truncated.";
+        }
+
+        final int expected = buffer.getInt();
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate());
+        if ((int) crc.getValue() != expected) {
+            return "Checksum mismatch.";
+        }
+        return null;
+    }
+
+    /**
+     * Reads every entry of a snapshot, without publishing any of them.
+     * @param buffer Mapped snapshot, positioned after its header.
+     * @return The entries of the snapshot.
+     * @throws RuntimeException If the snapshot is malformed.
+     */
+    @Nonnull
+    private static Restored read(@Nonnull final ByteBuffer buffer) {
+        final Restored restored = new Restored();
+        restored.knownGuilds = getIds(buffer);
+        restored.knownChannels = getIds(buffer);
+
+        final int guilds = getCount(buffer);
+        for (int index = 0; index < guilds; ++index) {
+            final RestoredGuild guild = new RestoredGuild();
+            guild.guildId = Long.toUnsignedString(buffer.getLong());
+            guild.prefix = getString(buffer);
+            guild.settings = getSettings(buffer);
+            guild.synapse = getSynapse(buffer, guild.guildId);
+            if (guild.synapse != null) {
+                restored.channels += guild.synapse.getMonitoredChannels().size();
+            }
+            restored.guilds.add(guild);
+        }
+
+        if (buffer.hasRemaining()) {
+            throw new IllegalStateException("Trailing data after the last Guild.");
+        }
+        return restored;
+    }
+
+    /**
+     * @param buffer Buffer to read from.
+     * @return Settings of every channel of a Guild. Null if they were not loaded.
+     */
+    @Nullable
+    private static Map<String, ChannelSettings> getSettings(@Nonnull final ByteBuffer buffer) {
+        final int count = buffer.getInt();
+        if (count == -1) {
+            return null;
+        }
+
+        final ControllerType[] controllers = ControllerType.values();
+        final Map<String, ChannelSettings> settings = new HashMap<>();
+        for (int index = 0; index < checkCount(buffer, count); ++index) {
+            final String channelId = Long.toUnsignedString(buffer.getLong());
+            final int min = buffer.getInt(), max = buffer.getInt();
+            final float sensOffset = buffer.getFloat();
+            final byte flags = buffer.get();
+            final ControllerType controller = controllers[buffer.get()];
+            settings.put(channelId, new ChannelSettings(min, max, sensOffset, (flags & 1) != 0, (flags & 2) != 0,
+                    controller, (flags & 4) != 0));
+        }
+        return settings;
+    }
+
+    /**
+     * @param buffer Buffer to read from.
+     * @param guildId ID of the Synapse's Guild.
+     * @return Restored Synapse. Null if it was not loaded.
+     */
+    @Nullable
+    private static Synapse getSynapse(@Nonnull final ByteBuffer buffer, @Nonnull final String guildId) {
+        if (buffer.get() == 0) {
+            return null;
+        }
+
+        final int minCachingSize = buffer.getInt(), maxCachingSize = buffer.getInt();
+        final EstimatorType estimatorType = EstimatorType.values()[buffer.get()];
+        if (minCachingSize < 1 || maxCachingSize < minCachingSize) {
+            throw new IllegalStateException("Invalid caching size of Guild " + guildId + ".");
+        }
+
+        final Synapse synapse = new Synapse(guildId, minCachingSize, maxCachingSize, estimatorType);
+        synapse.getRaidDetector().setBaseline(buffer.getDouble());
+
+        final int units = getCount(buffer);
+        for (int index = 0; index < units; ++index) {
+            final String channelId = Long.toUnsignedString(buffer.getLong());
+            final boolean category = buffer.get() != 0;
+            final int capacity = buffer.getInt();
+            final byte[] baseline = getBytes(buffer);
+            final byte[] forecast = getBytes(buffer);
+            final long[] messages = new long[getCount(buffer)];
+            for (int message = 0; message < messages.length; ++message) {
+                messages[message] = buffer.getLong();
+            }
+
+            final MonitoredChannel unit = new MonitoredChannel(channelId, category, minCachingSize, maxCachingSize,
+                    estimatorType, baseline);
+            unit.restore(capacity, forecast, messages);
+            synapse.restoreChannel(unit);
+        }
+
+        final int members = getCount(buffer);
+        for (int index = 0; index < members; ++index) {
+            final String channelId = Long.toUnsignedString(buffer.getLong());
+            synapse.moveChannel(channelId, Long.toUnsignedString(buffer.getLong()));
+        }
+        return synapse;
+    }
+
+    private static void putIds(@Nonnull final ByteBuffer buffer, @Nonnull final Set<String> ids) {
+        buffer.putInt(ids.size());
+        for (final String id : ids) {
+            buffer.putLong(Long.parseUnsignedLong(id));
+        }
+    }
+
+    @Nonnull
+    private static List<String> getIds(@Nonnull final ByteBuffer buffer) {
+        final int count = getCount(buffer);
+        final List<String> ids = new ArrayList<>(count);
+        for (int index = 0; index < count; ++index) {
+            ids.add(Long.toUnsignedString(buffer.getLong()));
+        }
+        return ids;
+    }
+
+    private static void putString(@Nonnull final ByteBuffer buffer, @Nullable final String value) {
+        putBytes(buffer, (value == null) ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Nullable
+    private static String getString(@Nonnull final ByteBuffer buffer) {
+        final byte[] bytes = getBytes(buffer);
+        return (bytes == null) ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putBytes(@Nonnull final ByteBuffer buffer, @Nullable final byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    @Nullable
+    private static byte[] getBytes(@Nonnull final ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length == -1) {
+            return null;
+        }
+        final byte[] bytes = new byte[checkCount(buffer, length)];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * @param buffer Buffer to read from.
+     * @return A count read from the buffer.
+     */
+    private static int getCount(@Nonnull final ByteBuffer buffer) {
+        return checkCount(buffer, buffer.getInt());
+    }
+
+    /**
+     * Rejects counts that cannot be right, so a corrupt snapshot fails fast
+     * instead of allocating huge arrays.
+     * @param buffer Buffer the count was read from.
+     * @param count Count to check.
+     * @return The count.
+     */
+    private static int checkCount(@Nonnull final ByteBuffer buffer, final int count) {
+        if (count < 0 || count > buffer.remaining()) {
+            throw new IllegalStateException("Invalid count " + count + " at offset " + buffer.position() + ".");
+        }
+        return count;
+    }
+
+    /**
+     * Entries of a snapshot, read whole before any of them is published.
+     */
+    private static final class Restored {
+        private List<String> knownGuilds;
+        private List<String> knownChannels;
+        private final List<RestoredGuild> guilds = new ArrayList<>();
+        private int channels = 0;
+    }
+
+    /**
+     * A cached Guild of a snapshot.
+     */
+    private static final class RestoredGuild {
+        private String guildId;
+        private String prefix;
+        private Map<String, ChannelSettings> settings;
+        private Synapse synapse;
+    }
+}
@@ -0,0 +1,214 @@
+package thermostat.util;
+
+import thermostat.util.enumeration.CommandType;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Precompiled, case-insensitive lookup of Command aliases for one prefix.
+ * Aliases are kept in a trie that is shared by every prefix, so resolving
+ * a Command costs one step per character of the alias, no matter how many
+ * Commands there are, and never builds a String.
+ * @see GuildCache
+ */
+public final class CommandLookup {
+    /**
+     * Node of the alias trie.
+     */
+    private static final class Node {
+        private final Node[] children = new Node[128];
+        private CommandType type;
+    }
+
+    /**
+     * Root of the alias trie, built once from every CommandType.
+     */
+    private static final Node root = new Node();
+
+    static {
+        for (final CommandType type : CommandType.values()) {
+            insert(type.alias1, type);
+            insert(type.alias2, type);
+        }
+    }
+
+    /**
+     * The prefix this lookup resolves Commands for.
+     */
+    private final String prefix;
+
+    /**
+     * Create a new lookup for a Guild's prefix.
+     * @param prefix Prefix of the Guild.
+     */
+    public CommandLookup(@Nonnull final String prefix) {
+        this.prefix = prefix;
+    }
+
+    /**
+     * @return The prefix this lookup resolves Commands for.
+     */
+    @Nonnull
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Resolves a Command that was initiated with the prefix. (th!cmd)
+     * @param token First token of a message.
+     * @return Type of Command. Null if the token is not a prefixed alias.
+     */
+    @Nullable
+    public CommandType resolvePrefixed(@Nonnull final String token) {
+        if (!token.regionMatches(true, 0, prefix, 0, prefix.length())) {
+            return null;
+        }
+        return resolve(token, prefix.length(), token.length());
+    }
+
+    /**
+     * Resolves a bare alias, used after a mention. (@Thermostat cmd)
+     * @param token Token to resolve.
+     * @return Type of Command. Null if the token is not an alias.
+     */
+    @Nullable
+    public CommandType resolveAlias(@Nonnull final String token) {
+        return resolve(token, 0, token.length());
+    }
+
+    /**
+     * Matches the raw content of a message against this lookup, with plain
+     * character comparisons only. Used to drop messages that are not Commands
+     * before they get tokenized.
+     * @param content Raw content of a message.
+     * @return Type of Command. Null if the message does not initiate a Command.
+     */
+    @Nullable
+    public CommandType match(@Nonnull final String content) {
+        // First init: Initialization with a prefix. (th!cmd)
+        if (content.regionMatches(true, 0, prefix, 0, prefix.length())) {
+            CommandType type = resolve(content, prefix.length(), tokenEnd(content, prefix.length()));
+            if (type != null) {
+                return type;
+            }
+        }
+
+        // Second init: Initialization by mention. (@Thermostat cmd)
+        int mentionLength = mentionLength(content);
+        if (mentionLength == -1 || tokenEnd(content, mentionLength) != mentionLength) {
+            return null;
+        }
+
+        int start = mentionLength;
+        while (start < content.length() && isWhitespace(content.charAt(start))) {
+            ++start;
+        }
+
+        // Check if @Thermostat was called without a command
+        if (start == content.length()) {
+            return CommandType.GUIDE;
+        }
+        return resolve(content, start, tokenEnd(content, start));
+    }
+
+    /**
+     * Checks whether a token is a mention of Thermostat.
+     * Both the nickname (<@!id>) and plain (<@id>) forms match.
+     * @param token Token to check.
+     * @return True if the token mentions Thermostat.
+     */
+    public static boolean isMention(@Nonnull final String token) {
+        return mentionLength(token) == token.length();
+    }
+
+    /**
+     * @param sequence Sequence to check.
+     * @return Length of the mention of Thermostat that the sequence starts with.
+     * -1 if it does not start with one.
+     */
+    private static int mentionLength(@Nonnull final CharSequence sequence) {
+        final String id = Constants.THERMOSTAT_USER_ID;
+        int start = (sequence.length() > 2 && sequence.charAt(2) == '!') ? 3 : 2;
+        int end = start + id.length();
+
+        if (sequence.length() <= end || sequence.charAt(0) != '<' || sequence.charAt(1) != '@'
+                || sequence.charAt(end) != '>')
+        {
+            return -1;
+        }
+
+        for (int index = 0; index < id.length(); ++index) {
+            if (sequence.charAt(start + index) != id.charAt(index)) {
+                return -1;
+            }
+        }
+        return end + 1;
+    }
+
+    /**
+     * @param sequence Sequence to look in.
+     * @param start Index the token starts at.
+     * @return Index right after the last character of the token.
+     */
+    private static int tokenEnd(@Nonnull final CharSequence sequence, final int start) {
+        int end = start;
+        while (end < sequence.length() && !isWhitespace(sequence.charAt(end))) {
+            ++end;
+        }
+        return end;
+    }
+
+    /**
+     * Same set of characters as the "\\s" regex class that splits arguments.
+     * @param c Character to check.
+     * @return True if the character separates tokens.
+     */
+    private static boolean isWhitespace(final char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Walks the alias trie over a region of a character sequence.
+     * @param sequence Sequence that contains the alias.
+     * @param start Start of the alias (inclusive).
+     * @param end End of the alias (exclusive).
+     * @return Type of Command. Null if the region is not an alias.
+     */
+    @Nullable
+    public static CommandType resolve(@Nonnull final CharSequence sequence, final int start, final int end) {
+        Node node = root;
+        for (int index = start; index < end && node != null; ++index) {
+            char c = sequence.charAt(index);
+            if (c >= 128) {
+                return null;
+            }
+            node = node.children[Character.toLowerCase(c)];
+        }
+        return (node == null) ? null : node.type;
+    }
+
+    /**
+     * Adds an alias to the trie. The first CommandType to claim an alias keeps it.
+     * @param alias Alias to add.
+     * @param type Type of Command that the alias resolves to.
+     */
+    private static void insert(@Nullable final String alias, @Nonnull final CommandType type) {
+        if (alias == null) { // Internal Commands cannot be initiated.
+            return;
+        }
+
+        Node node = root;
+        for (int index = 0; index < alias.length(); ++index) {
+            char c = Character.toLowerCase(alias.charAt(index));
+            if (node.children[c] == null) {
+                node.children[c] = new Node();
+            }
+            node = node.children[c];
+        }
+
+        if (node.type == null) {
+            node.type = type;
+        }
+    }
+}
@@ -11,7 +11,8 @@ public final class Constants {
     public static String DEFAULT_PREFIX;
     public static String THERMOSTAT_USER_ID;
     public static String THERMOSTAT_AVATAR_URL;
-    public static final int DEFAULT_CACHING_SIZE = 10;
+    public static final int MIN_CACHING_SIZE = 5;
+    public static final int MAX_CACHING_SIZE = 100;
     public static final int AVAILABLE_CORES = Math.max(Runtime.getRuntime().availableProcessors(), 2);
 
     /**
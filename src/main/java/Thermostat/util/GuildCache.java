@@ -3,13 +3,21 @@ package thermostat.util;
 import club.minnced.discord.webhook.WebhookClient;
 import thermostat.mySQL.DataSource;
 import thermostat.util.entities.CachedGuild;
+import thermostat.util.entities.ChannelSettings;
 import thermostat.util.entities.Synapse;
+import thermostat.util.enumeration.EstimatorType;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
 
 /**
  * A cache utility class that stores
@@ -21,26 +29,44 @@ public class GuildCache {
      * The HashMap where CachedGuilds are stored.
      * K: Guild ID -> V: Cached Guild Data
      */
-    private static final Map<String, CachedGuild> cache = new HashMap<>();
+    private static final Map<String, CachedGuild> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Lookups that have been built, shared by every Guild with the same prefix.
+     * K: Prefix -> V: Command lookup for the prefix
+     */
+    private static final Map<String, CommandLookup> lookups = new ConcurrentHashMap<>();
 
     /**
      * Get the prefix of a Guild.
      * If the Guild has not been cached before, it will be cached prior to returning the prefix.
      * @param guildId ID of Guild.
-     * @return Guild's prefix. Null if Guild is not cached.
+     * @return Guild's prefix.
      */
     @Nonnull
     public static String getPrefix(final String guildId) {
-        CachedGuild guild = cache.get(guildId); // Try to retrieve the guild from the cache
-        if (guild == null) { // Guild hasn't been cached.
+        return getCommandLookup(guildId).getPrefix();
+    }
+
+    /**
+     * Get the precompiled Command lookup for the prefix of a Guild.
+     * If the Guild's prefix has not been cached before, it will be cached prior to returning the lookup.
+     * @param guildId ID of Guild.
+     * @return Command lookup for the Guild's prefix.
+     */
+    @Nonnull
+    public static CommandLookup getCommandLookup(final String guildId) {
+        CachedGuild guild = get(guildId); // Retrieve the guild from the cache, caching it if needed
+        CommandLookup lookup = guild.getCommandLookup();
+        if (lookup == null) { // Prefix hasn't been cached.
             String prefix = retrievePrefix(guildId); // Retrieve the prefix of the Guild.
             if (prefix == null) { // If the prefix is not set, use the default prefix.
                 prefix = Constants.DEFAULT_PREFIX;
             }
-            add(guildId, prefix); // Add the Guild to the cache.
-            return prefix; // Return the new/default prefix.
+            lookup = lookups.computeIfAbsent(prefix, CommandLookup::new);
+            guild.setCommandLookup(lookup); // Cache the new/default prefix.
         }
-        return guild.getPrefix(); // Return the Guild's prefix.
+        return lookup;
     }
 
     /**
@@ -50,21 +76,26 @@ public class GuildCache {
      * @param prefix The new prefix to assign.
      */
     public static void assignPrefix(final String guildId, final String prefix) {
-        CachedGuild guild = cache.get(guildId);
-        if (guild == null) {
-            add(guildId, prefix);
-            return;
-        }
-        guild.setPrefix(prefix);
+        get(guildId).setCommandLookup(lookups.computeIfAbsent(prefix, CommandLookup::new));
     }
 
     /**
-     * Set the caching size for a Guild to a new value.
+     * Set the caching size bounds for a Guild to new values.
      * @param guildId Guild's ID.
-     * @param newCachingSize Caching size to change to.
+     * @param minCachingSize Minimum caching size to change to.
+     * @param maxCachingSize Maximum caching size to change to.
      */
-    public static void setCacheSize(final String guildId, final int newCachingSize) {
-        cache.get(guildId).getSynapse(guildId).setMessageCachingSize(newCachingSize);
+    public static void setCacheSize(final String guildId, final int minCachingSize, final int maxCachingSize) {
+        cache.get(guildId).getSynapse(guildId).setMessageCachingSize(minCachingSize, maxCachingSize);
+    }
+
+    /**
+     * Sets the rate estimator of a Guild's Synapse.
+     * @param guildId Guild's ID.
+     * @param type Estimator type to change to.
+     */
+    public static void setEstimator(final String guildId, final EstimatorType type) {
+        getSynapse(guildId).setEstimator(type);
     }
 
     /**
@@ -77,6 +108,100 @@ public class GuildCache {
         return get(guildId).getSynapse(guildId);
     }
 
+    /**
+     * Gives back the Synapses that have been initialized, without initializing any.
+     * @return Every loaded Synapse.
+     */
+    @Nonnull
+    public static List<Synapse> getLoadedSynapses() {
+        List<Synapse> synapses = new ArrayList<>();
+        for (final CachedGuild guild : cache.values()) {
+            Synapse synapse = guild.getLoadedSynapse();
+            if (synapse != null) {
+                synapses.add(synapse);
+            }
+        }
+        return synapses;
+    }
+
+    /**
+     * @return Read-only, live view of every cached Guild.
+     * K: Guild ID -> V: Cached Guild Data
+     */
+    @Nonnull
+    public static Map<String, CachedGuild> getCachedGuilds() {
+        return Collections.unmodifiableMap(cache);
+    }
+
+    /**
+     * Puts back a Guild from a warm-restart snapshot, so it needs no
+     * database round trips after a restart. Entries that have been
+     * loaded meanwhile are kept.
+     * @param guildId ID of Guild.
+     * @param prefix Prefix of the Guild. Null if it was not cached.
+     * @param settings Settings of every channel of the Guild. Null if they were not cached.
+     * @param synapse Restored Synapse of the Guild. Null if it was not loaded.
+     */
+    public static void restore(final String guildId, @Nullable final String prefix,
+                               @Nullable final Map<String, ChannelSettings> settings, @Nullable final Synapse synapse)
+    {
+        CachedGuild guild = get(guildId);
+        if (prefix != null && guild.getCommandLookup() == null) {
+            guild.setCommandLookup(lookups.computeIfAbsent(prefix, CommandLookup::new));
+        }
+        guild.restore(settings, synapse);
+    }
+
+    /**
+     * Get the cached settings of a channel. No database access
+     * is needed once the Guild's settings have been loaded.
+     * @param guildId ID of Guild.
+     * @param channelId ID of channel.
+     * @return Settings snapshot of the channel.
+     */
+    @Nonnull
+    public static ChannelSettings getChannelSettings(final String guildId, final String channelId) {
+        return get(guildId).getChannelSettings(guildId, channelId);
+    }
+
+    /**
+     * Update the cached settings of a channel. Should be called
+     * after the change has been written to the database.
+     * @param guildId ID of Guild.
+     * @param channelId ID of channel.
+     * @param update Function that derives the new settings from the current ones.
+     */
+    public static void updateChannelSettings(final String guildId, final String channelId,
+                                             final UnaryOperator<ChannelSettings> update)
+    {
+        get(guildId).updateChannelSettings(guildId, Collections.singletonList(channelId), update);
+    }
+
+    /**
+     * Update the cached settings of many channels. Should be called
+     * after the change has been written to the database.
+     * @param guildId ID of Guild.
+     * @param channels IDs of channels.
+     * @param update Function that derives the new settings from the current ones.
+     */
+    public static void updateChannelSettings(final String guildId, final Collection<String> channels,
+                                             final UnaryOperator<ChannelSettings> update)
+    {
+        get(guildId).updateChannelSettings(guildId, channels, update);
+    }
+
+    /**
+     * Removes a channel's settings from the cache.
+     * @param guildId ID of Guild.
+     * @param channelId ID of channel.
+     */
+    public static void removeChannelSettings(final String guildId, final String channelId) {
+        CachedGuild guild = cache.get(guildId);
+        if (guild != null) {
+            guild.removeChannelSettings(channelId);
+        }
+    }
+
     /**
      * @param channelId ID of channel to find the WebhookClient for.
      * @param webhookId ID of the Webhook (in case the client hasn't been created).
@@ -90,29 +215,13 @@ public class GuildCache {
         return get(guildId).getClient(channelId, webhookId, webhookToken);
     }
 
-    /**
-     * Puts a Guild in the GuildCache cache.
-     * @param guildId Guild's ID.
-     * @return Newly created CachedGuild object.
-     */
-    @Nonnull
-    private static CachedGuild add(final String guildId, final String guildPrefix) {
-        CachedGuild guildData = new CachedGuild(guildPrefix);
-        cache.put(guildId, guildData);
-        return guildData;
-    }
-
     /**
      * @param guildId Guild's Snowflake ID.
      * @return A Cached Guild, caches one if it isn't cached already.
      */
     @Nonnull
-    private static CachedGuild get(final String guildId) {
-        CachedGuild guild = cache.get(guildId);
-        if (guild == null) {
-            guild = add(guildId, null);
-        }
-        return guild;
+    public static CachedGuild get(final String guildId) {
+        return cache.computeIfAbsent(guildId, k -> new CachedGuild());
     }
 
     /**
@@ -4,6 +4,7 @@ import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.requests.RestAction;
+import net.dv8tion.jda.api.utils.TimeUtil;
 import thermostat.Thermostat;
 import thermostat.commands.Command;
 import thermostat.dispatchers.MenuDispatcher;
@@ -11,8 +12,6 @@ import thermostat.util.enumeration.MenuType;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.time.OffsetDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
@@ -152,20 +151,12 @@ public abstract class MiscellaneousFunctions {
     }
 
     /**
-     * Calculates an average of the delay time between
-     * each message.
-     * @param messageTimes A list containing Discord sent message OffsetDateTimes.
-     * @return A long value, with the average time.
+     * Reads the creation time straight out of a Discord snowflake,
+     * without allocating an OffsetDateTime.
+     * @param snowflake ID of a Discord entity.
+     * @return Creation time of the entity, in epoch millis.
      */
-    public static long calculateAverageTime(List<OffsetDateTime> messageTimes) {
-        long sum = 0;
-
-        if (messageTimes.isEmpty())
-            return 0;
-
-        for (int index = 0; index < messageTimes.size() - 1; ++index) {
-            sum += ChronoUnit.MILLIS.between(messageTimes.get(index + 1), messageTimes.get(index));
-        }
-        return sum / messageTimes.size();
+    public static long getCreationMillis(final long snowflake) {
+        return (snowflake >>> TimeUtil.TIMESTAMP_OFFSET) + TimeUtil.DISCORD_EPOCH;
     }
 }
@@ -1,53 +1,104 @@
 package thermostat.util.entities;
 
 import club.minnced.discord.webhook.WebhookClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import thermostat.mySQL.DataSource;
+import thermostat.mySQL.PreparedActions;
+import thermostat.util.CommandLookup;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.sql.SQLException;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
 
 /**
  * Cache object. Struct-like, merely for storage.
  */
 public class CachedGuild {
+    /**
+     * Logger for this class.
+     */
+    private static final Logger lgr = LoggerFactory.getLogger(CachedGuild.class);
+
+    /**
+     * Time to wait before loading the settings again after a failure, in millis.
+     * Doubles with every further failure, up to {@link #MAX_SETTINGS_RETRY_MILLIS}.
+     */
+    private static final long SETTINGS_RETRY_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    private static final long MAX_SETTINGS_RETRY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
     /**
      * A specific Synapse of a Guild.
      */
-    private Synapse synapse;
+    private volatile Synapse synapse;
 
     /**
-     * The global prefix of a Guild.
+     * Command lookup for the global prefix of a Guild.
+     * Null if the prefix has not been retrieved yet.
      */
-    private String prefix;
+    private volatile CommandLookup commandLookup;
 
     /**
      * Stores Webhook clients for every channel.
      */
     private Map<String, WebhookClient> webhookClients = new HashMap<>();
 
+    /**
+     * Settings snapshots of every channel of the Guild.
+     * Loaded from the database once, on first access.
+     * K: Channel ID -> V: Channel Settings
+     */
+    private volatile Map<String, ChannelSettings> channelSettings = null;
+
+    /**
+     * Earliest time the settings may be loaded again after a failure, in epoch millis.
+     */
+    private volatile long settingsRetryAt = 0;
+
+    /**
+     * Consecutive failures to load the settings. Guarded by this.
+     */
+    private int settingsFailures = 0;
+
     /**
      * Create a new GuildData object for use in the cache.
-     * @param prefix Guild's prefix.
      */
-    public CachedGuild(final String prefix) {
+    public CachedGuild() {
         this.synapse = null;
-        this.prefix = prefix;
+        this.commandLookup = null;
     }
 
     /**
-     * Set a new prefix for the Guild.
-     * @param prefix Guild's prefix.
+     * Set a new Command lookup (and with it, prefix) for the Guild.
+     * @param commandLookup Lookup for the Guild's prefix.
      */
-    public void setPrefix(final String prefix) {
-        this.prefix = prefix;
+    public void setCommandLookup(final CommandLookup commandLookup) {
+        this.commandLookup = commandLookup;
+    }
+
+    /**
+     * Get this Guild's cached Command lookup.
+     * @return This Guild's Command lookup. Null if the prefix is not cached.
+     */
+    @Nullable
+    public CommandLookup getCommandLookup() {
+        return commandLookup;
     }
 
     /**
      * Get this Guild's cached prefix.
-     * @return This Guild's prefix.
+     * @return This Guild's prefix. Null if the prefix is not cached.
      */
+    @Nullable
     public String getPrefix() {
-        return prefix;
+        CommandLookup lookup = commandLookup;
+        return (lookup == null) ? null : lookup.getPrefix();
     }
 
     /**
@@ -56,12 +107,50 @@ public class CachedGuild {
      */
     @Nonnull
     public Synapse getSynapse(final String guildId) {
-        if (this.synapse == null) {
-            this.synapse = new Synapse(guildId);
+        Synapse loaded = this.synapse;
+        if (loaded == null) {
+            synchronized (this) {
+                loaded = this.synapse;
+                if (loaded == null) {
+                    loaded = new Synapse(guildId);
+                    this.synapse = loaded;
+                }
+            }
         }
+        return loaded;
+    }
+
+    /**
+     * @return This Guild's Synapse, or null if it has not been initialized.
+     */
+    @Nullable
+    public Synapse getLoadedSynapse() {
         return this.synapse;
     }
 
+    /**
+     * Fills the cache from a warm-restart snapshot. Entries that
+     * have been loaded meanwhile are kept.
+     * @param settings Settings of every channel of the Guild. Null if they were not cached.
+     * @param synapse Restored Synapse of the Guild. Null if it was not loaded.
+     */
+    public synchronized void restore(@Nullable final Map<String, ChannelSettings> settings, @Nullable final Synapse synapse) {
+        if (this.channelSettings == null && settings != null) {
+            this.channelSettings = new ConcurrentHashMap<>(settings);
+        }
+        if (this.synapse == null && synapse != null) {
+            this.synapse = synapse;
+        }
+    }
+
+    /**
+     * @return Settings of every channel of the Guild, or null if they have not been loaded.
+     */
+    @Nullable
+    public Map<String, ChannelSettings> getLoadedChannelSettings() {
+        return channelSettings;
+    }
+
     /**
      * @param channelId ID of channel to find the WebhookClient for.
      * @param webhookId ID of the Webhook (in case the client hasn't been created).
@@ -84,4 +173,82 @@ public class CachedGuild {
         }
         return client;
     }
+
+    /**
+     * @param guildId ID of this Guild.
+     * @param channelId ID of channel.
+     * @return The current settings snapshot of the channel.
+     */
+    @Nonnull
+    public ChannelSettings getChannelSettings(final String guildId, final String channelId) {
+        ChannelSettings settings = getSettingsMap(guildId).get(channelId);
+        return (settings == null) ? ChannelSettings.DEFAULT : settings;
+    }
+
+    /**
+     * Publishes new settings snapshots for the given channels.
+     * @param guildId ID of this Guild.
+     * @param channels IDs of channels to update.
+     * @param update Function that derives the new snapshot from the current one.
+     */
+    public void updateChannelSettings(final String guildId, final Collection<String> channels,
+                                      final UnaryOperator<ChannelSettings> update)
+    {
+        Map<String, ChannelSettings> settings = getSettingsMap(guildId);
+        for (final String channel : channels) {
+            settings.compute(channel, (k, v) -> update.apply((v == null) ? ChannelSettings.DEFAULT : v));
+        }
+    }
+
+    /**
+     * Drops the settings snapshot of a channel.
+     * @param channelId ID of channel.
+     */
+    public void removeChannelSettings(final String channelId) {
+        Map<String, ChannelSettings> settings = channelSettings;
+        if (settings != null) {
+            settings.remove(channelId);
+        }
+    }
+
+    /**
+     * Get this Guild's channel settings. If they have not been loaded, they get so and then returned.
+     * After a failure to load them, empty settings are returned until the retry time,
+     * so an unreachable database is not queried on every message.
+     * @param guildId ID of this Guild.
+     * @return Map of channel settings.
+     */
+    @Nonnull
+    private Map<String, ChannelSettings> getSettingsMap(final String guildId) {
+        Map<String, ChannelSettings> settings = channelSettings;
+        if (settings == null) {
+            if (System.currentTimeMillis() < settingsRetryAt) {
+                return new ConcurrentHashMap<>();
+            }
+            synchronized (this) {
+                settings = channelSettings;
+                if (settings == null) {
+                    final long now = System.currentTimeMillis();
+                    if (now < settingsRetryAt) {
+                        return new ConcurrentHashMap<>(); // Another thread failed meanwhile
+                    }
+                    try {
+                        settings = new ConcurrentHashMap<>(
+                                DataSource.demand(conn -> PreparedActions.getChannelSettings(conn, guildId))
+                        );
+                        channelSettings = settings;
+                        settingsFailures = 0;
+                    } catch (SQLException ex) {
+                        // Do not cache anything, try again once the backoff is over.
+                        final long backoff = Math.min(SETTINGS_RETRY_MILLIS << Math.min(settingsFailures, 16), MAX_SETTINGS_RETRY_MILLIS);
+                        ++settingsFailures;
+                        settingsRetryAt = now + backoff;
+                        lgr.warn("Could not load channel settings for " + guildId + ", retrying in " + backoff + "ms. Details:", ex);
+                        settings = new ConcurrentHashMap<>();
+                    }
+                }
+            }
+        }
+        return settings;
+    }
 }
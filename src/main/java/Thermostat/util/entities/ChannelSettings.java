@@ -0,0 +1,100 @@
+package thermostat.util.entities;
+
+import thermostat.util.enumeration.ControllerType;
+
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+
+/**
+ * Immutable snapshot of a channel's row in CHANNEL_SETTINGS.
+ * Every change produces a new snapshot, so readers never
+ * need a lock and never see a half-applied update.
+ * @see thermostat.util.GuildCache
+ */
+public final class ChannelSettings {
+    /**
+     * Settings of a channel that has no entry on the database yet.
+     */
+    public static final ChannelSettings DEFAULT = new ChannelSettings(0, 0, 1f, false, false, ControllerType.LADDER, false);
+
+    public final int min;
+    public final int max;
+    public final float sensOffset;
+    public final boolean monitored;
+    public final boolean filtered;
+    public final ControllerType controller;
+    public final boolean forecast;
+
+    public ChannelSettings(int min, int max, float sensOffset, boolean monitored, boolean filtered,
+                           @Nonnull ControllerType controller, boolean forecast)
+    {
+        this.min = min;
+        this.max = max;
+        this.sensOffset = sensOffset;
+        this.monitored = monitored;
+        this.filtered = filtered;
+        this.controller = controller;
+        this.forecast = forecast;
+    }
+
+    /**
+     * @param min New minimum slowmode bound.
+     * @param max New maximum slowmode bound.
+     * @return A copy of these settings with the given bounds.
+     */
+    @Nonnull
+    @CheckReturnValue
+    public ChannelSettings withBounds(final int min, final int max) {
+        return new ChannelSettings(min, max, sensOffset, monitored, filtered, controller, forecast);
+    }
+
+    /**
+     * @param sensOffset New sensitivity offset.
+     * @return A copy of these settings with the given sensitivity.
+     */
+    @Nonnull
+    @CheckReturnValue
+    public ChannelSettings withSensOffset(final float sensOffset) {
+        return new ChannelSettings(min, max, sensOffset, monitored, filtered, controller, forecast);
+    }
+
+    /**
+     * @param monitored Whether the channel is monitored.
+     * @return A copy of these settings with the given monitor value.
+     */
+    @Nonnull
+    @CheckReturnValue
+    public ChannelSettings withMonitored(final boolean monitored) {
+        return new ChannelSettings(min, max, sensOffset, monitored, filtered, controller, forecast);
+    }
+
+    /**
+     * @param filtered Whether the channel is filtered.
+     * @return A copy of these settings with the given filter value.
+     */
+    @Nonnull
+    @CheckReturnValue
+    public ChannelSettings withFiltered(final boolean filtered) {
+        return new ChannelSettings(min, max, sensOffset, monitored, filtered, controller, forecast);
+    }
+
+    /**
+     * @param controller Strategy that decides the slowmode of the channel.
+     * @return A copy of these settings with the given controller.
+     */
+    @Nonnull
+    @CheckReturnValue
+    public ChannelSettings withController(@Nonnull final ControllerType controller) {
+        return new ChannelSettings(min, max, sensOffset, monitored, filtered, controller, forecast);
+    }
+
+    /**
+     * @param forecast Whether forecast peaks raise the channel's slowmode floor.
+     * @return A copy of these settings with the given forecast value.
+     */
+    @Nonnull
+    @CheckReturnValue
+    public ChannelSettings withForecast(final boolean forecast) {
+        return new ChannelSettings(min, max, sensOffset, monitored, filtered, controller, forecast);
+    }
+}
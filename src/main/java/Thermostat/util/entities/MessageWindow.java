@@ -0,0 +1,181 @@
+package thermostat.util.entities;
+
+import thermostat.util.synapse.RateReading;
+
+/**
+ * Fixed-capacity ring buffer of message creation times (epoch millis)
+ * for one monitored channel. Keeps a running sum of the gaps between
+ * consecutive messages, so the average delay is available in O(1).
+ * @see Synapse
+ * @see thermostat.util.synapse.WindowEstimator
+ */
+public class MessageWindow implements RateReading {
+    /**
+     * Creation times of the messages in the window.
+     * Allocated on the first message, so idle channels cost no buffer.
+     */
+    private long[] timestamps;
+
+    /**
+     * Maximum amount of messages the window holds.
+     */
+    private int capacity;
+
+    /**
+     * Index of the oldest message in the buffer.
+     */
+    private int head = 0;
+
+    /**
+     * Amount of messages currently in the window.
+     */
+    private int size = 0;
+
+    /**
+     * Sum of the gaps between every pair of consecutive messages in the window.
+     */
+    private long gapSum = 0;
+
+    /**
+     * Create a new empty window.
+     * @param capacity Maximum amount of messages in the window.
+     */
+    public MessageWindow(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Window capacity must be positive.");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds a message to the window, evicting the oldest one if the window is full.
+     * @param time Creation time of the message, in epoch millis.
+     */
+    public void add(final long time) {
+        if (timestamps == null) {
+            timestamps = new long[capacity];
+        }
+
+        if (size == capacity) {
+            if (size > 1) {
+                gapSum -= timestamps[(head + 1) % capacity] - timestamps[head];
+            }
+            head = (head + 1) % capacity;
+            --size;
+        }
+
+        if (size > 0) {
+            gapSum += time - timestamps[(head + size - 1) % capacity];
+        }
+
+        timestamps[(head + size) % capacity] = time;
+        ++size;
+    }
+
+    /**
+     * Calculates an average of the delay time between
+     * each message, in O(1).
+     * @return A long value, with the average time.
+     */
+    @Override
+    public long getAverageDelay() {
+        if (size == 0) {
+            return 0;
+        }
+        return gapSum / size;
+    }
+
+    /**
+     * @return Creation time of the newest message in the window, in epoch millis. 0 if empty.
+     */
+    public long getLatest() {
+        if (size == 0) {
+            return 0;
+        }
+        return timestamps[(head + size - 1) % capacity];
+    }
+
+    /**
+     * Copies the messages of the window. Safe to call from another thread than
+     * the producer, though the copy may then miss or repeat the newest messages.
+     * @return Creation times of the messages in the window, oldest first, in epoch millis.
+     */
+    public long[] getTimestamps() {
+        final long[] buffer = timestamps;
+        if (buffer == null) {
+            return new long[0];
+        }
+        final int start = head;
+        final long[] copy = new long[Math.min(size, buffer.length)];
+        for (int index = 0; index < copy.length; ++index) {
+            copy[index] = buffer[(start + index) % buffer.length];
+        }
+        return copy;
+    }
+
+    /**
+     * @return Whether the window holds as many messages as its capacity.
+     */
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * @return Amount of messages in the window.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Maximum amount of messages in the window.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Removes every message from the window, keeping its buffer.
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+        gapSum = 0;
+    }
+
+    /**
+     * Removes every message from the window and frees its buffer.
+     */
+    public void release() {
+        clear();
+        timestamps = null;
+    }
+
+    /**
+     * Changes the capacity of the window, keeping the newest messages.
+     * @param newCapacity New maximum amount of messages in the window.
+     */
+    public void resize(final int newCapacity) {
+        if (newCapacity < 1) {
+            throw new IllegalArgumentException("Window capacity must be positive.");
+        }
+
+        if (timestamps == null) {
+            capacity = newCapacity;
+            return;
+        }
+
+        final long[] old = timestamps;
+        final int oldCapacity = capacity, oldHead = head, oldSize = size;
+        final int kept = Math.min(oldSize, newCapacity);
+
+        timestamps = new long[newCapacity];
+        capacity = newCapacity;
+        clear();
+
+        // Re-add the newest messages, oldest first.
+        for (int index = oldSize - kept; index < oldSize; ++index) {
+            add(old[(oldHead + index) % oldCapacity]);
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package thermostat.util.entities;
+
+import thermostat.util.enumeration.ControllerType;
+import thermostat.util.enumeration.EstimatorType;
+import thermostat.util.synapse.ChannelBaseline;
+import thermostat.util.synapse.MessageSampler;
+import thermostat.util.synapse.RateEstimator;
+import thermostat.util.synapse.RateReading;
+import thermostat.util.synapse.SeasonalForecaster;
+import thermostat.util.synapse.SlowmodeController;
+import thermostat.util.synapse.SpaceSaving;
+import thermostat.util.synapse.TimingWheel;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Monitoring state of a single channel of a Synapse, or of a whole
+ * category whose channels share one rate and one settings row.
+ * Messages of a channel are added by one thread only (its Guild's Synapse worker),
+ * which feeds them to the channel's rate estimator. The estimator decides
+ * when the channel is due for an evaluation and hands a reading over to
+ * the evaluator, so adding a message never waits on an evaluation.
+ * The channel also keeps a sketch of its heaviest senders, which is
+ * snapshotted and reset whenever the channel is due for an evaluation,
+ * and a seasonal forecast of its hourly message counts.
+ * The amount of messages the estimator spans is fitted to the channel's
+ * rate, within the Guild's bounds, so evaluations come at roughly constant
+ * time intervals and slow channels only hold small buffers. In very
+ * busy channels only a sample of the messages is recorded.
+ * @see Synapse
+ * @see thermostat.dispatchers.SynapseDispatcher
+ */
+public class MonitoredChannel {
+    /**
+     * Amount of counters of the heavy sender sketch.
+     */
+    private static final int SENDER_COUNTERS = 8;
+
+    /**
+     * Minimum time between two escalations of the channel, in millis.
+     */
+    private static final long ESCALATION_COOLDOWN = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Time between evaluations the estimator's capacity is fitted for, in millis.
+     */
+    private static final long EVALUATION_INTERVAL = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * ID of the monitored channel, or of the monitored category.
+     */
+    private final String channelId;
+
+    /**
+     * Whether this is a category, monitored as a single unit.
+     */
+    private final boolean category;
+
+    /**
+     * Heaviest senders of the current window. Owned by the producer.
+     */
+    private final SpaceSaving senders = new SpaceSaving(SENDER_COUNTERS);
+
+    /**
+     * Heaviest senders of the latest completed window. Null until a window completes.
+     */
+    private volatile SpaceSaving.Snapshot lastSenders;
+
+    /**
+     * Usual pace of the channel's messages, learned over the last few days.
+     */
+    private final ChannelBaseline baseline;
+
+    /**
+     * Picks the messages that are recorded while the channel is very busy. Owned by the producer.
+     */
+    private final MessageSampler sampler = new MessageSampler();
+
+    /**
+     * Forecast of the channel's hourly message counts. Owned by the producer.
+     */
+    private final SeasonalForecaster forecaster = new SeasonalForecaster();
+
+    /**
+     * Estimator of the channel's message rate.
+     */
+    private volatile RateEstimator estimator;
+
+    /**
+     * Amount of messages the estimator spans.
+     */
+    private volatile int capacity;
+
+    /**
+     * Bounds of the estimator's capacity.
+     */
+    private volatile int minCapacity, maxCapacity;
+
+    /**
+     * Creation time of the channel's latest message, in epoch millis.
+     */
+    private volatile long lastMessageTime = 0;
+
+    /**
+     * Strategy that decides the channel's slowmode. Created on first evaluation.
+     */
+    private SlowmodeController controller;
+
+    /**
+     * Pending timer of the channel on its producer's wheel. Owned by the producer.
+     */
+    private TimingWheel.Timeout timer;
+
+    /**
+     * Time the channel's slowmode was last relaxed, in epoch millis. Owned by the producer.
+     */
+    private long relaxedAt = 0;
+
+    /**
+     * Time the channel was last escalated, in epoch millis. Owned by the producer.
+     */
+    private long escalatedAt = 0;
+
+    /**
+     * Create the monitoring state for a channel.
+     * @param channelId ID of channel, or of category.
+     * @param category Whether the ID is of a category, monitored as a single unit.
+     * @param minCapacity Minimum amount of messages the channel's estimator spans.
+     * @param maxCapacity Maximum amount of messages the channel's estimator spans.
+     * @param estimatorType Type of the channel's estimator.
+     * @param baseline Persisted baseline of the channel. Null to learn it from scratch.
+     */
+    public MonitoredChannel(@Nonnull final String channelId, final boolean category, final int minCapacity, final int maxCapacity,
+                            @Nonnull final EstimatorType estimatorType, @Nullable final byte[] baseline) {
+        this.channelId = channelId;
+        this.category = category;
+        this.minCapacity = minCapacity;
+        this.maxCapacity = maxCapacity;
+        this.capacity = minCapacity; // Starts small, grows with the channel's rate
+        this.estimator = RateEstimator.create(estimatorType, minCapacity);
+        this.baseline = new ChannelBaseline(baseline);
+    }
+
+    /**
+     * Puts back the state of the channel as of a warm-restart snapshot.
+     * Must be called before the channel is published to its producer.
+     * @param capacity Amount of messages the estimator spanned.
+     * @param forecast Serialized forecaster. Null to learn it from scratch.
+     * @param messages Creation times of the estimator's latest messages, oldest first.
+     * @see thermostat.util.CacheSnapshot
+     */
+    public void restore(final int capacity, @Nullable final byte[] forecast, @Nonnull final long[] messages) {
+        setCapacity(Math.max(minCapacity, Math.min(maxCapacity, capacity)));
+        forecaster.restore(forecast);
+
+        // Never fill the window, so replaying cannot hand out a reading
+        for (int index = Math.max(messages.length - this.capacity + 1, 0); index < messages.length; ++index) {
+            final RateReading reading = estimator.addMessage(messages[index]);
+            if (reading != null) {
+                estimator.recycle(reading);
+            }
+        }
+    }
+
+    /**
+     * @return ID of the monitored channel, or of the monitored category.
+     * Also the ID of the settings row that applies to the unit.
+     */
+    @Nonnull
+    public String getChannelId() {
+        return channelId;
+    }
+
+    /**
+     * @return Whether this is a category, monitored as a single unit.
+     */
+    public boolean isCategory() {
+        return category;
+    }
+
+    /**
+     * Adds a message's creation time to the channel's estimator.
+     * While the channel is sampled, skipped messages are only counted.
+     * The delay before the message is learned as the channel's usual pace,
+     * except during raids and shortly after the channel was escalated for spam.
+     * Must only be called by the channel's single producer thread.
+     * @param messageTime Creation time of message, in epoch millis.
+     * @param authorId ID of the message's author.
+     * @param raiding Whether the channel's Guild is being raided.
+     * @return A reading if the channel is due for an evaluation, null otherwise.
+     * The reading belongs to the caller until it is given back with {@link #recycle(RateReading)}.
+     * Its delay is stretched by the sampling factor, see {@link #getSamplingFactor()}.
+     */
+    @Nullable
+    public RateReading addMessage(final long messageTime, final long authorId, final boolean raiding) {
+        final long previous = lastMessageTime;
+        if (messageTime > previous) {
+            lastMessageTime = messageTime;
+        }
+        forecaster.addMessage(messageTime);
+
+        if (sampler.count(messageTime)) {
+            estimator.release(); // Windows never mix sampling factors
+        }
+        if (!sampler.sample()) {
+            return null;
+        }
+
+        if (messageTime > previous && previous != 0 && !raiding && messageTime - escalatedAt >= ESCALATION_COOLDOWN) {
+            baseline.addDelay(messageTime - previous, messageTime);
+        }
+        senders.add(authorId);
+        return completeWindow(estimator.addMessage(messageTime));
+    }
+
+    /**
+     * @return Amount of messages each recorded message stands for. 1 unless the channel is sampled.
+     */
+    public int getSamplingFactor() {
+        return sampler.getFactor();
+    }
+
+    /**
+     * Checks whether the channel is due for an evaluation because of the time
+     * that has passed since its latest message. Must only be called by the channel's producer.
+     * @param now Current time, in epoch millis.
+     * @return A reading if the channel is due for an evaluation, null otherwise.
+     */
+    @Nullable
+    public RateReading poll(final long now) {
+        return completeWindow(estimator.poll(now));
+    }
+
+    /**
+     * @return Usual pace of the channel's messages.
+     */
+    @Nonnull
+    public ChannelBaseline getBaseline() {
+        return baseline;
+    }
+
+    /**
+     * @return Forecast of the channel's hourly message counts.
+     */
+    @Nonnull
+    public SeasonalForecaster getForecaster() {
+        return forecaster;
+    }
+
+    /**
+     * @return Heaviest senders of the latest completed window. Null until a window completes.
+     */
+    @Nullable
+    public SpaceSaving.Snapshot getSenders() {
+        return lastSenders;
+    }
+
+    /**
+     * Snapshots and resets the heavy sender sketch and fits the estimator's
+     * capacity when the channel is due for an evaluation.
+     * @param reading Reading of the estimator, if any.
+     * @return The given reading.
+     */
+    @Nullable
+    private RateReading completeWindow(@Nullable final RateReading reading) {
+        if (reading == null) {
+            return null;
+        }
+        if (senders.getTotal() > 0) {
+            lastSenders = senders.snapshot();
+            senders.reset();
+        }
+        fitCapacity(reading.getAverageDelay());
+        return reading;
+    }
+
+    /**
+     * Fits the estimator's capacity to as many messages as the channel
+     * sends per evaluation interval, within its bounds. Small changes are
+     * ignored, so the buffers are not resized on every evaluation.
+     * @param averageDelay Average delay between the channel's latest messages, in millis.
+     */
+    private void fitCapacity(final long averageDelay) {
+        final int min = minCapacity, max = maxCapacity, current = capacity;
+        final long ideal = EVALUATION_INTERVAL / Math.max(averageDelay, 1);
+        final int fitted = (int) Math.max(min, Math.min(max, ideal));
+        if (fitted != current && (Math.abs(fitted - current) * 4 > current || fitted == min || fitted == max)) {
+            setCapacity(fitted);
+        }
+    }
+
+    /**
+     * Gives back a reading that was handed out by {@link #addMessage(long, long, boolean)}.
+     * @param reading Reading that has been evaluated.
+     */
+    public void recycle(@Nonnull final RateReading reading) {
+        estimator.recycle(reading);
+    }
+
+    /**
+     * Forgets the channel's messages and frees the estimator's buffers.
+     * Buffers are allocated again on the next message.
+     */
+    public void releaseMessages() {
+        estimator.release();
+    }
+
+    /**
+     * @return Creation time of the channel's latest message, in epoch millis. 0 if none was seen.
+     */
+    public long getLastMessageTime() {
+        return lastMessageTime;
+    }
+
+    /**
+     * @return Pending timer of the channel. Null if none. Producer only.
+     */
+    @Nullable
+    public TimingWheel.Timeout getTimer() {
+        return timer;
+    }
+
+    /**
+     * @param timer New pending timer of the channel. Producer only.
+     */
+    public void setTimer(@Nullable final TimingWheel.Timeout timer) {
+        this.timer = timer;
+    }
+
+    /**
+     * @return Time the channel's slowmode was last relaxed, in epoch millis. Producer only.
+     */
+    public long getRelaxedAt() {
+        return relaxedAt;
+    }
+
+    /**
+     * @param relaxedAt Time the channel's slowmode was relaxed, in epoch millis. Producer only.
+     */
+    public void setRelaxedAt(final long relaxedAt) {
+        this.relaxedAt = relaxedAt;
+    }
+
+    /**
+     * Claims an escalation of the channel, unless it was escalated recently.
+     * Must only be called by the channel's producer.
+     * @param now Current time, in epoch millis.
+     * @return Whether the channel should be escalated.
+     */
+    public boolean escalate(final long now) {
+        if (now - escalatedAt < ESCALATION_COOLDOWN) {
+            return false;
+        }
+        escalatedAt = now;
+        return true;
+    }
+
+    /**
+     * Gives back the channel's slowmode controller, replacing it
+     * with a fresh one if the configured type has changed.
+     * @param type Configured type of controller.
+     * @return Controller of the channel.
+     */
+    @Nonnull
+    public synchronized SlowmodeController getController(@Nonnull final ControllerType type) {
+        if (controller == null || controller.getType() != type) {
+            controller = SlowmodeController.create(type);
+        }
+        return controller;
+    }
+
+    /**
+     * @return Estimator of the channel's message rate.
+     */
+    @Nonnull
+    public RateEstimator getEstimator() {
+        return estimator;
+    }
+
+    /**
+     * Replaces the channel's estimator with an empty one, if its type has changed.
+     * @param type New type of estimator.
+     */
+    public synchronized void setEstimator(@Nonnull final EstimatorType type) {
+        if (estimator.getType() != type) {
+            estimator = RateEstimator.create(type, capacity);
+        }
+    }
+
+    /**
+     * @return Amount of messages the channel's estimator spans.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Changes the bounds of the amount of messages the channel's estimator spans,
+     * bringing the current amount within them.
+     * @param minCapacity New minimum capacity.
+     * @param maxCapacity New maximum capacity.
+     */
+    public synchronized void setCapacityBounds(final int minCapacity, final int maxCapacity) {
+        this.minCapacity = minCapacity;
+        this.maxCapacity = maxCapacity;
+        setCapacity(Math.max(minCapacity, Math.min(maxCapacity, capacity)));
+    }
+
+    /**
+     * Changes the amount of messages the channel's estimator spans.
+     * Applied by the producer, on the next message.
+     * @param capacity New capacity.
+     */
+    private synchronized void setCapacity(final int capacity) {
+        estimator.setCapacity(capacity);
+        this.capacity = capacity;
+    }
+}
@@ -5,10 +5,12 @@ import net.dv8tion.jda.api.entities.TextChannel;
 import thermostat.Thermostat;
 import thermostat.commands.Command;
 import thermostat.dispatchers.MenuDispatcher;
+import thermostat.dispatchers.RestDispatcher;
 import thermostat.embeds.Embeds;
 import thermostat.util.RestActions;
 import thermostat.util.enumeration.EmbedType;
 import thermostat.util.enumeration.MenuType;
+import thermostat.util.enumeration.RestPriority;
 
 import javax.annotation.Nonnull;
 import java.util.concurrent.ScheduledFuture;
@@ -68,11 +70,13 @@ public class ReactionMenu {
      */
     public void rescheduleTimer(final TextChannel channel) {
         this.decachingTimer = Thermostat.SCHEDULED_EXECUTOR.schedule(() -> {
-            channel.retrieveMessageById(messageId).flatMap(Message::delete).queue(null, null);
+            RestDispatcher.queue(RestPriority.COSMETIC, "messages/" + channel.getId(),
+                    channel.retrieveMessageById(messageId).flatMap(Message::delete));
             MenuDispatcher.removeMenu(messageId);
 
             switch (this.getMenuType()) {
-                case MONITORALL, FILTERALL -> RestActions.sendMessage(channel, Embeds.getEmbed(EmbedType.MISSED_PROMPT)).queue();
+                case MONITORALL, FILTERALL -> RestDispatcher.queue(RestPriority.RESPONSE, "messages/" + channel.getId(),
+                        RestActions.sendMessage(channel, Embeds.getEmbed(EmbedType.MISSED_PROMPT)));
                 default -> throw new RuntimeException("Unknown menu type");
             }
             return null;
@@ -12,14 +12,19 @@ public class SettingsData {
     public final String channelName;
     public final int min;
     public final int max;
-    public final int cachingSize;
+    public final String cachingSize;
     public final float sensitivity;
     public final boolean monitor;
     public final boolean filter;
+    public final String controller;
+    public final String estimator;
+    public final int recentMessages;
+    public final boolean forecast;
 
     @EverythingIsNonNull
-    public SettingsData(String channelName, int min, int max, int cachingSize,
-                        float sensitivity, boolean monitor, boolean filter)
+    public SettingsData(String channelName, int min, int max, String cachingSize,
+                        float sensitivity, boolean monitor, boolean filter, String controller,
+                        String estimator, int recentMessages, boolean forecast)
     {
         this.channelName = channelName;
         this.min = min;
@@ -28,5 +33,9 @@ public class SettingsData {
         this.sensitivity = sensitivity;
         this.monitor = monitor;
         this.filter = filter;
+        this.controller = controller;
+        this.estimator = estimator;
+        this.recentMessages = recentMessages;
+        this.forecast = forecast;
     }
 }
@@ -1,22 +1,31 @@
 package thermostat.util.entities;
 
+import net.dv8tion.jda.api.entities.Category;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.ISnowflake;
+import net.dv8tion.jda.api.entities.TextChannel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import thermostat.Thermostat;
+import thermostat.commands.internal.EscalateChannel;
+import thermostat.commands.internal.RaidSwitch;
 import thermostat.commands.internal.SynapseMonitor;
 import thermostat.mySQL.DataSource;
 import thermostat.mySQL.PreparedActions;
 import thermostat.util.Constants;
+import thermostat.util.enumeration.EstimatorType;
 import thermostat.util.enumeration.SynapseState;
+import thermostat.util.synapse.DuplicateDetector;
+import thermostat.util.synapse.RaidDetector;
+import thermostat.util.synapse.RateReading;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.time.OffsetDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -39,21 +48,49 @@ public class Synapse {
     private final String guildId;
 
     /**
-     * The monitored channels of the Guild.
+     * The monitored channels of the Guild. Each channel guards its own
+     * state, the map itself is safe to read without a lock.
      * @see thermostat.commands.monitoring.MonitorCommand
      */
-    private final Map<String, LinkedList<OffsetDateTime>> monitoredChannels;
+    private final Map<String, MonitoredChannel> monitoredChannels;
 
     /**
-     * Maximum size for the LinkedList that contains dates to the monitored
-     * channels for each channel.
+     * Channels that are covered by a monitored category.
+     * K: Channel ID -> V: Monitoring state of the channel's category
      */
-    private int messageCachingSize;
+    private final Map<String, MonitoredChannel> categoryMembers = new ConcurrentHashMap<>();
+
+    /**
+     * Bounds of the size of each monitored channel's MessageWindow.
+     * Every channel sizes its window within them from its own message rate.
+     */
+    private volatile int minCachingSize, maxCachingSize;
+
+    /**
+     * Way the message rate of each monitored channel is measured.
+     */
+    private volatile EstimatorType estimatorType = EstimatorType.WINDOW;
 
     /**
      * Represents whether the Synapse is working or not.
      */
-    private SynapseState state = SynapseState.ACTIVE;
+    private volatile SynapseState state = SynapseState.ACTIVE;
+
+    /**
+     * Creation time of the latest message in any monitored channel, in epoch millis.
+     * Starts at the creation of the Synapse, so new Synapses are not considered idle.
+     */
+    private volatile long lastActivity = System.currentTimeMillis();
+
+    /**
+     * Aggregate message rate of the monitored channels, used to detect raids.
+     */
+    private final RaidDetector raidDetector = new RaidDetector();
+
+    /**
+     * Near-duplicate counter of the monitored channels' messages, used to detect copy-paste raids.
+     */
+    private final DuplicateDetector duplicateDetector = new DuplicateDetector();
 
     // ***************************************************************
     // **                CONSTRUCTOR/GETTERS/SETTERS                **
@@ -65,32 +102,195 @@ public class Synapse {
      */
     public Synapse(@Nonnull String guildId) {
         this.guildId = guildId;
-        this.monitoredChannels = initializeMonitoredChannels(guildId);
         initMessageCachingSize();
+        this.monitoredChannels = initializeMonitoredChannels(guildId, minCachingSize, maxCachingSize, estimatorType);
+        for (final MonitoredChannel unit : monitoredChannels.values()) {
+            if (unit.isCategory()) {
+                indexCategory(unit);
+            }
+        }
+    }
+
+    /**
+     * Create an empty Synapse from a warm-restart snapshot, without
+     * touching the database or the gateway. Its channels are put back
+     * with {@link #restoreChannel(MonitoredChannel)} before it is published.
+     * @param guildId ID of Guild to monitor.
+     * @param minCachingSize Minimum size of the message windows.
+     * @param maxCachingSize Maximum size of the message windows.
+     * @param estimatorType Way the message rate of each monitored channel is measured.
+     * @see thermostat.util.CacheSnapshot
+     */
+    public Synapse(@Nonnull String guildId, int minCachingSize, int maxCachingSize, @Nonnull EstimatorType estimatorType) {
+        this.guildId = guildId;
+        this.minCachingSize = minCachingSize;
+        this.maxCachingSize = maxCachingSize;
+        this.estimatorType = estimatorType;
+        this.monitoredChannels = new ConcurrentHashMap<>();
     }
 
     /**
-     * Adds a new channel in synapse's monitoring cache.
-     * @param channelId ID of channel to monitor.
+     * Puts back a channel or category restored from a snapshot.
+     * The channels of a category are put back with {@link #moveChannel(String, String)}.
+     * @param unit Restored monitoring state.
+     */
+    public void restoreChannel(@Nonnull final MonitoredChannel unit) {
+        monitoredChannels.put(unit.getChannelId(), unit);
+    }
+
+    /**
+     * Adds a new channel in synapse's monitoring cache. If the ID is of
+     * a category, the category is monitored as a single unit, covering
+     * its current channels and the ones that are added to it later.
+     * A channel that is already monitored keeps its state.
+     * @param channelId ID of channel or category to monitor.
      */
     public void addChannel(String channelId) {
-        monitoredChannels.put(channelId, new LinkedList<>());
+        Guild guild = Thermostat.thermo.getGuildById(guildId);
+        boolean category = guild != null && guild.getCategoryById(channelId) != null;
+        MonitoredChannel unit = monitoredChannels.computeIfAbsent(channelId,
+                id -> new MonitoredChannel(id, category, minCachingSize, maxCachingSize, estimatorType, null));
+        if (unit.isCategory()) {
+            indexCategory(unit);
+        }
     }
 
     /**
-     * Removes a TextChannel from the monitoredChannels
-     * ArrayList (only used when a TextChannel is unmonitored/removed).
+     * Removes a TextChannel or category from the monitoredChannels
+     * (only used when it is unmonitored/removed).
      */
     public void removeChannel(String channelId) {
-        monitoredChannels.keySet().removeIf(channel -> channel.equals(channelId));
+        MonitoredChannel unit = monitoredChannels.remove(channelId);
+        categoryMembers.remove(channelId);
+        if (unit != null && unit.isCategory()) {
+            categoryMembers.values().removeIf(category -> category == unit);
+        }
+    }
+
+    /**
+     * Puts a channel under its monitored category, if it has one.
+     * Called when a channel is created in a category or moved to another.
+     * @param channelId ID of channel.
+     * @param categoryId ID of the channel's category. Null if it has none.
+     */
+    public void moveChannel(@Nonnull final String channelId, @Nullable final String categoryId) {
+        MonitoredChannel unit = (categoryId == null) ? null : monitoredChannels.get(categoryId);
+        if (unit != null && unit.isCategory()) {
+            categoryMembers.put(channelId, unit);
+        } else {
+            categoryMembers.remove(channelId);
+        }
+    }
+
+    /**
+     * Indexes the current channels of a monitored category.
+     * @param unit Monitoring state of the category.
+     */
+    private void indexCategory(@Nonnull final MonitoredChannel unit) {
+        Guild guild = Thermostat.thermo.getGuildById(guildId);
+        Category category = (guild == null) ? null : guild.getCategoryById(unit.getChannelId());
+        if (category == null) {
+            return;
+        }
+        for (final TextChannel channel : category.getTextChannels()) {
+            categoryMembers.put(channel.getId(), unit);
+        }
     }
 
     /**
      * Gives back all the monitored channels for this Synapse.
-     * @return Monitored TextChannel Map for this Synapse
+     * @return Read-only, live view of the monitored TextChannel IDs for this Synapse
      */
     public Set<String> getChannels() {
-        return monitoredChannels.keySet();
+        return Collections.unmodifiableSet(monitoredChannels.keySet());
+    }
+
+    /**
+     * Gives back the monitoring state of every monitored channel.
+     * @return Read-only, live view of the monitored channels.
+     */
+    public Collection<MonitoredChannel> getMonitoredChannels() {
+        return Collections.unmodifiableCollection(monitoredChannels.values());
+    }
+
+    /**
+     * @return Read-only, live view of the channels covered by a monitored category.
+     * K: Channel ID -> V: Monitoring state of the channel's category
+     */
+    public Map<String, MonitoredChannel> getCategoryMembers() {
+        return Collections.unmodifiableMap(categoryMembers);
+    }
+
+    /**
+     * @param channelId ID of a channel, or of a category.
+     * @return Monitoring state of the channel or category. Null if it is not monitored itself.
+     */
+    @Nullable
+    public MonitoredChannel getMonitoredChannel(final String channelId) {
+        return monitoredChannels.get(channelId);
+    }
+
+    /**
+     * @param channelId ID of a channel.
+     * @return Monitoring state that covers the channel: its own, or its monitored category's.
+     * Null if the channel is not covered.
+     */
+    @Nullable
+    public MonitoredChannel getUnit(final String channelId) {
+        MonitoredChannel unit = monitoredChannels.get(channelId);
+        return (unit != null) ? unit : categoryMembers.get(channelId);
+    }
+
+    /**
+     * @param channelId ID of a channel.
+     * @return ID of the settings row that applies to the channel: its monitored category's
+     * if the category covers it, the channel's own otherwise.
+     */
+    @Nonnull
+    public String getSettingsId(final String channelId) {
+        MonitoredChannel unit = getUnit(channelId);
+        return (unit == null) ? channelId : unit.getChannelId();
+    }
+
+    /**
+     * @param guild Guild of the Synapse.
+     * @param unit Monitoring state of a channel or category.
+     * @return The channels the unit covers. Channels of a category that are monitored
+     * on their own are left out. Empty if the channel or category no longer exists.
+     */
+    @Nonnull
+    public List<TextChannel> getTextChannels(@Nonnull final Guild guild, @Nonnull final MonitoredChannel unit) {
+        if (!unit.isCategory()) {
+            TextChannel channel = guild.getTextChannelById(unit.getChannelId());
+            return (channel == null) ? Collections.emptyList() : Collections.singletonList(channel);
+        }
+
+        Category category = guild.getCategoryById(unit.getChannelId());
+        if (category == null) {
+            return Collections.emptyList();
+        }
+        List<TextChannel> channels = new ArrayList<>();
+        for (final TextChannel channel : category.getTextChannels()) {
+            if (!monitoredChannels.containsKey(channel.getId())) {
+                channels.add(channel);
+            }
+        }
+        return channels;
+    }
+
+    /**
+     * @return Raid detector of the Guild.
+     */
+    @Nonnull
+    public RaidDetector getRaidDetector() {
+        return raidDetector;
+    }
+
+    /**
+     * @return Creation time of the latest message in any monitored channel, in epoch millis.
+     */
+    public long getLastActivity() {
+        return lastActivity;
     }
 
     /**
@@ -112,7 +312,7 @@ public class Synapse {
      * Set the state of the Synapse.
      * @param state New state of Synapse.
      */
-    public synchronized void setState(SynapseState state) {
+    public void setState(SynapseState state) {
         this.state = state;
     }
 
@@ -121,42 +321,73 @@ public class Synapse {
     // ***************************************************************
 
     /**
-     * Adds a new message's creation time in the last
-     * 10 messages cache.
+     * Adds a new message's creation time in the message window
+     * of its channel, or of the monitored category that covers it.
      * @param channelId ID of channel that the message belongs to.
-     * @param messageTime Creation time of message.
+     * @param authorId ID of the message's author.
+     * @param messageTime Creation time of message, in epoch millis.
+     * @param content Raw content of the message.
+     * @return Monitoring state that covers the channel. Null if the channel is not monitored.
      */
-    public synchronized void addMessage(final String channelId, final OffsetDateTime messageTime) {
-        LinkedList<OffsetDateTime> channelMessages = monitoredChannels.get(channelId);
-        if (channelMessages == null) {
-            return;
+    @Nullable
+    public MonitoredChannel addMessage(final String channelId, final long authorId, final long messageTime,
+                                       final String content) {
+        MonitoredChannel channel = getUnit(channelId);
+        if (channel == null) {
+            return null;
         }
-        channelMessages.addFirst(messageTime);
-        if (channelMessages.size() >= messageCachingSize) {
-            new SynapseMonitor(this, channelMessages, channelId);
+        if (messageTime > lastActivity) {
+            lastActivity = messageTime;
+        }
+        if (raidDetector.addMessage(channelId, messageTime)) {
+            new RaidSwitch(this, true);
+        }
+        if (duplicateDetector.addMessage(content, messageTime) && channel.escalate(messageTime)) {
+            new EscalateChannel(this, channelId);
+        }
+        RateReading reading = channel.addMessage(messageTime, authorId, raidDetector.isRaiding());
+        if (reading != null) {
+            new SynapseMonitor(this, channel, reading);
+        }
+        return channel;
+    }
+
+    /**
+     * Disables the Synapse due to inactivity, freeing the
+     * rate estimates of its channels until it is reactivated.
+     */
+    public void deactivate() {
+        this.state = SynapseState.INACTIVE;
+        for (final MonitoredChannel channel : monitoredChannels.values()) {
+            channel.releaseMessages();
         }
     }
 
     /**
      * Initializes monitored channels Map for a Synapse.
      * @param guildId ID of Synapse's guild.
+     * @param minCachingSize Minimum capacity of each channel's message window.
+     * @param maxCachingSize Maximum capacity of each channel's message window.
+     * @param estimatorType Type of each channel's rate estimator.
      * @return A monitor Map for a Synapse.
      */
     @Nonnull
-    private static Map<String, LinkedList<OffsetDateTime>> initializeMonitoredChannels(final String guildId) {
-        Map<String, LinkedList<OffsetDateTime>> monChannels = new HashMap<>();
+    private static Map<String, MonitoredChannel> initializeMonitoredChannels(final String guildId, final int minCachingSize,
+                                                                             final int maxCachingSize,
+                                                                             final EstimatorType estimatorType) {
+        Map<String, MonitoredChannel> monChannels = new ConcurrentHashMap<>();
 
         try {
             DataSource.demand(conn -> {
-                ArrayList<String> databaseMonitoredChannels = new ArrayList<>();
-                PreparedStatement statement = conn.prepareStatement("SELECT CHANNELS.CHANNEL_ID FROM CHANNELS " +
+                Map<String, byte[]> databaseMonitoredChannels = new HashMap<>();
+                PreparedStatement statement = conn.prepareStatement("SELECT CHANNELS.CHANNEL_ID, CHANNEL_SETTINGS.BASELINE FROM CHANNELS " +
                         "JOIN CHANNEL_SETTINGS ON (CHANNELS.CHANNEL_ID = CHANNEL_SETTINGS.CHANNEL_ID) " +
                         "WHERE CHANNELS.GUILD_ID = ? AND CHANNEL_SETTINGS.MONITORED = 1");
                 statement.setString(1, guildId);
                 ResultSet rs = statement.executeQuery();
 
                 while (rs.next()) {
-                    databaseMonitoredChannels.add(rs.getString(1));
+                    databaseMonitoredChannels.put(rs.getString(1), rs.getBytes(2));
                 }
 
                 Guild guild = Thermostat.thermo.getGuildById(guildId);
@@ -167,9 +398,14 @@ public class Synapse {
                 // Get all channel ids from list of text channels
                 List<String> channelsInGuild = guild.getTextChannels().stream().map(ISnowflake::getId).collect(Collectors.toList());
 
-                for (final String channel : databaseMonitoredChannels) {
+                for (final Map.Entry<String, byte[]> entry : databaseMonitoredChannels.entrySet()) {
+                    final String channel = entry.getKey();
                     if (channelsInGuild.contains(channel)) {
-                        monChannels.put(channel, new LinkedList<>());
+                        monChannels.put(channel, new MonitoredChannel(channel, false, minCachingSize, maxCachingSize,
+                                estimatorType, entry.getValue()));
+                    } else if (guild.getCategoryById(channel) != null) {
+                        monChannels.put(channel, new MonitoredChannel(channel, true, minCachingSize, maxCachingSize,
+                                estimatorType, entry.getValue()));
                     } else {
                         PreparedActions.deleteChannel(conn, guildId, channel);
                     }
@@ -185,46 +421,94 @@ public class Synapse {
     }
 
     /**
-     * Set the caching size for the message date Linked List.
-     * Retrieves the size from the database. Called upon for first initialization.
+     * Collects the baselines of the monitored channels that have changed since the last call.
+     * Must run on the Synapse's worker, see {@link thermostat.dispatchers.SynapseDispatcher#serialize}.
+     * @return K: Channel ID -> V: Serialized baseline
+     */
+    @Nonnull
+    public Map<String, byte[]> takeBaselineChanges() {
+        Map<String, byte[]> changes = new HashMap<>();
+        for (final MonitoredChannel channel : monitoredChannels.values()) {
+            byte[] sketch = channel.getBaseline().takeChanges();
+            if (sketch != null) {
+                changes.put(channel.getChannelId(), sketch);
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Set the caching size bounds for the message windows and the rate estimator type.
+     * Retrieves both from the database. Called upon for first initialization.
      */
     public void initMessageCachingSize() {
+        this.minCachingSize = Constants.MIN_CACHING_SIZE;
+        this.maxCachingSize = Constants.MAX_CACHING_SIZE;
         try {
-            this.messageCachingSize = DataSource.demand(conn -> {
-                PreparedStatement statement = conn.prepareStatement("SELECT CACHING_SIZE FROM GUILDS WHERE GUILD_ID = ?");
+            DataSource.demand(conn -> {
+                PreparedStatement statement = conn.prepareStatement("SELECT MIN_CACHING_SIZE, CACHING_SIZE, ESTIMATOR " +
+                        "FROM GUILDS WHERE GUILD_ID = ?");
                 statement.setString(1, guildId);
                 ResultSet rs = statement.executeQuery();
                 if (rs.next()) {
-                    return rs.getInt(1);
-                } else {
-                    return Constants.DEFAULT_CACHING_SIZE;
+                    this.minCachingSize = Math.min(rs.getInt(1), rs.getInt(2));
+                    this.maxCachingSize = rs.getInt(2);
+                    this.estimatorType = EstimatorType.of(rs.getString(3));
                 }
+                return null;
             });
         } catch (SQLException ex) {
-            this.messageCachingSize = Constants.DEFAULT_CACHING_SIZE;
+            lgr.warn("Could not retrieve caching settings for " + this.guildId + ". Falling back to default. Details:", ex);
         }
-        lgr.debug("Set message caching size " + this.messageCachingSize + " for " + this.guildId + ".");
+        lgr.debug("Set message caching size " + this.minCachingSize + "-" + this.maxCachingSize + " for " + this.guildId + ".");
     }
 
     /**
-     * Set the caching size for the message date Linked List.
-     * Trims list of message dates if cache is smaller than current size.
-     * @param newSize New cache size.
+     * Set the caching size bounds for the message windows.
+     * Keeps the newest messages if the windows are shrunk.
+     * Windows are resized by their producers, on their next message.
+     * @param minSize New minimum cache size.
+     * @param maxSize New maximum cache size. Equal to the minimum for a fixed size.
      */
-    public synchronized void setMessageCachingSize(final int newSize) {
-        if (newSize < messageCachingSize) {
-            int cacheDifference = messageCachingSize - newSize;
+    public void setMessageCachingSize(final int minSize, final int maxSize) {
+        this.minCachingSize = minSize;
+        this.maxCachingSize = maxSize;
+        for (MonitoredChannel channel : monitoredChannels.values()) {
+            channel.setCapacityBounds(minSize, maxSize);
+        }
+    }
 
-            // Trim unneeded messages to match new size
-            for (Map.Entry<String, LinkedList<OffsetDateTime>> entry : monitoredChannels.entrySet()) {
-                if (entry.getValue().size() > newSize) { // if list has more elements than the new size
-                    for (int index = 0; index < cacheDifference; ++index) { // remove all unnecessary ones
-                        entry.getValue().remove();
-                    }
-                }
-            }
+    /**
+     * Set the way the message rate of the monitored channels is measured.
+     * Channels whose estimator changes start measuring from scratch.
+     * @param type New estimator type.
+     */
+    public void setEstimator(@Nonnull final EstimatorType type) {
+        this.estimatorType = type;
+        for (MonitoredChannel channel : monitoredChannels.values()) {
+            channel.setEstimator(type);
         }
-        this.messageCachingSize = newSize;
     }
 
+    /**
+     * @return Minimum size of the message windows.
+     */
+    public int getMinCachingSize() {
+        return minCachingSize;
+    }
+
+    /**
+     * @return Maximum size of the message windows.
+     */
+    public int getMaxCachingSize() {
+        return maxCachingSize;
+    }
+
+    /**
+     * @return Way the message rate of the monitored channels is measured.
+     */
+    @Nonnull
+    public EstimatorType getEstimator() {
+        return estimatorType;
+    }
 }
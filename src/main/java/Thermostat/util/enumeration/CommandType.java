@@ -84,6 +84,33 @@ public enum CommandType {
             EnumSet.of(
                     Permission.MANAGE_SERVER
             ), EmbedType.HELP_SETCACHE),
+    CONTROLLER("controller", "cl",
+            EnumSet.of(
+                    Permission.MESSAGE_WRITE,
+                    Permission.MESSAGE_EMBED_LINKS,
+                    Permission.MANAGE_CHANNEL
+            ),
+            EnumSet.of(
+                    Permission.MANAGE_CHANNEL
+            ), EmbedType.HELP_CONTROLLER),
+    ESTIMATOR("estimator", "es",
+            EnumSet.of(
+                    Permission.MESSAGE_WRITE,
+                    Permission.MESSAGE_EMBED_LINKS,
+                    Permission.MANAGE_CHANNEL
+            ),
+            EnumSet.of(
+                    Permission.MANAGE_SERVER
+            ), EmbedType.HELP_ESTIMATOR),
+    FORECAST("forecast", "fc",
+            EnumSet.of(
+                    Permission.MESSAGE_WRITE,
+                    Permission.MESSAGE_EMBED_LINKS,
+                    Permission.MANAGE_CHANNEL
+            ),
+            EnumSet.of(
+                    Permission.MANAGE_CHANNEL
+            ), EmbedType.HELP_FORECAST),
 
     // ***************************************************************
     // **                       MODERATION                          **
@@ -204,6 +231,16 @@ public enum CommandType {
                     Permission.MANAGE_CHANNEL
             )
     ),
+    ESCALATE_CHANNEL(
+            EnumSet.of(
+                    Permission.MANAGE_CHANNEL
+            )
+    ),
+    RAID_SWITCH(
+            EnumSet.of(
+                    Permission.MANAGE_CHANNEL
+            )
+    ),
     WORDFILTEREVENT(
             EnumSet.of(
                     Permission.MESSAGE_WRITE,
@@ -0,0 +1,28 @@
+package thermostat.util.enumeration;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Strategies that decide the slowmode of a monitored channel.
+ * ADAPTIVE is the ladder, fed delays relative to the channel's learned baseline.
+ * Stored by name in CHANNEL_SETTINGS.CONTROLLER.
+ * @see thermostat.util.synapse.SlowmodeController
+ */
+public enum ControllerType {
+    LADDER, PID, HYSTERESIS, ADAPTIVE;
+
+    /**
+     * @param name Name of the controller, case insensitive.
+     * @return Matching controller type. LADDER if the name matches none.
+     */
+    @Nonnull
+    public static ControllerType of(@Nullable final String name) {
+        for (final ControllerType type : values()) {
+            if (type.name().equalsIgnoreCase(name)) {
+                return type;
+            }
+        }
+        return LADDER;
+    }
+}
@@ -8,6 +8,7 @@ import javax.annotation.Nonnull;
 public enum DBActionType {
     FILTER("FILTERED = ?", "FILTERED"),
     MONITOR("MONITORED = ?", "MONITORED"),
+    FORECAST("FORECAST = ?", "FORECAST"),
     UNFILTER("FILTERED = ?, WEBHOOK_ID = 0, WEBHOOK_TOKEN = 0");
 
     /**
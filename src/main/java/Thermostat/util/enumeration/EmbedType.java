@@ -35,6 +35,9 @@ public enum EmbedType {
     HELP_SENSITIVITY,
     HELP_SETBOUNDS,
     HELP_SETCACHE,
+    HELP_CONTROLLER,
+    HELP_ESTIMATOR,
+    HELP_FORECAST,
     HELP_PREFIX,
     HELP_FILTER,
     HELP_BAN,
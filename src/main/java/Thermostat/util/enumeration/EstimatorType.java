@@ -0,0 +1,27 @@
+package thermostat.util.enumeration;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Ways a Synapse measures the message rate of its channels.
+ * Stored by name in GUILDS.ESTIMATOR.
+ * @see thermostat.util.synapse.RateEstimator
+ */
+public enum EstimatorType {
+    WINDOW, EWMA, BUCKETS;
+
+    /**
+     * @param name Name of the estimator, case insensitive.
+     * @return Matching estimator type. WINDOW if the name matches none.
+     */
+    @Nonnull
+    public static EstimatorType of(@Nullable final String name) {
+        for (final EstimatorType type : values()) {
+            if (type.name().equalsIgnoreCase(name)) {
+                return type;
+            }
+        }
+        return WINDOW;
+    }
+}
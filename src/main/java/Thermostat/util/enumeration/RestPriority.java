@@ -0,0 +1,25 @@
+package thermostat.util.enumeration;
+
+/**
+ * Priority classes of outgoing REST actions, highest first.
+ * @see thermostat.dispatchers.RestDispatcher
+ */
+public enum RestPriority {
+    /**
+     * Actions that protect a channel, like slowmode changes and
+     * filtered message deletions. Never deferred or dropped.
+     */
+    MODERATION,
+
+    /**
+     * Replies to Commands, and re-posts of filtered messages with the
+     * webhook edits they wait on, so a deleted message is not lost.
+     */
+    RESPONSE,
+
+    /**
+     * Menu reactions, menu edits and the avatars of new webhooks.
+     * First to be deferred or dropped under pressure.
+     */
+    COSMETIC
+}
@@ -0,0 +1,164 @@
+package thermostat.util.synapse;
+
+import thermostat.util.enumeration.EstimatorType;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts a channel's messages in the last {@link #SPAN} seconds with a
+ * circular array of per-second counters. Memory does not depend on the
+ * traffic of the channel, and the count is kept as a running total so it
+ * can be read in O(1). The channel is evaluated at most once every
+ * {@link #EVALUATION_PERIOD} seconds, on messages or on polls, and only once
+ * the counters cover at least that many seconds, so a couple of messages on
+ * a new or released count do not read as a burst.
+ */
+public class BucketEstimator implements RateEstimator {
+    /**
+     * Amount of seconds, and buckets, the count spans.
+     */
+    public static final int SPAN = 30;
+
+    /**
+     * Minimum amount of seconds between two evaluations.
+     */
+    private static final long EVALUATION_PERIOD = 5;
+
+    /**
+     * Minimum amount of counted messages for an evaluation.
+     */
+    private static final int MIN_MESSAGES = 5;
+
+    /**
+     * Set when the count is released; the producer resets on its next message.
+     */
+    private volatile boolean released = false;
+
+    /**
+     * Messages in the last SPAN seconds. Written by the producer only.
+     */
+    private volatile int count = 0;
+
+    // Owned by the producer.
+    private final int[] buckets = new int[SPAN];
+    private long currentSecond = -1;
+    private long firstSecond = -1;
+    private long lastEvaluation = -1;
+
+    @Nullable
+    @Override
+    public RateReading addMessage(final long messageTime) {
+        if (released) {
+            released = false;
+            Arrays.fill(buckets, 0);
+            count = 0;
+            currentSecond = -1;
+            firstSecond = -1;
+            lastEvaluation = -1;
+        }
+
+        final long second = TimeUnit.MILLISECONDS.toSeconds(messageTime);
+        if (currentSecond == -1) {
+            currentSecond = second;
+            firstSecond = second;
+        }
+
+        if (second > currentSecond) {
+            advance(second);
+        } else if (second <= currentSecond - SPAN) {
+            return null; // Late message, older than every bucket
+        }
+
+        ++buckets[(int) Math.floorMod(second, (long) SPAN)];
+        count = count + 1; // Only the producer writes the count
+
+        return evaluate();
+    }
+
+    /**
+     * Moves the count forward to the current second, so messages that left
+     * the span stop counting, and evaluates the channel if its period is over.
+     * @param now Current time, in epoch millis.
+     * @return A reading if the channel is due for an evaluation, null otherwise.
+     */
+    @Nullable
+    @Override
+    public RateReading poll(final long now) {
+        final long second = TimeUnit.MILLISECONDS.toSeconds(now);
+        if (released || currentSecond == -1 || second <= currentSecond) {
+            return null;
+        }
+
+        advance(second);
+        return evaluate();
+    }
+
+    /**
+     * @return Amount of messages in the last SPAN seconds, as of the latest message or poll.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public void release() {
+        released = true;
+    }
+
+    /**
+     * The span of the count is fixed, the capacity is only validated.
+     */
+    @Override
+    public void setCapacity(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Estimator capacity must be positive.");
+        }
+    }
+
+    @Nonnull
+    @Override
+    public EstimatorType getType() {
+        return EstimatorType.BUCKETS;
+    }
+
+    /**
+     * Moves the count forward to a new second, emptying the buckets that fall out of the span.
+     * @param second Second of the newest message, in epoch seconds.
+     */
+    private void advance(final long second) {
+        final long steps = Math.min(second - currentSecond, SPAN);
+        int expired = 0;
+        for (long step = 1; step <= steps; ++step) {
+            final int index = (int) Math.floorMod(currentSecond + step, (long) SPAN);
+            expired += buckets[index];
+            buckets[index] = 0;
+        }
+        currentSecond = second;
+        count = count - expired;
+    }
+
+    /**
+     * @return A reading if the count covers enough time and messages and
+     * the channel's period is over, null otherwise.
+     */
+    @Nullable
+    private RateReading evaluate() {
+        if (count < MIN_MESSAGES || currentSecond - firstSecond < EVALUATION_PERIOD
+                || (lastEvaluation != -1 && currentSecond - lastEvaluation < EVALUATION_PERIOD)) {
+            return null;
+        }
+
+        lastEvaluation = currentSecond;
+        return RateReading.of(getSpanMillis() / count);
+    }
+
+    /**
+     * @return Time the count covers, in millis. Shorter than SPAN while the channel is new.
+     */
+    private long getSpanMillis() {
+        return TimeUnit.SECONDS.toMillis(Math.min(currentSecond - firstSecond + 1, SPAN));
+    }
+}
@@ -0,0 +1,115 @@
+package thermostat.util.synapse;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a normal pace of messages looks like for one channel, learned
+ * from the delays between its messages over the last few days.
+ * For channels with the adaptive controller, delays measured by the Synapse
+ * are scaled by the channel's own baseline before they reach the controller,
+ * so a busy general chat and a slow support channel both heat up relative to
+ * their usual pace rather than to a single fixed rate. The sensitivity still
+ * applies on top. Other controllers are given the measured delays as they are.
+ * Fed by the channel's producer only.
+ */
+public final class ChannelBaseline {
+    /**
+     * Quantile of the channel's delays that is mapped onto the controllers' target delay.
+     */
+    private static final double QUANTILE = 0.25;
+
+    /**
+     * Amount of delays needed before the baseline is trusted.
+     */
+    private static final long MIN_SAMPLES = 500;
+
+    /**
+     * Bounds of the scale applied to measured delays.
+     */
+    private static final double MIN_SCALE = 0.25, MAX_SCALE = 4;
+
+    /**
+     * Time after which the learned delays weigh half as much, in millis.
+     */
+    private static final long HALF_LIFE = TimeUnit.DAYS.toMillis(1);
+
+    private final QuantileSketch sketch;
+
+    /**
+     * Time of the latest halving of the sketch, in epoch millis. Owned by the producer.
+     */
+    private long decayedAt = 0;
+
+    /**
+     * Whether the sketch has changed since it was last persisted.
+     */
+    private volatile boolean dirty = false;
+
+    /**
+     * @param stored Serialized sketch, as persisted. Null to start from scratch.
+     */
+    public ChannelBaseline(@Nullable final byte[] stored) {
+        final QuantileSketch restored = QuantileSketch.fromBytes(stored);
+        this.sketch = (restored == null) ? new QuantileSketch() : restored;
+    }
+
+    /**
+     * Learns the delay before a message.
+     * @param delay Delay since the previous message, in millis.
+     * @param messageTime Creation time of message, in epoch millis.
+     */
+    public void addDelay(final long delay, final long messageTime) {
+        if (messageTime - decayedAt >= HALF_LIFE) {
+            if (decayedAt != 0) {
+                sketch.decay();
+            }
+            decayedAt = messageTime;
+        }
+        sketch.add(delay);
+        dirty = true;
+    }
+
+    /**
+     * Scales a measured delay to the channel's baseline.
+     * @param averageDelay Average delay between the channel's latest messages, in millis.
+     * @return The delay as the controllers should see it, in millis.
+     * The delay itself while not enough delays have been learned.
+     */
+    public long normalize(final long averageDelay) {
+        if (sketch.getTotal() < MIN_SAMPLES) {
+            return averageDelay;
+        }
+        final long usual = Math.max(sketch.getQuantile(QUANTILE), 1);
+        final double scale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, (double) SlowmodeController.TARGET_DELAY / usual));
+        return Math.round(averageDelay * scale);
+    }
+
+    /**
+     * @return Delay at the baseline's quantile, in millis. 0 if nothing was learned.
+     */
+    public long getUsualDelay() {
+        return sketch.getQuantile(QUANTILE);
+    }
+
+    /**
+     * @return Serialized sketch if it changed since the last call, null otherwise.
+     */
+    @Nullable
+    public byte[] takeChanges() {
+        if (!dirty) {
+            return null;
+        }
+        dirty = false;
+        return sketch.toBytes();
+    }
+
+    /**
+     * @return The learned sketch.
+     */
+    @Nonnull
+    public QuantileSketch getSketch() {
+        return sketch;
+    }
+}
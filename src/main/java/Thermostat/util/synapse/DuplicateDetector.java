@@ -0,0 +1,183 @@
+package thermostat.util.synapse;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detects the same message being pasted over and over in a Guild.
+ * Each message gets a 64-bit SimHash of its character trigrams, so
+ * near-identical messages get signatures a few bits apart. The signature
+ * is split into four 16-bit bands, and any two signatures at most three
+ * bits apart share at least one band. Bands are counted in a count-min
+ * sketch over a sliding window of two generations, so memory is constant
+ * per Guild no matter how many messages or distinct texts go through.
+ * Every message of the window adds to a few cells of each row, so cells
+ * fill up with unrelated messages as the Guild gets busier. That expected
+ * load is subtracted from each estimate, and the threshold grows with the
+ * load's spread, so ordinary traffic does not read as copies.
+ * Fed by the Guild's Synapse worker; counting is synchronized.
+ */
+public final class DuplicateDetector {
+    /**
+     * Estimated copies of a message within the window that make it a raid.
+     */
+    private static final int THRESHOLD = 8;
+
+    /**
+     * Copies must also stand this many standard deviations above the expected
+     * load of a cell, which is Poisson distributed.
+     */
+    private static final double NOISE_SIGMAS = 4;
+
+    /**
+     * Messages with fewer letters and digits are ignored, since short
+     * replies repeat naturally.
+     */
+    private static final int MIN_LENGTH = 12;
+
+    /**
+     * Only the start of longer messages is hashed, to bound the cost per message.
+     */
+    private static final int MAX_SCANNED = 512;
+
+    /**
+     * Length of a generation of the window, in millis. The window spans one to two generations.
+     */
+    private static final long GENERATION_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * Rows and columns of the count-min sketch. Columns must be a power of two.
+     */
+    private static final int DEPTH = 4, WIDTH = 1024;
+
+    private static final int BANDS = 4;
+
+    private int[] current;
+    private int[] previous;
+    private long generationStart = 0;
+
+    /**
+     * Messages counted in the current and previous generation.
+     */
+    private int currentMessages = 0, previousMessages = 0;
+
+    /**
+     * Counts a message.
+     * @param content Content of the message.
+     * @param messageTime Creation time of message, in epoch millis.
+     * @return True if the message is a near duplicate of at least THRESHOLD messages of the window,
+     * beyond the load the window puts on every cell.
+     */
+    public boolean addMessage(@Nonnull final String content, final long messageTime) {
+        final long signature = signature(content);
+        if (signature == 0) {
+            return false;
+        }
+
+        synchronized (this) {
+            rotate(messageTime);
+            ++currentMessages;
+
+            int copies = 0;
+            for (int band = 0; band < BANDS; ++band) {
+                final long key = mix((long) band << 16 | ((signature >>> (band * 16)) & 0xFFFF));
+                int estimate = Integer.MAX_VALUE;
+                for (int row = 0; row < DEPTH; ++row) {
+                    final int index = row * WIDTH + (int) ((key >>> (row * 16)) & (WIDTH - 1));
+                    estimate = Math.min(estimate, ++current[index] + previous[index]);
+                }
+                copies = Math.max(copies, estimate);
+            }
+
+            // Every message of the window adds to BANDS cells of each row
+            final double load = (double) (currentMessages + previousMessages - 1) * BANDS / WIDTH;
+            return copies - load >= Math.max(THRESHOLD, NOISE_SIGMAS * Math.sqrt(load));
+        }
+    }
+
+    /**
+     * Starts a new generation once the current one is over.
+     * Sketches are allocated on the first message, so quiet Guilds cost nothing.
+     * @param messageTime Creation time of the latest message, in epoch millis.
+     */
+    private void rotate(final long messageTime) {
+        if (current == null) {
+            current = new int[DEPTH * WIDTH];
+            previous = new int[DEPTH * WIDTH];
+            generationStart = messageTime;
+            return;
+        }
+
+        final long elapsed = messageTime - generationStart;
+        if (elapsed < GENERATION_MILLIS) {
+            return;
+        }
+
+        final int[] expired = previous;
+        Arrays.fill(expired, 0);
+        if (elapsed < 2 * GENERATION_MILLIS) {
+            previous = current;
+            current = expired;
+            previousMessages = currentMessages;
+        } else {
+            Arrays.fill(current, 0); // Idle for a whole window
+            previousMessages = 0;
+        }
+        currentMessages = 0;
+        generationStart = messageTime;
+    }
+
+    /**
+     * @param content Content of a message.
+     * @return SimHash of the message's lowercase letter and digit trigrams. 0 if the message is too short.
+     */
+    private static long signature(@Nonnull final String content) {
+        final int[] weights = new int[64];
+        int length = 0;
+        int first = 0, second = 0;
+
+        final int scanned = Math.min(content.length(), MAX_SCANNED);
+        for (int index = 0; index < scanned; ++index) {
+            final char character = content.charAt(index);
+            if (!Character.isLetterOrDigit(character)) {
+                continue;
+            }
+
+            final int third = Character.toLowerCase(character);
+            if (++length >= 3) {
+                final long feature = mix(((long) first << 32) ^ ((long) second << 16) ^ third);
+                for (int bit = 0; bit < 64; ++bit) {
+                    weights[bit] += ((feature >>> bit) & 1) == 1 ? 1 : -1;
+                }
+            }
+            first = second;
+            second = third;
+        }
+
+        if (length < MIN_LENGTH) {
+            return 0;
+        }
+
+        long signature = 0;
+        for (int bit = 0; bit < 64; ++bit) {
+            if (weights[bit] > 0) {
+                signature |= 1L << bit;
+            }
+        }
+        return (signature == 0) ? 1 : signature;
+    }
+
+    /**
+     * @param value Value to hash.
+     * @return Well spread 64-bit hash of the value.
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,134 @@
+package thermostat.util.synapse;
+
+import thermostat.util.enumeration.EstimatorType;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Keeps an exponentially weighted moving average of the delay between
+ * a channel's messages, in O(1) per message and constant memory.
+ * The channel is evaluated when the estimate crosses a threshold around
+ * the estimate of the last evaluation, so a sudden spike is acted upon
+ * after a few messages instead of after a whole window. A steady channel
+ * is still evaluated once every {@code capacity} messages, so controllers
+ * that step the slowmode keep converging.
+ */
+public class EwmaEstimator implements RateEstimator {
+    /**
+     * Amount of delays averaged before the first evaluation.
+     */
+    private static final int MIN_SAMPLES = 3;
+
+    /**
+     * Factor by which the estimate must move away from the
+     * estimate of the last evaluation to trigger a new one.
+     */
+    private static final double CROSSING = 1.25;
+
+    /**
+     * Amount of messages the average spans. The weight of
+     * each new delay is {@code 2 / (capacity + 1)}.
+     */
+    private volatile int capacity;
+
+    /**
+     * Set when the estimate is released; the producer resets on its next message.
+     */
+    private volatile boolean released = false;
+
+    // Owned by the producer.
+    private long lastTime = 0;
+    private double estimate = 0;
+    private int samples = 0;
+    private double reference = 0;
+    private int sinceEvaluation = 0;
+
+    /**
+     * @param capacity Amount of messages the average spans.
+     */
+    public EwmaEstimator(final int capacity) {
+        setCapacity(capacity);
+    }
+
+    @Nullable
+    @Override
+    public RateReading addMessage(final long messageTime) {
+        if (released) {
+            released = false;
+            lastTime = 0;
+            samples = 0;
+            reference = 0;
+            sinceEvaluation = 0;
+        }
+
+        if (lastTime == 0) {
+            lastTime = messageTime;
+            return null;
+        }
+
+        final long gap = Math.max(messageTime - lastTime, 0);
+        lastTime = Math.max(lastTime, messageTime);
+
+        final int span = capacity;
+        estimate = (samples == 0) ? gap : estimate + (2.0 / (span + 1)) * (gap - estimate);
+        ++samples;
+        ++sinceEvaluation;
+
+        if (samples < MIN_SAMPLES) {
+            return null;
+        }
+
+        // Wait for the estimate to cross a threshold, or for a window's worth of messages
+        if (reference > 0 && sinceEvaluation < span
+                && estimate < reference * CROSSING && estimate > reference / CROSSING) {
+            return null;
+        }
+
+        reference = Math.max(estimate, 1);
+        sinceEvaluation = 0;
+        return RateReading.of(Math.round(estimate));
+    }
+
+    /**
+     * Folds the time since the latest message into the estimate, without
+     * keeping it, so a channel that suddenly stops is evaluated as well.
+     * @param now Current time, in epoch millis.
+     * @return A reading if the open delay pushes the estimate past its threshold.
+     */
+    @Nullable
+    @Override
+    public RateReading poll(final long now) {
+        if (released || samples < MIN_SAMPLES || reference <= 0 || now <= lastTime) {
+            return null;
+        }
+
+        final double pending = estimate + (2.0 / (capacity + 1)) * ((now - lastTime) - estimate);
+        if (pending < reference * CROSSING) {
+            return null;
+        }
+
+        reference = pending;
+        sinceEvaluation = 0;
+        return RateReading.of(Math.round(pending));
+    }
+
+    @Override
+    public void release() {
+        released = true;
+    }
+
+    @Override
+    public void setCapacity(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Estimator capacity must be positive.");
+        }
+        this.capacity = capacity;
+    }
+
+    @Nonnull
+    @Override
+    public EstimatorType getType() {
+        return EstimatorType.EWMA;
+    }
+}
@@ -0,0 +1,48 @@
+package thermostat.util.synapse;
+
+import thermostat.util.entities.ChannelSettings;
+import thermostat.util.enumeration.ControllerType;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Holds the slowmode while the message rate stays within a band
+ * around the target, and only moves it once the rate leaves the band.
+ * Raises quickly and lowers gently, so a channel does not flap
+ * between two values when its rate hovers around a threshold.
+ */
+public final class HysteresisController implements SlowmodeController {
+    /**
+     * Relative width of the band around the target delay.
+     */
+    private static final double BAND = 0.35;
+
+    /**
+     * Minimum steps when raising and lowering the slowmode, in seconds.
+     */
+    private static final int RAISE_STEP = 5, LOWER_STEP = 2;
+
+    /**
+     * Highest slowmode raises go up to if the channel has no upper bound, in seconds.
+     */
+    private static final int DEFAULT_CEILING = 120;
+
+    @Override
+    public int nextSlowmode(final int slowmode, final long averageDelay, @Nonnull final ChannelSettings settings) {
+        final double target = SlowmodeController.targetDelay(settings);
+
+        if (averageDelay < target * (1 - BAND)) { // Too fast: double up, at least by RAISE_STEP
+            final int ceiling = (settings.max > 0) ? settings.max : DEFAULT_CEILING;
+            return Math.max(slowmode, Math.min(slowmode + Math.max(RAISE_STEP, slowmode), ceiling));
+        } else if (averageDelay > target * (1 + BAND)) { // Calm: step down by a quarter
+            return slowmode - Math.max(LOWER_STEP, slowmode / 4);
+        }
+        return slowmode; // Within the band
+    }
+
+    @Nonnull
+    @Override
+    public ControllerType getType() {
+        return ControllerType.HYSTERESIS;
+    }
+}
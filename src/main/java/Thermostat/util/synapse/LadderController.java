@@ -0,0 +1,63 @@
+package thermostat.util.synapse;
+
+import thermostat.util.entities.ChannelSettings;
+import thermostat.util.enumeration.ControllerType;
+
+import javax.annotation.Nonnull;
+
+/**
+ * The original Synapse strategy: a fixed ladder of delay thresholds,
+ * each adding a set amount of seconds to the current slowmode.
+ * Stateless, so every channel shares the same instance of each type.
+ */
+public final class LadderController implements SlowmodeController {
+    static final LadderController INSTANCE = new LadderController(ControllerType.LADDER);
+
+    /**
+     * The ladder of adaptive channels, which are given delays relative to their baseline.
+     * @see ChannelBaseline#normalize(long)
+     */
+    static final LadderController ADAPTIVE = new LadderController(ControllerType.ADAPTIVE);
+
+    private final ControllerType type;
+
+    private LadderController(@Nonnull final ControllerType type) {
+        this.type = type;
+    }
+
+    @Override
+    public int nextSlowmode(final int slowmode, final long averageDelay, @Nonnull final ChannelSettings settings) {
+        final float offset = settings.sensOffset;
+
+        // accounting for each delay of the messages
+        // this function picks an appropriate slowmode
+        // adjustment number for each case.
+        if (averageDelay <= 100 * offset) {
+            return slowmode + 20;
+        } else if (averageDelay <= 250 * offset) {
+            return slowmode + 10;
+        } else if (averageDelay <= 500 * offset) {
+            return slowmode + 6;
+        } else if (averageDelay <= 750 * offset) {
+            return slowmode + 4;
+        } else if (averageDelay <= 1000 * offset) {
+            return slowmode + 2;
+        } else if (averageDelay <= 1250 * offset) {
+            return slowmode + 1;
+        } else if (averageDelay <= 1500 * offset) {
+            return slowmode;
+        } else if (averageDelay <= 2000 * offset) {
+            return slowmode - 1;
+        } else if (averageDelay <= 2500 * offset) {
+            return slowmode - 2;
+        } else {
+            return slowmode - 4;
+        }
+    }
+
+    @Nonnull
+    @Override
+    public ControllerType getType() {
+        return type;
+    }
+}
@@ -0,0 +1,106 @@
+package thermostat.util.synapse;
+
+/**
+ * Decides which messages of a very busy channel are recorded by its estimator.
+ * Below {@link #SAMPLING_RATE} messages per second every message is recorded.
+ * Above it, only every k-th message is, with k the smallest power of two that
+ * brings the recorded rate back under the limit, so the work spent on a channel
+ * stays bounded however fast it gets. Every k-th message of a window spans
+ * the same time as all of them, so dividing the sampled average delay by k
+ * misses at most k - 1 gaps of the window's edge. With steady traffic the
+ * relative error is below 1 / (messages in the window), about 1% with a full
+ * 100 message window. With random arrivals it stays under that on average,
+ * but reaches a few percent when one of the missed gaps is unusually long.
+ * Owned by the channel's producer; only the factor is read by other threads.
+ */
+public final class MessageSampler {
+    /**
+     * Messages per second above which a channel is sampled, and the recorded
+     * rate sampling aims for. Sampling is lowered once the recorded rate falls under half of it.
+     */
+    public static final int SAMPLING_RATE = 100;
+
+    /**
+     * Largest sampling factor. Power of two.
+     */
+    private static final int MAX_FACTOR = 64;
+
+    /**
+     * Second being counted, in seconds since the epoch.
+     */
+    private long second = -1;
+
+    /**
+     * Messages of the second being counted.
+     */
+    private int count = 0;
+
+    /**
+     * Messages seen since the latest recorded one.
+     */
+    private int skipped = 0;
+
+    /**
+     * Only every factor-th message is recorded. Power of two.
+     */
+    private volatile int factor = 1;
+
+    /**
+     * Counts a message and adjusts the sampling factor once a second has passed.
+     * @param messageTime Creation time of message, in epoch millis.
+     * @return Whether the sampling factor has changed.
+     */
+    public boolean count(final long messageTime) {
+        final long now = messageTime / 1000;
+        if (now == second) {
+            ++count;
+            return false;
+        }
+
+        final int rate = (now == second + 1) ? count : 0; // Seconds without messages count as zero
+        second = now;
+        count = 1;
+        return adjust(rate);
+    }
+
+    /**
+     * @return Whether the latest counted message should be recorded.
+     */
+    public boolean sample() {
+        if (++skipped < factor) {
+            return false;
+        }
+        skipped = 0;
+        return true;
+    }
+
+    /**
+     * @return Amount of messages each recorded message stands for.
+     */
+    public int getFactor() {
+        return factor;
+    }
+
+    /**
+     * Raises the factor as soon as the rate needs it, and lowers it a step
+     * at a time, once the recorded rate would stay under half the limit.
+     * @param rate Messages of the latest second.
+     * @return Whether the factor has changed.
+     */
+    private boolean adjust(final int rate) {
+        final int current = factor;
+        int next = current;
+        while (next < MAX_FACTOR && rate > (long) SAMPLING_RATE * next) {
+            next <<= 1;
+        }
+        if (next == current && next > 1 && rate < (long) SAMPLING_RATE * (next >> 1) / 2) {
+            next >>= 1;
+        }
+        if (next == current) {
+            return false;
+        }
+        factor = next;
+        skipped = 0;
+        return true;
+    }
+}
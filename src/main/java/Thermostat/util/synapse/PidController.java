@@ -0,0 +1,112 @@
+package thermostat.util.synapse;
+
+import net.dv8tion.jda.api.entities.TextChannel;
+import thermostat.util.entities.ChannelSettings;
+import thermostat.util.enumeration.ControllerType;
+
+import javax.annotation.Nonnull;
+
+/**
+ * PID controller that steers a channel's message rate towards the target rate.
+ * The error is the logarithm of the measured rate over the target, so a channel
+ * twice as fast as the target is as far off as one twice as slow. The integral
+ * term holds the slowmode that keeps the channel at the target once it settles.
+ * The derivative term follows the measured rate rather than the error, and
+ * is spread over at least {@link #MIN_DERIVATIVE_DT}, so back-to-back
+ * evaluations or a change of sensitivity do not kick the slowmode up.
+ * Once the channel is within {@link #TOLERANCE} of the target, the integral
+ * stops moving and the slowmode is left alone.
+ */
+public final class PidController implements SlowmodeController {
+    /**
+     * Gains: seconds of slowmode per unit of error, per unit of error-second
+     * and per unit of error change per second.
+     */
+    private static final double KP = 6, KI = 2, KD = 2;
+
+    /**
+     * Largest ratio of the measured rate over the target taken into account,
+     * to keep single bursts from saturating the output.
+     */
+    private static final double MAX_RATIO = 11;
+
+    /**
+     * Error within which the channel counts as on target. About 10% of the target rate.
+     */
+    private static final double TOLERANCE = 0.1;
+
+    /**
+     * Longest time between evaluations that the integral accounts for, in seconds.
+     */
+    private static final double MAX_DT = 60;
+
+    /**
+     * Shortest time the derivative is taken over, in seconds. About the interval between evaluations.
+     */
+    private static final double MIN_DERIVATIVE_DT = 10;
+
+    /**
+     * Highest slowmode the integral may build up to if the channel has no upper bound, in seconds.
+     */
+    private static final int DEFAULT_CEILING = 120;
+
+    private double integral = 0;
+
+    /**
+     * Logarithm of the measured rate of the previous evaluation, in messages per milli.
+     */
+    private double lastLogRate = 0;
+    private long lastTime = 0;
+
+    @Override
+    public int nextSlowmode(final int slowmode, final long averageDelay, @Nonnull final ChannelSettings settings) {
+        return nextSlowmode(slowmode, averageDelay, settings, System.currentTimeMillis());
+    }
+
+    /**
+     * @param now Time of the evaluation, in epoch millis.
+     * @see #nextSlowmode(int, long, ChannelSettings)
+     */
+    synchronized int nextSlowmode(final int slowmode, final long averageDelay,
+                                  @Nonnull final ChannelSettings settings, final long now)
+    {
+        final double targetDelay = SlowmodeController.targetDelay(settings);
+        final double logRate = -Math.log(Math.max(averageDelay, targetDelay / MAX_RATIO));
+        final double error = logRate + Math.log(targetDelay);
+        final double ceiling = Math.min((settings.max > 0) ? settings.max : DEFAULT_CEILING, TextChannel.MAX_SLOWMODE);
+
+        if (lastTime == 0) {
+            // First evaluation: start from the current slowmode instead of jumping to zero.
+            integral = clamp((slowmode - KP * error) / KI, settings.min / KI, ceiling / KI);
+            lastLogRate = logRate;
+            lastTime = now;
+        }
+
+        final double dt = clamp((now - lastTime) / 1000d, 0, MAX_DT);
+        final double derivative = (logRate - lastLogRate) / Math.max(dt, MIN_DERIVATIVE_DT);
+
+        // Integrate with anti-windup: the integral term alone stays within the bounds.
+        if (Math.abs(error) >= TOLERANCE) {
+            integral = clamp(integral + error * dt, settings.min / KI, ceiling / KI);
+        }
+
+        lastLogRate = logRate;
+        lastTime = now;
+
+        final double output = clamp(KP * error + KI * integral + KD * derivative, settings.min, ceiling);
+        if (Math.abs(output - slowmode) < 1) {
+            return slowmode; // Not worth a change
+        }
+        return (int) Math.round(output);
+    }
+
+    @Nonnull
+    @Override
+    public ControllerType getType() {
+        return ControllerType.PID;
+    }
+
+    private static double clamp(final double value, final double min, final double max) {
+        return Math.max(min, Math.min(value, max));
+    }
+}
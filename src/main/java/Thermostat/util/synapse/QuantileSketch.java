@@ -0,0 +1,165 @@
+package thermostat.util.synapse;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+
+/**
+ * Streaming quantile sketch of delays, with logarithmic buckets.
+ * Each bucket covers delays a fixed ratio apart, so any quantile is
+ * known to within a few percent of its value, and the sketch has a fixed
+ * size (under 1 KB) no matter how many delays it has seen. Two sketches
+ * merge by adding their buckets, and halving every bucket ages old data.
+ * Written by one thread only; readers may see a slightly stale state.
+ */
+public final class QuantileSketch {
+    /**
+     * Version of the serialized form.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Delays up to this value share the first bucket, in millis.
+     */
+    private static final double MIN_DELAY = 10;
+
+    /**
+     * Ratio between the bounds of a bucket.
+     */
+    private static final double GAMMA = 1.08;
+
+    /**
+     * Amount of buckets. Covers delays up to an hour; longer ones share the last bucket.
+     */
+    private static final int BUCKETS = 2 + (int) Math.ceil(Math.log(3_600_000 / MIN_DELAY) / Math.log(GAMMA));
+
+    private final int[] counts = new int[BUCKETS];
+    private volatile long total = 0;
+
+    /**
+     * Adds a delay to the sketch.
+     * @param delay Delay, in millis.
+     */
+    public void add(final long delay) {
+        ++counts[indexOf(delay)];
+        total = total + 1; // Single writer
+    }
+
+    /**
+     * Adds every delay of another sketch to this one.
+     * @param other Sketch to merge.
+     */
+    public void merge(@Nonnull final QuantileSketch other) {
+        long added = 0;
+        for (int index = 0; index < BUCKETS; ++index) {
+            final int count = other.counts[index];
+            counts[index] += count;
+            added += count;
+        }
+        total = total + added;
+    }
+
+    /**
+     * Halves every bucket, so older delays weigh less than newer ones.
+     */
+    public void decay() {
+        long kept = 0;
+        for (int index = 0; index < BUCKETS; ++index) {
+            counts[index] >>>= 1;
+            kept += counts[index];
+        }
+        total = kept;
+    }
+
+    /**
+     * @return Amount of delays in the sketch.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @param quantile Quantile to look up, between 0 and 1.
+     * @return Approximate delay at the quantile, in millis. 0 if the sketch is empty.
+     */
+    public long getQuantile(final double quantile) {
+        final long size = total;
+        if (size == 0) {
+            return 0;
+        }
+
+        final long rank = (long) Math.floor(quantile * (size - 1));
+        long seen = 0;
+        for (int index = 0; index < BUCKETS; ++index) {
+            seen += counts[index];
+            if (seen > rank) {
+                return valueOf(index);
+            }
+        }
+        return valueOf(BUCKETS - 1);
+    }
+
+    /**
+     * @return Serialized form of the sketch.
+     */
+    @Nonnull
+    public byte[] toBytes() {
+        final ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES * (2 + BUCKETS));
+        buffer.putInt(VERSION).putInt(BUCKETS);
+        for (final int count : counts) {
+            buffer.putInt(count);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @param bytes Serialized form of a sketch.
+     * @return The deserialized sketch. Null if the data is missing or does not match this version.
+     */
+    @Nullable
+    public static QuantileSketch fromBytes(@Nullable final byte[] bytes) {
+        if (bytes == null || bytes.length != Integer.BYTES * (2 + BUCKETS)) {
+            return null;
+        }
+
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.getInt() != VERSION || buffer.getInt() != BUCKETS) {
+            return null;
+        }
+
+        final QuantileSketch sketch = new QuantileSketch();
+        long total = 0;
+        for (int index = 0; index < BUCKETS; ++index) {
+            final int count = buffer.getInt();
+            if (count < 0) {
+                return null;
+            }
+            sketch.counts[index] = count;
+            total += count;
+        }
+        sketch.total = total;
+        return sketch;
+    }
+
+    /**
+     * @param delay Delay, in millis.
+     * @return Index of the delay's bucket.
+     */
+    private static int indexOf(final long delay) {
+        if (delay <= MIN_DELAY) {
+            return 0;
+        }
+        return Math.min(1 + (int) (Math.log(delay / MIN_DELAY) / Math.log(GAMMA)), BUCKETS - 1);
+    }
+
+    /**
+     * @param index Index of a bucket.
+     * @return Geometric middle of the bucket's delays, in millis.
+     */
+    private static long valueOf(final int index) {
+        if (index == 0) {
+            return (long) MIN_DELAY;
+        }
+        return Math.round(MIN_DELAY * Math.pow(GAMMA, index - 0.5));
+    }
+}
@@ -0,0 +1,309 @@
+package thermostat.util.synapse;
+
+import thermostat.util.entities.ChannelSettings;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the aggregate message rate of every monitored channel of a Guild
+ * and detects coordinated bursts over many channels at once.
+ * Messages are counted in a ring of per-second buckets; each bucket also
+ * keeps a 64-bit mask of the channels it has seen, so the amount of busy
+ * channels is known without tracking them one by one. A slow moving
+ * average of the per-second rate serves as the Guild's baseline. No raid is
+ * declared before the baseline has learned a minute of the Guild's pace,
+ * and a raid that outlasts {@link #MAX_RAID_MILLIS} makes its pace the new baseline.
+ * Fed by the Guild's Synapse worker and polled by the decay tick, so the methods are synchronized.
+ */
+public final class RaidDetector {
+    /**
+     * Slowmode applied to the monitored channels during a raid, in seconds.
+     */
+    public static final int RAID_SLOWMODE = 30;
+
+    /**
+     * Amount of seconds, and buckets, the aggregate rate spans.
+     */
+    private static final int SPAN = 10;
+
+    /**
+     * A raid needs at least this many messages in the span...
+     */
+    private static final int ENTER_MESSAGES = 40;
+
+    /**
+     * ...at least this many times the baseline's messages in the span...
+     */
+    private static final double ENTER_FACTOR = 4;
+
+    /**
+     * ...spread over at least this many channels.
+     */
+    private static final int ENTER_CHANNELS = 3;
+
+    /**
+     * A raid ends once the span holds at most this many messages,
+     * or twice the baseline's, whichever is higher.
+     */
+    private static final int EXIT_MESSAGES = 15;
+
+    /**
+     * Minimum duration of a raid, in millis.
+     */
+    private static final long MIN_RAID_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Maximum duration of a raid, in millis. Traffic that keeps up for
+     * this long is the Guild's new pace, not a raid.
+     */
+    private static final long MAX_RAID_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * Weight of each second in the baseline. About five minutes of memory.
+     */
+    private static final double BASELINE_WEIGHT = 1.0 / 300;
+
+    /**
+     * Seconds the baseline must have learned before a raid can start.
+     */
+    private static final int WARMUP_SECONDS = 60;
+
+    private final int[] counts = new int[SPAN];
+    private final long[] channels = new long[SPAN];
+    private long currentSecond = -1, firstSecond = -1;
+    private int total = 0;
+
+    /**
+     * Average messages per second of the Guild. Frozen during raids.
+     */
+    private double baseline = 0;
+
+    /**
+     * Seconds folded into the baseline so far. Until they reach the baseline's
+     * memory, the baseline is their plain average rather than a moving one.
+     */
+    private long learned = 0;
+
+    /**
+     * Start time of the ongoing raid, in epoch millis. 0 if there is none.
+     */
+    private volatile long raidStart = 0;
+
+    /**
+     * Highest amount of messages in a span during the ongoing or latest raid.
+     */
+    private int peak = 0;
+
+    /**
+     * Slowmode of each channel right before the ongoing raid.
+     * K: Channel ID -> V: Slowmode, in seconds
+     */
+    private final Map<String, Integer> previousSlowmodes = new ConcurrentHashMap<>();
+
+    /**
+     * Counts a message of a monitored channel.
+     * @param channelId ID of the message's channel.
+     * @param messageTime Creation time of message, in epoch millis.
+     * @return True if this message started a raid.
+     */
+    public synchronized boolean addMessage(@Nonnull final String channelId, final long messageTime) {
+        final long second = TimeUnit.MILLISECONDS.toSeconds(messageTime);
+        advance(second);
+        if (second <= currentSecond - SPAN) {
+            return false; // Late message, older than every bucket
+        }
+
+        final int index = Math.floorMod(second, SPAN);
+        ++counts[index];
+        channels[index] |= 1L << (channelId.hashCode() & 63);
+        ++total;
+
+        if (raidStart != 0) {
+            peak = Math.max(peak, total);
+            return false;
+        }
+
+        if (learned < WARMUP_SECONDS) {
+            return false;
+        }
+        if (total < Math.max(ENTER_MESSAGES, ENTER_FACTOR * baseline * SPAN) || busyChannels() < ENTER_CHANNELS) {
+            return false;
+        }
+
+        raidStart = messageTime;
+        peak = total;
+        return true;
+    }
+
+    /**
+     * Checks whether the ongoing raid is over.
+     * @param now Current time, in epoch millis.
+     * @return True if the raid ended with this check.
+     */
+    public synchronized boolean poll(final long now) {
+        advance(TimeUnit.MILLISECONDS.toSeconds(now));
+        if (raidStart == 0 || now - raidStart < MIN_RAID_MILLIS) {
+            return false;
+        }
+
+        if (now - raidStart >= MAX_RAID_MILLIS) {
+            baseline = Math.max(baseline, (double) total / SPAN);
+        } else if (total > Math.max(EXIT_MESSAGES, 2 * baseline * SPAN)) {
+            return false;
+        }
+
+        raidStart = 0;
+        return true;
+    }
+
+    /**
+     * @return Whether a raid is ongoing.
+     */
+    public boolean isRaiding() {
+        return raidStart != 0;
+    }
+
+    /**
+     * @return Start time of the ongoing raid, in epoch millis. 0 if there is none.
+     */
+    public long getRaidStart() {
+        return raidStart;
+    }
+
+    /**
+     * @return Highest amount of messages in a span during the ongoing or latest raid.
+     */
+    public synchronized int getPeak() {
+        return peak;
+    }
+
+    /**
+     * @return Amount of messages in the span, as of the latest message or check.
+     */
+    public synchronized int getRecentMessages() {
+        return total;
+    }
+
+    /**
+     * @return Average messages per second of the Guild.
+     */
+    public synchronized double getBaseline() {
+        return baseline;
+    }
+
+    /**
+     * @return Whether the baseline has learned enough of the Guild's pace to detect raids.
+     */
+    public synchronized boolean isWarm() {
+        return learned >= WARMUP_SECONDS;
+    }
+
+    /**
+     * Puts back a baseline learned before a restart, so raids are
+     * measured against the Guild's usual pace right away.
+     * @param baseline Average messages per second of the Guild. Ignored if negative.
+     */
+    public synchronized void setBaseline(final double baseline) {
+        if (baseline >= 0 && Double.isFinite(baseline)) {
+            this.baseline = baseline;
+            learned = Math.max(learned, Math.round(1 / BASELINE_WEIGHT));
+        }
+    }
+
+    /**
+     * @return Slowmodes of the channels right before the ongoing raid.
+     * K: Channel ID -> V: Slowmode, in seconds
+     */
+    @Nonnull
+    public Map<String, Integer> getPreviousSlowmodes() {
+        return previousSlowmodes;
+    }
+
+    /**
+     * @param settings Settings of a channel.
+     * @return Lowest slowmode the channel may have, in seconds. Its minimum outside of raids.
+     */
+    public int getFloor(@Nonnull final ChannelSettings settings) {
+        return (raidStart == 0) ? settings.min : getRaidSlowmode(settings);
+    }
+
+    /**
+     * @param settings Settings of a channel.
+     * @return Slowmode of the channel during a raid, kept within its bounds, in seconds.
+     */
+    public static int getRaidSlowmode(@Nonnull final ChannelSettings settings) {
+        final int raid = (settings.max > 0) ? Math.min(RAID_SLOWMODE, settings.max) : RAID_SLOWMODE;
+        return Math.max(settings.min, raid);
+    }
+
+    /**
+     * Moves the span forward to a new second, emptying the buckets
+     * that fall out of it and folding them into the baseline.
+     * @param second Current second, in epoch seconds.
+     */
+    private void advance(final long second) {
+        if (currentSecond == -1) {
+            currentSecond = firstSecond = second;
+            return;
+        }
+        if (second <= currentSecond) {
+            return;
+        }
+
+        final long elapsed = second - currentSecond;
+        for (long step = 1; step <= Math.min(elapsed, SPAN); ++step) {
+            final int index = (int) Math.floorMod(currentSecond + step, (long) SPAN);
+            if (currentSecond + step - SPAN >= firstSecond) {
+                learn(counts[index]); // Buckets before the first message were never counted
+            }
+            total -= counts[index];
+            counts[index] = 0;
+            channels[index] = 0;
+        }
+        if (elapsed > SPAN) {
+            learnSilence(elapsed - SPAN);
+        }
+        currentSecond = second;
+    }
+
+    /**
+     * Folds the count of a second that left the span into the baseline.
+     * @param count Messages of the second.
+     */
+    private void learn(final int count) {
+        if (raidStart == 0) {
+            ++learned;
+            baseline += Math.max(BASELINE_WEIGHT, 1.0 / learned) * (count - baseline);
+        }
+    }
+
+    /**
+     * Folds seconds without any message into the baseline.
+     * @param seconds Amount of silent seconds.
+     */
+    private void learnSilence(final long seconds) {
+        if (raidStart != 0) {
+            return;
+        }
+        final long averaged = Math.min(seconds, Math.max(Math.round(1 / BASELINE_WEIGHT) - learned, 0));
+        if (averaged > 0) {
+            baseline *= (double) learned / (learned + averaged);
+        }
+        baseline *= Math.pow(1 - BASELINE_WEIGHT, seconds - averaged);
+        learned += seconds;
+    }
+
+    /**
+     * @return Approximate amount of channels with messages in the span.
+     */
+    private int busyChannels() {
+        long mask = 0;
+        for (final long bucket : channels) {
+            mask |= bucket;
+        }
+        return Long.bitCount(mask);
+    }
+}
@@ -0,0 +1,84 @@
+package thermostat.util.synapse;
+
+import thermostat.util.enumeration.EstimatorType;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Measures the message rate of a monitored channel and decides
+ * when the channel is due for an evaluation.
+ * Messages are added by the channel's single producer thread only;
+ * the other methods may be called from any thread.
+ * @see thermostat.util.entities.MonitoredChannel
+ */
+public interface RateEstimator {
+    /**
+     * Adds a message to the estimate. Must only be called by the channel's producer.
+     * @param messageTime Creation time of message, in epoch millis.
+     * @return A reading if the channel is due for an evaluation, null otherwise.
+     * The reading belongs to the caller until it is given back with {@link #recycle(RateReading)}.
+     */
+    @Nullable
+    RateReading addMessage(long messageTime);
+
+    /**
+     * Checks whether the channel is due for an evaluation because of the time
+     * that has passed since its latest message. Called periodically by the
+     * channel's producer, which is the only thread that may call it.
+     * @param now Current time, in epoch millis.
+     * @return A reading if the channel is due for an evaluation, null otherwise.
+     */
+    @Nullable
+    default RateReading poll(long now) {
+        return null;
+    }
+
+    /**
+     * Gives back a reading that was handed out by {@link #addMessage(long)}.
+     * @param reading Reading that has been evaluated.
+     */
+    default void recycle(@Nonnull RateReading reading) {
+    }
+
+    /**
+     * @return Creation times of the messages the estimate currently holds, oldest first,
+     * so they can be replayed after a restart. Empty if the estimator keeps none.
+     */
+    @Nonnull
+    default long[] getRecentMessages() {
+        return new long[0];
+    }
+
+    /**
+     * Forgets every message and frees the buffers of the estimate.
+     */
+    void release();
+
+    /**
+     * Changes the amount of messages the estimate spans.
+     * Applied by the producer, on the next message.
+     * @param capacity New amount of messages, positive.
+     */
+    void setCapacity(int capacity);
+
+    /**
+     * @return Type of this estimator.
+     */
+    @Nonnull
+    EstimatorType getType();
+
+    /**
+     * @param type Type of estimator.
+     * @param capacity Amount of messages the estimate spans.
+     * @return A new, empty estimator of the given type.
+     */
+    @Nonnull
+    static RateEstimator create(@Nonnull final EstimatorType type, final int capacity) {
+        return switch (type) {
+            case EWMA -> new EwmaEstimator(capacity);
+            case BUCKETS -> new BucketEstimator();
+            default -> new WindowEstimator(capacity);
+        };
+    }
+}
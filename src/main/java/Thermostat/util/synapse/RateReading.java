@@ -0,0 +1,25 @@
+package thermostat.util.synapse;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Measurement of a channel's message rate, handed by a RateEstimator
+ * to the evaluator when the channel is due for an evaluation.
+ * @see RateEstimator
+ * @see thermostat.commands.internal.SynapseMonitor
+ */
+public interface RateReading {
+    /**
+     * @return Average delay between the channel's messages, in millis.
+     */
+    long getAverageDelay();
+
+    /**
+     * @param averageDelay Average delay between messages, in millis.
+     * @return An immutable reading of the given delay.
+     */
+    @Nonnull
+    static RateReading of(final long averageDelay) {
+        return () -> averageDelay;
+    }
+}
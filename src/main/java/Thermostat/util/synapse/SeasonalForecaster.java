@@ -0,0 +1,225 @@
+package thermostat.util.synapse;
+
+import thermostat.util.entities.ChannelSettings;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Forecasts the hourly message count of a channel with Holt-Winters
+ * smoothing: a level, a trend, an offset for every hour of the day and
+ * an offset for every day of the week, 33 doubles in all. The model is
+ * updated in O(1) whenever an hour closes. Shortly before an hour that
+ * is forecast to be a peak, it raises the channel's slowmode floor, and
+ * lowers it again once the peak is over.
+ * Updated by the channel's producer only; readers may see a slightly stale model.
+ */
+public final class SeasonalForecaster {
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * Smoothing factors of the level, trend, hourly and daily offsets.
+     */
+    private static final double ALPHA = 0.2, BETA = 0.01, GAMMA = 0.15, DELTA = 0.02;
+
+    /**
+     * Amount of closed hours needed before forecasts are trusted. One week.
+     */
+    private static final long WARMUP_HOURS = 24 * 7;
+
+    /**
+     * Time before a peak hour at which the floor is raised, in millis.
+     */
+    private static final long LEAD_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * An hour is a peak when its forecast is at least this many times the level.
+     */
+    private static final double PEAK_FACTOR = 1.5;
+
+    /**
+     * Floors applied before a peak, in seconds. The higher one when the forecast
+     * rate alone would reach the controllers' target delay.
+     */
+    private static final int PEAK_FLOOR = 5, HOT_PEAK_FLOOR = 10;
+
+    /**
+     * Length of the serialized model, in bytes.
+     */
+    private static final int SERIALIZED_BYTES = 2 * Long.BYTES + Integer.BYTES + (2 + 24 + 7) * Double.BYTES;
+
+    private double level = 0;
+    private double trend = 0;
+    private final double[] hourly = new double[24];
+    private final double[] daily = new double[7];
+
+    /**
+     * Hour being counted, in hours since the epoch. -1 before the first message.
+     */
+    private long currentHour = -1;
+    private int currentCount = 0;
+    private volatile long hoursSeen = 0;
+
+    /**
+     * Counts a message.
+     * @param messageTime Creation time of message, in epoch millis.
+     */
+    public void addMessage(final long messageTime) {
+        advance(messageTime);
+        if (messageTime / HOUR_MILLIS == currentHour) {
+            ++currentCount;
+        }
+    }
+
+    /**
+     * Closes every hour that has passed, feeding the model their counts.
+     * Hours without messages count as zero. Called by the producer on messages and timer ticks.
+     * @param now Current time, in epoch millis.
+     */
+    public void advance(final long now) {
+        final long hour = now / HOUR_MILLIS;
+        if (currentHour == -1) {
+            currentHour = hour;
+            return;
+        }
+
+        // Past a week of silence only the latest week is replayed
+        final long from = Math.max(currentHour, hour - WARMUP_HOURS);
+        for (long closing = from; closing < hour; ++closing) {
+            update(closing, (closing == currentHour) ? currentCount : 0);
+        }
+        if (hour > currentHour) {
+            currentHour = hour;
+            currentCount = 0;
+        }
+    }
+
+    /**
+     * @return Whether enough hours were seen for the forecasts to be trusted.
+     */
+    public boolean isReady() {
+        return hoursSeen >= WARMUP_HOURS;
+    }
+
+    /**
+     * @param hour Hour to forecast, in hours since the epoch.
+     * @return Expected amount of messages in the hour.
+     */
+    public double forecast(final long hour) {
+        final long ahead = Math.max(hour - currentHour, 0);
+        return Math.max(level + ahead * trend + hourly[hourOfDay(hour)] + daily[dayOfWeek(hour)], 0);
+    }
+
+    /**
+     * @param now Current time, in epoch millis.
+     * @param settings Settings of the channel.
+     * @return Slowmode floor for a forecast peak that starts within the lead time or is ongoing,
+     * within the channel's bounds. The channel's minimum if no peak is forecast.
+     */
+    public int getFloor(final long now, @Nonnull final ChannelSettings settings) {
+        if (!isReady()) {
+            return settings.min;
+        }
+
+        final long hour = (now + LEAD_MILLIS) / HOUR_MILLIS;
+        final double expected = forecast(hour);
+        if (expected < PEAK_FACTOR * Math.max(level, 1)) {
+            return settings.min;
+        }
+
+        final double expectedDelay = HOUR_MILLIS / Math.max(expected, 1);
+        final double target = SlowmodeController.targetDelay(settings);
+        if (expectedDelay >= 2 * target) {
+            return settings.min; // A peak, but still a calm one
+        }
+
+        int floor = (expectedDelay < target) ? HOT_PEAK_FLOOR : PEAK_FLOOR;
+        if (settings.max > 0) {
+            floor = Math.min(floor, settings.max);
+        }
+        return Math.max(floor, settings.min);
+    }
+
+    /**
+     * @return Serialized model, including the hour being counted. Null if no message was counted yet.
+     */
+    @Nullable
+    public byte[] toBytes() {
+        if (currentHour == -1) {
+            return null;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(SERIALIZED_BYTES);
+        buffer.putLong(currentHour).putInt(currentCount).putLong(hoursSeen);
+        buffer.putDouble(level).putDouble(trend);
+        for (final double offset : hourly) {
+            buffer.putDouble(offset);
+        }
+        for (final double offset : daily) {
+            buffer.putDouble(offset);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Replaces the model with a serialized one. Must be called before the producer
+     * starts feeding the forecaster.
+     * @param bytes Serialized form of a model.
+     * @return Whether the model was restored. False if the data is missing or malformed.
+     */
+    public boolean restore(@Nullable final byte[] bytes) {
+        if (bytes == null || bytes.length != SERIALIZED_BYTES) {
+            return false;
+        }
+
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        final long hour = buffer.getLong();
+        final int count = buffer.getInt();
+        final long seen = buffer.getLong();
+        if (hour < -1 || count < 0 || seen < 0) {
+            return false;
+        }
+
+        currentHour = hour;
+        currentCount = count;
+        hoursSeen = seen;
+        level = buffer.getDouble();
+        trend = buffer.getDouble();
+        for (int index = 0; index < hourly.length; ++index) {
+            hourly[index] = buffer.getDouble();
+        }
+        for (int index = 0; index < daily.length; ++index) {
+            daily[index] = buffer.getDouble();
+        }
+        return true;
+    }
+
+    /**
+     * Feeds the count of a closed hour to the model.
+     * @param hour Closed hour, in hours since the epoch.
+     * @param count Messages of the hour.
+     */
+    private void update(final long hour, final int count) {
+        final int hourOfDay = hourOfDay(hour), dayOfWeek = dayOfWeek(hour);
+
+        if (hoursSeen == 0) {
+            level = count;
+        } else {
+            final double previousLevel = level;
+            level = ALPHA * (count - hourly[hourOfDay] - daily[dayOfWeek]) + (1 - ALPHA) * (level + trend);
+            trend = BETA * (level - previousLevel) + (1 - BETA) * trend;
+        }
+        hourly[hourOfDay] = GAMMA * (count - level - daily[dayOfWeek]) + (1 - GAMMA) * hourly[hourOfDay];
+        daily[dayOfWeek] = DELTA * (count - level - hourly[hourOfDay]) + (1 - DELTA) * daily[dayOfWeek];
+        hoursSeen = hoursSeen + 1; // Single writer
+    }
+
+    private static int hourOfDay(final long hour) {
+        return (int) Math.floorMod(hour, 24L);
+    }
+
+    private static int dayOfWeek(final long hour) {
+        return (int) Math.floorMod(hour / 24, 7L);
+    }
+}
@@ -0,0 +1,57 @@
+package thermostat.util.synapse;
+
+import thermostat.util.entities.ChannelSettings;
+import thermostat.util.enumeration.ControllerType;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Decides the slowmode of a monitored channel from its message rate.
+ * Every monitored channel owns its controller, so implementations may
+ * keep state between evaluations of the same channel.
+ * @see thermostat.commands.internal.SynapseMonitor
+ */
+public interface SlowmodeController {
+    /**
+     * Average delay between messages, in millis, that the controllers aim for
+     * at a sensitivity of 1. Middle of the band the ladder leaves untouched.
+     */
+    long TARGET_DELAY = 1375;
+
+    /**
+     * Calculates the slowmode a channel should have.
+     * @param slowmode Slowmode the channel has, or is heading to, in seconds.
+     * @param averageDelay Average delay between the channel's latest messages, in millis.
+     * @param settings Settings of the channel.
+     * @return Slowmode to set, in seconds. Kept within the channel's bounds by the caller.
+     */
+    int nextSlowmode(int slowmode, long averageDelay, @Nonnull ChannelSettings settings);
+
+    /**
+     * @return Type of this controller.
+     */
+    @Nonnull
+    ControllerType getType();
+
+    /**
+     * @param type Type of controller.
+     * @return A new controller of the given type, with fresh state.
+     */
+    @Nonnull
+    static SlowmodeController create(@Nonnull final ControllerType type) {
+        return switch (type) {
+            case PID -> new PidController();
+            case HYSTERESIS -> new HysteresisController();
+            case ADAPTIVE -> LadderController.ADAPTIVE;
+            default -> LadderController.INSTANCE;
+        };
+    }
+
+    /**
+     * @param settings Settings of a channel.
+     * @return Average delay between messages the channel should have, in millis.
+     */
+    static double targetDelay(@Nonnull final ChannelSettings settings) {
+        return TARGET_DELAY * (double) settings.sensOffset;
+    }
+}
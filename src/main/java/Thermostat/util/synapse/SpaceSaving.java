@@ -0,0 +1,160 @@
+package thermostat.util.synapse;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Space-Saving sketch of the heaviest senders of a channel. Keeps a fixed
+ * amount of counters no matter how many distinct authors appear: an author
+ * without a counter takes over the smallest one, inheriting its count as
+ * the error of its own. Every author sending more than a 1/capacity share
+ * of the messages is guaranteed to hold a counter.
+ * Owned by the channel's producer; snapshots are immutable.
+ */
+public final class SpaceSaving {
+    private final long[] authors;
+    private final long[] counts;
+    private final long[] errors;
+    private int size = 0;
+
+    /**
+     * Amount of messages counted since the last reset.
+     */
+    private long total = 0;
+
+    /**
+     * @param capacity Amount of counters.
+     */
+    public SpaceSaving(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Sketch capacity must be positive.");
+        }
+        this.authors = new long[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+    }
+
+    /**
+     * Counts a message of an author.
+     * @param authorId ID of the message's author.
+     */
+    public void add(final long authorId) {
+        ++total;
+
+        int smallest = 0;
+        for (int index = 0; index < size; ++index) {
+            if (authors[index] == authorId) {
+                ++counts[index];
+                return;
+            }
+            if (counts[index] < counts[smallest]) {
+                smallest = index;
+            }
+        }
+
+        if (size < authors.length) {
+            authors[size] = authorId;
+            counts[size] = 1;
+            errors[size] = 0;
+            ++size;
+            return;
+        }
+
+        authors[smallest] = authorId;
+        errors[smallest] = counts[smallest];
+        ++counts[smallest];
+    }
+
+    /**
+     * @return Amount of messages counted since the last reset.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return The counted authors, heaviest first.
+     */
+    @Nonnull
+    public Snapshot snapshot() {
+        final List<Sender> senders = new ArrayList<>(size);
+        for (int index = 0; index < size; ++index) {
+            senders.add(new Sender(authors[index], counts[index], errors[index]));
+        }
+        senders.sort((first, second) -> Long.compare(second.count, first.count));
+        return new Snapshot(Collections.unmodifiableList(senders), total);
+    }
+
+    /**
+     * Forgets every counted message.
+     */
+    public void reset() {
+        size = 0;
+        total = 0;
+    }
+
+    /**
+     * Heaviest senders of a channel over one window.
+     */
+    public static final class Snapshot {
+        /**
+         * Counted authors, heaviest first.
+         */
+        public final List<Sender> senders;
+
+        /**
+         * Messages of the window, from every author.
+         */
+        public final long total;
+
+        private Snapshot(@Nonnull final List<Sender> senders, final long total) {
+            this.senders = senders;
+            this.total = total;
+        }
+
+        /**
+         * @param share Minimum share of the window's messages, between 0 and 1.
+         * @param minimum Minimum amount of messages.
+         * @return Authors that certainly sent at least that share and amount of messages.
+         */
+        @Nonnull
+        public List<Sender> getHeavyHitters(final double share, final long minimum) {
+            final List<Sender> hitters = new ArrayList<>();
+            for (final Sender sender : senders) {
+                final long guaranteed = sender.count - sender.error;
+                if (guaranteed >= minimum && guaranteed >= share * total) {
+                    hitters.add(sender);
+                }
+            }
+            return hitters;
+        }
+    }
+
+    /**
+     * Counter of one author.
+     */
+    public static final class Sender {
+        /**
+         * ID of the author.
+         */
+        public final long authorId;
+
+        /**
+         * Counted messages of the author. Overestimated by at most {@link #error}.
+         */
+        public final long count;
+
+        /**
+         * Messages counted for other authors before this one took over the counter.
+         */
+        public final long error;
+
+        private Sender(final long authorId, final long count, final long error) {
+            this.authorId = authorId;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package thermostat.util.synapse;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hashed timing wheel. Timeouts are hashed by deadline into a ring of
+ * slots, each slot covering one tick; deadlines further than a rotation
+ * away wait for the remaining rounds in their slot. Scheduling and
+ * cancelling are O(1), and advancing the wheel only visits the slots
+ * of the elapsed ticks, no matter how many timeouts are registered.
+ * A wheel is owned by a single thread, which schedules its timeouts and
+ * advances it; only {@link Timeout#cancel()} may be called from other threads.
+ */
+public final class TimingWheel {
+    /**
+     * Length of a tick, in millis.
+     */
+    private final long tickMillis;
+
+    /**
+     * Heads of the slots' lists of timeouts.
+     */
+    private final Timeout[] slots;
+    private final int mask;
+
+    /**
+     * Start time of the next tick to process, in epoch millis.
+     */
+    private long nextTick;
+
+    /**
+     * Index of the slot of the next tick.
+     */
+    private int cursor = 0;
+
+    /**
+     * Amount of timeouts in the wheel, including cancelled ones not yet swept.
+     */
+    private int size = 0;
+
+    /**
+     * Tasks of the due timeouts, run as one batch per advance.
+     */
+    private final List<Runnable> batch = new ArrayList<>();
+
+    /**
+     * @param tickMillis Length of a tick, in millis.
+     * @param wheelSize Amount of slots. Rounded up to a power of two.
+     * @param startMillis Time the wheel starts at, in epoch millis.
+     */
+    public TimingWheel(final long tickMillis, final int wheelSize, final long startMillis) {
+        if (tickMillis < 1 || wheelSize < 1) {
+            throw new IllegalArgumentException("Tick length and wheel size must be positive.");
+        }
+        int slotCount = Integer.highestOneBit(wheelSize);
+        if (slotCount < wheelSize) {
+            slotCount <<= 1;
+        }
+        this.tickMillis = tickMillis;
+        this.slots = new Timeout[slotCount];
+        this.mask = slotCount - 1;
+        this.nextTick = startMillis;
+    }
+
+    /**
+     * Schedules a task, in O(1).
+     * @param deadline Time to run the task at, in epoch millis.
+     * Rounded up to the next tick; past deadlines run on the next tick.
+     * @param task Task to run.
+     * @return Handle to cancel the task with.
+     */
+    @Nonnull
+    public Timeout schedule(final long deadline, @Nonnull final Runnable task) {
+        final long ticks = Math.max((deadline - nextTick + tickMillis - 1) / tickMillis, 0);
+        final Timeout timeout = new Timeout(task, ticks / slots.length);
+        final int slot = (int) ((cursor + ticks) & mask);
+        timeout.next = slots[slot];
+        slots[slot] = timeout;
+        ++size;
+        return timeout;
+    }
+
+    /**
+     * Processes every tick that has elapsed, then runs the
+     * tasks of the due timeouts as one batch.
+     * @param now Current time, in epoch millis.
+     * @return Amount of tasks that were run.
+     */
+    public int advance(final long now) {
+        while (nextTick <= now) {
+            expire(cursor);
+            cursor = (cursor + 1) & mask;
+            nextTick += tickMillis;
+        }
+
+        final int fired = batch.size();
+        try {
+            for (final Runnable task : batch) {
+                task.run();
+            }
+        } finally {
+            batch.clear();
+        }
+        return fired;
+    }
+
+    /**
+     * @return Start time of the next tick, in epoch millis. Advancing before it does nothing.
+     */
+    public long getNextTick() {
+        return nextTick;
+    }
+
+    /**
+     * @return Amount of timeouts in the wheel.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Moves the due timeouts of a slot to the batch, sweeping the cancelled
+     * ones and counting down the rounds of the others.
+     * @param slot Index of slot.
+     */
+    private void expire(final int slot) {
+        Timeout previous = null;
+        Timeout timeout = slots[slot];
+        while (timeout != null) {
+            final Timeout next = timeout.next;
+            final boolean due = timeout.rounds-- <= 0;
+
+            if (due || timeout.cancelled) {
+                if (previous == null) {
+                    slots[slot] = next;
+                } else {
+                    previous.next = next;
+                }
+                timeout.next = null;
+                --size;
+                if (!timeout.cancelled) {
+                    batch.add(timeout.task);
+                }
+            } else {
+                previous = timeout;
+            }
+            timeout = next;
+        }
+    }
+
+    /**
+     * A scheduled task of a TimingWheel.
+     */
+    public static final class Timeout {
+        private final Runnable task;
+        private long rounds;
+        private Timeout next;
+        private volatile boolean cancelled = false;
+
+        private Timeout(@Nonnull final Runnable task, final long rounds) {
+            this.task = task;
+            this.rounds = rounds;
+        }
+
+        /**
+         * Cancels the task, in O(1). Safe to call from any thread.
+         * The timeout is swept from the wheel when its slot comes up.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * @return Whether the task was cancelled.
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package thermostat.util.synapse;
+
+import thermostat.util.entities.MessageWindow;
+import thermostat.util.enumeration.EstimatorType;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Averages the delays between the latest messages of a channel and asks
+ * for an evaluation every time its window of messages fills up.
+ * The producer owns the active window. A full window is handed over
+ * whole to the evaluator and a spare window takes its place, so adding
+ * a message never waits on an evaluation and no message is lost or
+ * counted twice.
+ */
+public class WindowEstimator implements RateEstimator {
+    /**
+     * Time after which the messages of an unfilled window are discarded, in millis.
+     */
+    private static final long STALE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Window that new messages are added to.
+     */
+    private final AtomicReference<MessageWindow> active;
+
+    /**
+     * Window returned by the evaluator, ready to be swapped in.
+     */
+    private final AtomicReference<MessageWindow> spare = new AtomicReference<>();
+
+    /**
+     * Capacity the windows should have. Applied by the producer.
+     */
+    private volatile int capacity;
+
+    /**
+     * @param capacity Capacity of the message windows.
+     */
+    public WindowEstimator(final int capacity) {
+        this.capacity = capacity;
+        this.active = new AtomicReference<>(new MessageWindow(capacity));
+    }
+
+    @Nullable
+    @Override
+    public RateReading addMessage(final long messageTime) {
+        while (true) {
+            final MessageWindow window = active.get();
+            prepare(window);
+            window.add(messageTime);
+
+            if (!window.isFull()) {
+                if (active.get() == window) {
+                    return null;
+                }
+                continue; // Window was released meanwhile, add the message to its replacement
+            }
+
+            final MessageWindow next = takeSpare();
+            if (active.compareAndSet(window, next)) {
+                return window;
+            }
+            spare.set(next); // Window was released meanwhile, retry with its replacement
+        }
+    }
+
+    /**
+     * Discards the messages of a window that has not filled up for
+     * a while, so they are not averaged together with a later burst.
+     * The quiet channel itself is relaxed by the decay of its Synapse.
+     * @param now Current time, in epoch millis.
+     * @return Always null.
+     */
+    @Nullable
+    @Override
+    public RateReading poll(final long now) {
+        final MessageWindow window = active.get();
+        if (window.size() > 0 && now - window.getLatest() >= STALE_MILLIS) {
+            window.clear();
+        }
+        return null;
+    }
+
+    /**
+     * Clears a handed out window and keeps it as the spare one.
+     * @param reading Window that has been evaluated.
+     */
+    @Override
+    public void recycle(@Nonnull final RateReading reading) {
+        if (reading instanceof MessageWindow) {
+            final MessageWindow window = (MessageWindow) reading;
+            window.clear();
+            spare.set(window);
+        }
+    }
+
+    /**
+     * @return Creation times of the messages of the active window, oldest first.
+     */
+    @Nonnull
+    @Override
+    public long[] getRecentMessages() {
+        return active.get().getTimestamps();
+    }
+
+    /**
+     * Removes every message from the windows and frees their buffers.
+     * A buffer is allocated again on the next message.
+     */
+    @Override
+    public void release() {
+        spare.set(null);
+        active.set(new MessageWindow(capacity));
+    }
+
+    @Override
+    public void setCapacity(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Window capacity must be positive.");
+        }
+        this.capacity = capacity;
+    }
+
+    @Nonnull
+    @Override
+    public EstimatorType getType() {
+        return EstimatorType.WINDOW;
+    }
+
+    /**
+     * @return A cleared window to swap in, reusing the spare one if present.
+     */
+    @Nonnull
+    private MessageWindow takeSpare() {
+        MessageWindow window = spare.getAndSet(null);
+        if (window == null) {
+            return new MessageWindow(capacity);
+        }
+        prepare(window);
+        return window;
+    }
+
+    /**
+     * Applies a pending capacity change to a window owned by the producer.
+     * @param window Window to prepare.
+     */
+    private void prepare(@Nonnull final MessageWindow window) {
+        final int target = capacity;
+        if (window.getCapacity() != target) {
+            window.resize(target);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package thermostat.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import thermostat.mySQL.GuildRegistry;
+import thermostat.util.entities.CachedGuild;
+import thermostat.util.entities.ChannelSettings;
+import thermostat.util.entities.MonitoredChannel;
+import thermostat.util.entities.Synapse;
+import thermostat.util.enumeration.ControllerType;
+import thermostat.util.enumeration.EstimatorType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheSnapshotTest {
+    private static final String GUILD = "700000000000000001";
+    private static final String CHANNEL = "700000000000000002", CATEGORY = "700000000000000003",
+            MEMBER = "700000000000000004";
+
+    /**
+     * Offsets of the header fields that the tests tamper with.
+     */
+    private static final int WRITTEN_AT = 2 * Integer.BYTES, HEADER_BYTES = 2 * Integer.BYTES + Long.BYTES + 2 * Integer.BYTES;
+
+    @TempDir
+    Path directory;
+
+    private final List<String> guilds = new ArrayList<>();
+
+    @AfterEach
+    void expunge() {
+        for (final String guildId : guilds) {
+            GuildCache.expungeGuild(guildId);
+        }
+    }
+
+    @Test
+    void restoresWhatWasWritten() throws IOException {
+        final Synapse synapse = cacheGuild(GUILD, 2, System.currentTimeMillis());
+        synapse.getRaidDetector().setBaseline(12.5);
+        synapse.restoreChannel(new MonitoredChannel(CATEGORY, true, 10, 100, EstimatorType.WINDOW, null));
+        synapse.moveChannel(MEMBER, CATEGORY);
+        final CachedGuild before = GuildCache.get(GUILD);
+        GuildRegistry.restore(List.of(GUILD), List.of(CHANNEL, MEMBER));
+
+        final Path file = directory.resolve("snapshot");
+        CacheSnapshot.write(file);
+        GuildCache.expungeGuild(GUILD);
+        assertTrue(CacheSnapshot.read(file));
+
+        final CachedGuild after = GuildCache.get(GUILD);
+        assertEquals("!!", after.getPrefix());
+
+        final Map<String, ChannelSettings> settings = after.getLoadedChannelSettings();
+        assertNotNull(settings);
+        assertEquals(before.getLoadedChannelSettings().keySet(), settings.keySet());
+        for (final Map.Entry<String, ChannelSettings> entry : before.getLoadedChannelSettings().entrySet()) {
+            final ChannelSettings expected = entry.getValue(), actual = settings.get(entry.getKey());
+            assertEquals(expected.min, actual.min);
+            assertEquals(expected.max, actual.max);
+            assertEquals(expected.sensOffset, actual.sensOffset);
+            assertEquals(expected.monitored, actual.monitored);
+            assertEquals(expected.filtered, actual.filtered);
+            assertEquals(expected.controller, actual.controller);
+            assertEquals(expected.forecast, actual.forecast);
+        }
+
+        final Synapse restored = after.getLoadedSynapse();
+        assertNotNull(restored);
+        assertEquals(synapse.getMinCachingSize(), restored.getMinCachingSize());
+        assertEquals(synapse.getMaxCachingSize(), restored.getMaxCachingSize());
+        assertEquals(synapse.getEstimator(), restored.getEstimator());
+        assertEquals(12.5, restored.getRaidDetector().getBaseline());
+        assertEquals(synapse.getChannels(), restored.getChannels());
+        assertSame(restored.getMonitoredChannel(CATEGORY), restored.getCategoryMembers().get(MEMBER));
+
+        for (final MonitoredChannel unit : synapse.getMonitoredChannels()) {
+            final MonitoredChannel copy = restored.getMonitoredChannel(unit.getChannelId());
+            assertNotNull(copy);
+            assertEquals(unit.isCategory(), copy.isCategory());
+            assertEquals(unit.getCapacity(), copy.getCapacity());
+            assertArrayEquals(unit.getForecaster().toBytes(), copy.getForecaster().toBytes());
+            assertEquals(unit.getBaseline().getSketch().getTotal(), copy.getBaseline().getSketch().getTotal());
+
+            // Replaying stops short of a full window, so only the newest messages come back.
+            final long[] messages = unit.getEstimator().getRecentMessages();
+            final long[] newest = Arrays.copyOfRange(messages, Math.max(messages.length - copy.getCapacity() + 1, 0), messages.length);
+            assertArrayEquals(newest, copy.getEstimator().getRecentMessages());
+        }
+
+        final Set<String> knownGuilds = new HashSet<>(), knownChannels = new HashSet<>();
+        GuildRegistry.getWritten(knownGuilds, knownChannels);
+        assertTrue(knownGuilds.contains(GUILD));
+        assertTrue(knownChannels.containsAll(List.of(CHANNEL, MEMBER)));
+    }
+
+    @Test
+    void skipsWindowsThatWentQuiet() throws IOException {
+        final Synapse synapse = cacheGuild(GUILD, 1, System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(2));
+        assertTrue(synapse.getMonitoredChannel(CHANNEL).getEstimator().getRecentMessages().length > 0);
+
+        final Path file = directory.resolve("snapshot");
+        CacheSnapshot.write(file);
+        GuildCache.expungeGuild(GUILD);
+        assertTrue(CacheSnapshot.read(file));
+
+        final MonitoredChannel copy = GuildCache.get(GUILD).getLoadedSynapse().getMonitoredChannel(CHANNEL);
+        assertEquals(0, copy.getEstimator().getRecentMessages().length);
+        assertArrayEquals(synapse.getMonitoredChannel(CHANNEL).getForecaster().toBytes(), copy.getForecaster().toBytes());
+    }
+
+    @Test
+    void ignoresACorruptSnapshot() throws IOException {
+        final Path file = writeSnapshot();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final ByteBuffer payload = ByteBuffer.allocate(1);
+            channel.read(payload, HEADER_BYTES + 3);
+            payload.put(0, (byte) (payload.get(0) ^ 0x10)).rewind();
+            channel.write(payload, HEADER_BYTES + 3);
+        }
+        assertNotRestored(file);
+    }
+
+    @Test
+    void ignoresAStaleSnapshot() throws IOException {
+        final Path file = writeSnapshot();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            final ByteBuffer writtenAt = ByteBuffer.allocate(Long.BYTES);
+            writtenAt.putLong(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(16)).rewind();
+            channel.write(writtenAt, WRITTEN_AT);
+        }
+        assertNotRestored(file);
+    }
+
+    @Test
+    void ignoresATruncatedSnapshot() throws IOException {
+        final Path file = writeSnapshot();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+        assertNotRestored(file);
+    }
+
+    @Test
+    void ignoresAnotherFile() throws IOException {
+        final Path file = directory.resolve("snapshot");
+        Files.write(file, new byte[64]);
+        assertFalse(CacheSnapshot.read(file));
+        assertFalse(CacheSnapshot.read(directory.resolve("missing")));
+    }
+
+    /**
+     * 1000 Guilds of 100 monitored channels each, with their windows, baselines
+     * and forecasts. Restoring them must take well under a second.
+     */
+    @Test
+    @Tag("benchmark")
+    void restoresManyChannelsQuickly() throws IOException {
+        final long now = System.currentTimeMillis();
+        for (int guild = 0; guild < 1000; ++guild) {
+            cacheGuild(Long.toUnsignedString(800_000_000_000_000_000L + guild * 1000L), 100, now);
+        }
+
+        final Path file = directory.resolve("snapshot");
+        long start = System.nanoTime();
+        CacheSnapshot.write(file);
+        final long writeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        long readMillis = Long.MAX_VALUE;
+        for (int run = 0; run < 3; ++run) { // The first runs warm up the JIT
+            expunge();
+            start = System.nanoTime();
+            assertTrue(CacheSnapshot.read(file));
+            readMillis = Math.min(readMillis, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+
+        System.out.printf("Cache snapshot: 100000 channels, %d bytes, written in %dms, restored in %dms.%n",
+                Files.size(file), writeMillis, readMillis);
+        assertEquals(100, GuildCache.get(guilds.get(0)).getLoadedSynapse().getMonitoredChannels().size());
+        assertTrue(readMillis < 500, "Restoring took " + readMillis + "ms");
+    }
+
+    /**
+     * @return A snapshot of one cached Guild.
+     */
+    private Path writeSnapshot() throws IOException {
+        cacheGuild(GUILD, 1, System.currentTimeMillis());
+        final Path file = directory.resolve("snapshot");
+        CacheSnapshot.write(file);
+        return file;
+    }
+
+    private void assertNotRestored(final Path file) {
+        GuildCache.expungeGuild(GUILD);
+        assertFalse(CacheSnapshot.read(file));
+        assertFalse(GuildCache.getCachedGuilds().containsKey(GUILD));
+    }
+
+    /**
+     * Caches a Guild with monitored channels that have received a message
+     * every 400ms for the last ten seconds.
+     * @param guildId ID of the Guild. Its channels get the following IDs.
+     * @param channels Amount of channels.
+     * @param latest Time of the channels' latest message, in epoch millis.
+     * @return The Guild's Synapse.
+     */
+    private Synapse cacheGuild(final String guildId, final int channels, final long latest) {
+        final Synapse synapse = new Synapse(guildId, 10, 100, EstimatorType.WINDOW);
+        final Map<String, ChannelSettings> settings = new HashMap<>();
+        final long first = Long.parseUnsignedLong(guildId) + 1;
+
+        for (int index = 0; index < channels; ++index) {
+            final String channelId = Long.toUnsignedString(first + index);
+            final MonitoredChannel unit = new MonitoredChannel(channelId, false, 10, 100, EstimatorType.WINDOW, null);
+            for (long time = latest - TimeUnit.SECONDS.toMillis(10); time <= latest; time += 400) {
+                final var reading = unit.addMessage(time, index % 7, false);
+                if (reading != null) {
+                    unit.recycle(reading);
+                }
+            }
+            synapse.restoreChannel(unit);
+            settings.put(channelId, new ChannelSettings(5 + index % 3, 60, 1.5f, true, index % 2 == 0,
+                    ControllerType.values()[index % ControllerType.values().length], index % 2 == 1));
+        }
+
+        guilds.add(guildId);
+        GuildCache.restore(guildId, "!!", settings, synapse);
+        return synapse;
+    }
+}
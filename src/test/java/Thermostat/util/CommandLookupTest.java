@@ -0,0 +1,102 @@
+package thermostat.util;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import thermostat.util.enumeration.CommandType;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommandLookupTest {
+    private static final String ID = "700341788136833065";
+    private static final CommandLookup lookup = new CommandLookup("th!");
+
+    @BeforeAll
+    static void setConstants() {
+        Constants.setConstants("th!", ID, "");
+    }
+
+    @Test
+    void resolvesBothAliasesOfEveryCommand() {
+        for (final CommandType type : CommandType.values()) {
+            for (final String alias : new String[] {type.alias1, type.alias2}) {
+                if (alias == null || alias.isEmpty()) {
+                    continue;
+                }
+                final CommandType resolved = lookup.resolveAlias(alias.toUpperCase(Locale.ROOT));
+                assertNotNull(resolved, alias);
+                assertTrue(alias.equalsIgnoreCase(resolved.alias1) || alias.equalsIgnoreCase(resolved.alias2), alias);
+            }
+        }
+    }
+
+    @Test
+    void resolvesPrefixedAliasesIgnoringCase() {
+        assertEquals(CommandType.MONITOR, lookup.resolvePrefixed("th!monitor"));
+        assertEquals(CommandType.MONITOR, lookup.resolvePrefixed("TH!Mn"));
+        assertEquals(CommandType.SETBOUNDS, lookup.resolvePrefixed("th!SB"));
+        assertNull(lookup.resolvePrefixed("tx!monitor"));
+        assertNull(lookup.resolvePrefixed("monitor"));
+    }
+
+    @Test
+    void rejectsPartialAndUnknownAliases() {
+        assertNull(lookup.resolveAlias("moni"));
+        assertNull(lookup.resolveAlias("monitors"));
+        assertNull(lookup.resolveAlias("nope"));
+        assertNull(lookup.resolveAlias("mönitor"));
+    }
+
+    @Test
+    void internalCommandsCannotBeInitiated() {
+        for (final CommandType type : CommandType.values()) {
+            if (type.alias1 == null) {
+                assertNull(lookup.resolveAlias(type.name().toLowerCase(Locale.ROOT)), type.name());
+            }
+        }
+    }
+
+    @Test
+    void matchesPrefixedMessages() {
+        assertEquals(CommandType.MONITOR, lookup.match("th!monitor #general"));
+        assertEquals(CommandType.MONITOR, lookup.match("th!mn\t#general"));
+        assertEquals(CommandType.SETTINGS, lookup.match("th!st"));
+        assertNull(lookup.match("th!monitoring is fun"));
+        assertNull(lookup.match("hello there"));
+        assertNull(lookup.match(""));
+    }
+
+    @Test
+    void matchesMentions() {
+        assertEquals(CommandType.SETTINGS, lookup.match("<@" + ID + "> settings #general"));
+        assertEquals(CommandType.SETTINGS, lookup.match("<@!" + ID + ">   st"));
+        assertEquals(CommandType.GUIDE, lookup.match("<@" + ID + ">"));
+        assertEquals(CommandType.GUIDE, lookup.match("<@!" + ID + ">  \n"));
+        assertNull(lookup.match("<@" + ID + ">settings"));
+        assertNull(lookup.match("<@" + ID + "> nope"));
+        assertNull(lookup.match("<@123456789012345678> settings"));
+        assertNull(lookup.match("<@" + ID));
+    }
+
+    @Test
+    void recognizesMentionTokens() {
+        assertTrue(CommandLookup.isMention("<@" + ID + ">"));
+        assertTrue(CommandLookup.isMention("<@!" + ID + ">"));
+        assertFalse(CommandLookup.isMention("<@" + ID + ">x"));
+        assertFalse(CommandLookup.isMention("<@#" + ID + ">"));
+        assertFalse(CommandLookup.isMention("@" + ID));
+    }
+
+    @Test
+    void matchesWithAnyPrefix() {
+        final CommandLookup custom = new CommandLookup("!!");
+        assertEquals(CommandType.PREFIX, custom.match("!!prefix th!"));
+        assertNull(custom.match("th!prefix !!"));
+        assertEquals(CommandType.PREFIX, custom.match("<@" + ID + "> px"));
+    }
+}
@@ -0,0 +1,122 @@
+package thermostat.util.entities;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageWindowTest {
+    private static final long START = 1_600_000_000_000L;
+
+    @Test
+    void emptyWindowHasNoBufferAndNoDelay() {
+        final MessageWindow window = new MessageWindow(4);
+        assertEquals(0, window.getTimestamps().length);
+        assertEquals(0, window.getAverageDelay());
+        assertEquals(0, window.getLatest());
+        assertFalse(window.isFull());
+    }
+
+    @Test
+    void evictsTheOldestMessageOnceFull() {
+        final MessageWindow window = new MessageWindow(3);
+        for (final long offset : new long[] {0, 100, 300, 600, 1000}) {
+            window.add(START + offset);
+        }
+
+        assertTrue(window.isFull());
+        assertEquals(3, window.size());
+        assertArrayEquals(new long[] {START + 300, START + 600, START + 1000}, window.getTimestamps());
+        assertEquals(START + 1000, window.getLatest());
+        assertEquals(700 / 3, window.getAverageDelay());
+    }
+
+    @Test
+    void runningGapSumMatchesTheMessages() {
+        final MessageWindow window = new MessageWindow(50);
+        final Random random = new Random(1);
+        long time = START;
+        for (int message = 0; message < 10_000; ++message) {
+            time += random.nextInt(5000);
+            window.add(time);
+
+            final long[] timestamps = window.getTimestamps();
+            final long span = timestamps[timestamps.length - 1] - timestamps[0];
+            assertEquals(span / timestamps.length, window.getAverageDelay());
+        }
+    }
+
+    @Test
+    void clearKeepsTheCapacity() {
+        final MessageWindow window = new MessageWindow(3);
+        window.add(START);
+        window.add(START + 100);
+        window.clear();
+
+        assertEquals(0, window.size());
+        assertEquals(0, window.getAverageDelay());
+        window.add(START + 1000);
+        window.add(START + 1200);
+        assertArrayEquals(new long[] {START + 1000, START + 1200}, window.getTimestamps());
+    }
+
+    @Test
+    void releasedWindowAllocatesAgainOnTheNextMessage() {
+        final MessageWindow window = new MessageWindow(3);
+        window.add(START);
+        window.release();
+
+        assertEquals(0, window.getTimestamps().length);
+        window.add(START + 500);
+        window.add(START + 600);
+        assertEquals(3, window.getCapacity());
+        assertArrayEquals(new long[] {START + 500, START + 600}, window.getTimestamps());
+    }
+
+    @Test
+    void shrinkingKeepsTheNewestMessages() {
+        final MessageWindow window = new MessageWindow(5);
+        for (int message = 0; message < 7; ++message) {
+            window.add(START + message * 100L);
+        }
+        window.resize(3);
+
+        assertEquals(3, window.getCapacity());
+        assertTrue(window.isFull());
+        assertArrayEquals(new long[] {START + 400, START + 500, START + 600}, window.getTimestamps());
+        assertEquals(200 / 3, window.getAverageDelay());
+    }
+
+    @Test
+    void growingKeepsEveryMessage() {
+        final MessageWindow window = new MessageWindow(3);
+        for (int message = 0; message < 4; ++message) {
+            window.add(START + message * 100L);
+        }
+        window.resize(6);
+
+        assertFalse(window.isFull());
+        assertArrayEquals(new long[] {START + 100, START + 200, START + 300}, window.getTimestamps());
+        window.add(START + 400);
+        assertEquals(300 / 4, window.getAverageDelay());
+    }
+
+    @Test
+    void resizingAnEmptyWindowDoesNotAllocate() {
+        final MessageWindow window = new MessageWindow(3);
+        window.resize(10);
+        assertEquals(10, window.getCapacity());
+        assertEquals(0, window.getTimestamps().length);
+    }
+
+    @Test
+    void rejectsEmptyWindows() {
+        assertThrows(IllegalArgumentException.class, () -> new MessageWindow(0));
+        assertThrows(IllegalArgumentException.class, () -> new MessageWindow(3).resize(0));
+    }
+}
@@ -0,0 +1,106 @@
+package thermostat.util.synapse;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BucketEstimatorTest {
+    private static final long START = 1_600_000_000_000L;
+
+    @Test
+    void fewMessagesOnAFreshCountAreNoBurst() {
+        final BucketEstimator estimator = new BucketEstimator();
+        assertNull(estimator.addMessage(START));
+        assertNull(estimator.addMessage(START + 300));
+        assertNull(estimator.poll(START + 1000));
+        assertNull(estimator.poll(START + TimeUnit.SECONDS.toMillis(10)));
+        assertEquals(2, estimator.getCount());
+    }
+
+    @Test
+    void burstOnAFreshCountWaitsForTheEvaluationPeriod() {
+        final BucketEstimator estimator = new BucketEstimator();
+        for (int message = 0; message < 20; ++message) {
+            assertNull(estimator.addMessage(START + message * 100L));
+        }
+
+        final RateReading reading = estimator.poll(START + TimeUnit.SECONDS.toMillis(5));
+        assertNotNull(reading);
+        assertEquals(6000 / 20, reading.getAverageDelay());
+    }
+
+    @Test
+    void fewMessagesOnAReleasedCountAreNoBurst() {
+        final BucketEstimator estimator = new BucketEstimator();
+        final long time = feed(estimator, START, 1000, 60, new ArrayList<>());
+        estimator.release();
+
+        assertNull(estimator.addMessage(time + TimeUnit.MINUTES.toMillis(5)));
+        assertNull(estimator.addMessage(time + TimeUnit.MINUTES.toMillis(5) + 300));
+        assertEquals(2, estimator.getCount());
+    }
+
+    @Test
+    void steadyTrafficIsEvaluatedEveryPeriod() {
+        final BucketEstimator estimator = new BucketEstimator();
+        final List<RateReading> readings = new ArrayList<>();
+        feed(estimator, START, 500, 60, readings);
+
+        assertEquals(11, readings.size());
+        for (final RateReading reading : readings) {
+            assertEquals(500, reading.getAverageDelay(), 500 / 5.0);
+        }
+    }
+
+    @Test
+    void messagesLeaveTheSpan() {
+        final BucketEstimator estimator = new BucketEstimator();
+        final long time = feed(estimator, START, 1000, BucketEstimator.SPAN, new ArrayList<>());
+        assertEquals(BucketEstimator.SPAN, estimator.getCount());
+
+        estimator.poll(time + TimeUnit.SECONDS.toMillis(9)); // The span now starts at the eleventh second
+        assertEquals(BucketEstimator.SPAN - 10, estimator.getCount());
+        estimator.poll(time + TimeUnit.SECONDS.toMillis(BucketEstimator.SPAN));
+        assertEquals(0, estimator.getCount());
+    }
+
+    @Test
+    void lateMessagesAreIgnored() {
+        final BucketEstimator estimator = new BucketEstimator();
+        estimator.addMessage(START + TimeUnit.SECONDS.toMillis(BucketEstimator.SPAN));
+        assertNull(estimator.addMessage(START));
+        assertEquals(1, estimator.getCount());
+    }
+
+    @Test
+    void rejectsEmptyCapacities() {
+        assertThrows(IllegalArgumentException.class, () -> new BucketEstimator().setCapacity(0));
+    }
+
+    /**
+     * Feeds evenly spread messages.
+     * @param start Time of the first message, in epoch millis.
+     * @param delay Delay between messages, in millis.
+     * @param seconds Amount of seconds.
+     * @param readings Receives the readings that are handed over.
+     * @return Time right after the last second, in epoch millis.
+     */
+    private static long feed(final BucketEstimator estimator, final long start, final long delay, final int seconds,
+                             final List<RateReading> readings) {
+        final long end = start + TimeUnit.SECONDS.toMillis(seconds);
+        for (long time = start; time < end; time += delay) {
+            final RateReading reading = estimator.addMessage(time);
+            if (reading != null) {
+                readings.add(reading);
+            }
+        }
+        return end;
+    }
+}
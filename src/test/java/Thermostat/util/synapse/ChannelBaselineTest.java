@@ -0,0 +1,82 @@
+package thermostat.util.synapse;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChannelBaselineTest {
+    private static final long START = 1_600_000_000_000L;
+
+    @Test
+    void leavesDelaysAloneUntilItHasLearned() {
+        final ChannelBaseline baseline = new ChannelBaseline(null);
+        learn(baseline, 499, 200, START);
+        assertEquals(1000, baseline.normalize(1000));
+
+        learn(baseline, 1, 200, START);
+        assertTrue(baseline.normalize(1000) > 1000);
+    }
+
+    @Test
+    void scalesDelaysToTheUsualPace() {
+        // A channel whose usual delay is the target delay is left as it is.
+        final ChannelBaseline usual = new ChannelBaseline(null);
+        learn(usual, 1000, SlowmodeController.TARGET_DELAY, START);
+        assertTrue(Math.abs(usual.normalize(1000) - 1000) <= 50);
+
+        // A busy channel at its usual pace looks like the target delay to the controllers.
+        final ChannelBaseline busy = new ChannelBaseline(null);
+        learn(busy, 1000, 700, START);
+        assertTrue(Math.abs(busy.normalize(700) - SlowmodeController.TARGET_DELAY) <= 0.05 * SlowmodeController.TARGET_DELAY);
+    }
+
+    @Test
+    void clampsTheScale() {
+        final ChannelBaseline fast = new ChannelBaseline(null);
+        learn(fast, 1000, 10, START);
+        assertEquals(4000, fast.normalize(1000));
+
+        final ChannelBaseline slow = new ChannelBaseline(null);
+        learn(slow, 1000, 600_000, START);
+        assertEquals(250, slow.normalize(1000));
+    }
+
+    @Test
+    void oldDelaysFadeAfterAHalfLife() {
+        final ChannelBaseline baseline = new ChannelBaseline(null);
+        learn(baseline, 1000, 5000, START);
+        learn(baseline, 1, 5000, START + TimeUnit.DAYS.toMillis(1));
+        assertEquals(501, baseline.getSketch().getTotal());
+    }
+
+    @Test
+    void reportsChangesOnce() {
+        final ChannelBaseline baseline = new ChannelBaseline(null);
+        assertNull(baseline.takeChanges());
+        learn(baseline, 10, 1000, START);
+
+        final byte[] changes = baseline.takeChanges();
+        assertNotNull(changes);
+        assertNull(baseline.takeChanges());
+
+        final ChannelBaseline restored = new ChannelBaseline(changes);
+        assertEquals(10, restored.getSketch().getTotal());
+        assertEquals(baseline.getUsualDelay(), restored.getUsualDelay());
+    }
+
+    @Test
+    void startsFromScratchOnUnreadableData() {
+        assertEquals(0, new ChannelBaseline(new byte[] {1, 2, 3}).getSketch().getTotal());
+    }
+
+    private static void learn(final ChannelBaseline baseline, final int count, final long delay, final long time) {
+        for (int index = 0; index < count; ++index) {
+            baseline.addDelay(delay, time);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package thermostat.util.synapse;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DuplicateDetectorTest {
+    private static final long START = 1_600_000_000_000L;
+
+    @Test
+    void ordinaryTrafficDoesNotTrigger() {
+        for (final int rate : new int[] {5, 20, 50, 100}) {
+            final DuplicateDetector detector = new DuplicateDetector();
+            final Chat chat = new Chat(rate);
+            int triggered = 0;
+            for (int message = 0; message < rate * 300; ++message) { // Five minutes
+                if (detector.addMessage(chat.sentence(), START + message * 1000L / rate)) {
+                    ++triggered;
+                }
+            }
+            assertEquals(0, triggered, "False duplicates at " + rate + " msg/s");
+        }
+    }
+
+    @Test
+    void pastedTextTriggersInQuietGuild() {
+        assertTrue(pasteTriggers(5, 10));
+    }
+
+    @Test
+    void pastedTextTriggersInBusyGuild() {
+        assertTrue(pasteTriggers(20, 15));
+        assertTrue(pasteTriggers(100, 40));
+    }
+
+    /**
+     * Feeds a minute of ordinary chat, then a pasted text among the chat.
+     * @param rate Messages per second of the chat.
+     * @param copies Times the text is pasted.
+     * @return Whether the detector flagged the paste.
+     */
+    private static boolean pasteTriggers(final int rate, final int copies) {
+        final DuplicateDetector detector = new DuplicateDetector();
+        final Chat chat = new Chat(rate);
+        long time = START;
+        for (int message = 0; message < rate * 60; ++message) {
+            detector.addMessage(chat.sentence(), time);
+            time += 1000L / rate;
+        }
+
+        boolean triggered = false;
+        for (int copy = 0; copy < copies; ++copy) {
+            triggered |= detector.addMessage("FREE NITRO for everyone, claim it now at discord-gift.example", time);
+            for (int message = 0; message < rate / 5; ++message) {
+                detector.addMessage(chat.sentence(), time);
+                time += 1000L / rate;
+            }
+        }
+        return triggered;
+    }
+
+    /**
+     * Random sentences over a fixed vocabulary.
+     */
+    private static final class Chat {
+        private final Random random;
+        private final String[] words = new String[3000];
+
+        private Chat(final long seed) {
+            this.random = new Random(seed);
+            for (int index = 0; index < words.length; ++index) {
+                final StringBuilder word = new StringBuilder();
+                for (int letter = 2 + random.nextInt(7); letter > 0; --letter) {
+                    word.append((char) ('a' + random.nextInt(26)));
+                }
+                words[index] = word.toString();
+            }
+        }
+
+        private String sentence() {
+            final StringBuilder sentence = new StringBuilder();
+            for (int word = 2 + random.nextInt(14); word > 0; --word) {
+                // Zipf-like: a few words are very common
+                final int index = (int) (words.length * Math.pow(random.nextDouble(), 3));
+                sentence.append(words[index]).append(' ');
+            }
+            return sentence.toString();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package thermostat.util.synapse;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EwmaEstimatorTest {
+    private static final long START = 1_600_000_000_000L;
+
+    @Test
+    void firstEvaluationWaitsForAFewDelays() {
+        final EwmaEstimator estimator = new EwmaEstimator(10);
+        for (int message = 0; message < 3; ++message) {
+            assertNull(estimator.addMessage(START + message * 1000L));
+        }
+
+        final RateReading reading = estimator.addMessage(START + 3000);
+        assertNotNull(reading);
+        assertEquals(1000, reading.getAverageDelay());
+    }
+
+    @Test
+    void steadyChannelIsEvaluatedOncePerCapacity() {
+        final EwmaEstimator estimator = new EwmaEstimator(10);
+        final long time = evaluate(estimator, 1000);
+
+        for (int message = 1; message < 10; ++message) {
+            assertNull(estimator.addMessage(time + message * 1000L));
+        }
+        final RateReading reading = estimator.addMessage(time + 10_000);
+        assertNotNull(reading);
+        assertEquals(1000, reading.getAverageDelay());
+    }
+
+    @Test
+    void spikeCrossesTheThresholdBeforeAFullWindow() {
+        final EwmaEstimator estimator = new EwmaEstimator(10);
+        long time = evaluate(estimator, 1000);
+
+        // 1000 - 2/11 * 900 is still within the threshold, the second fast message is not.
+        assertNull(estimator.addMessage(time += 100));
+        final RateReading reading = estimator.addMessage(time + 100);
+        assertNotNull(reading);
+        assertTrue(reading.getAverageDelay() < 1000 / 1.25, "Estimate " + reading.getAverageDelay());
+    }
+
+    @Test
+    void slowdownCrossesTheThresholdAsWell() {
+        final EwmaEstimator estimator = new EwmaEstimator(10);
+        final long time = evaluate(estimator, 1000);
+
+        final RateReading reading = estimator.addMessage(time + 3000);
+        assertNotNull(reading);
+        assertEquals(1364, reading.getAverageDelay()); // 1000 + 2/11 * 2000
+    }
+
+    @Test
+    void pollEvaluatesAChannelThatStops() {
+        final EwmaEstimator estimator = new EwmaEstimator(10);
+        final long time = evaluate(estimator, 1000);
+
+        assertNull(estimator.poll(time + 2000)); // 1000 + 2/11 * 1000 is within the threshold
+        final RateReading reading = estimator.poll(time + 3000);
+        assertNotNull(reading);
+        assertEquals(1364, reading.getAverageDelay());
+
+        // The open delay is not kept, and the next crossing is measured from the polled estimate.
+        assertNull(estimator.poll(time + 3000));
+        assertNull(estimator.poll(time + 4000));
+        assertNotNull(estimator.poll(time + 6000));
+    }
+
+    @Test
+    void pollWaitsForTheFirstEvaluation() {
+        final EwmaEstimator estimator = new EwmaEstimator(10);
+        assertNull(estimator.poll(START));
+        estimator.addMessage(START);
+        estimator.addMessage(START + 1000);
+        assertNull(estimator.poll(START + 60_000));
+    }
+
+    @Test
+    void releaseStartsOver() {
+        final EwmaEstimator estimator = new EwmaEstimator(10);
+        final long time = evaluate(estimator, 1000);
+        estimator.release();
+        assertNull(estimator.poll(time + 60_000));
+
+        // The gap to the first message after the release is not averaged.
+        final long restart = time + 60_000;
+        for (int message = 0; message < 3; ++message) {
+            assertNull(estimator.addMessage(restart + message * 200L));
+        }
+        final RateReading reading = estimator.addMessage(restart + 600);
+        assertNotNull(reading);
+        assertEquals(200, reading.getAverageDelay());
+    }
+
+    @Test
+    void rejectsEmptyCapacities() {
+        assertThrows(IllegalArgumentException.class, () -> new EwmaEstimator(0));
+        assertThrows(IllegalArgumentException.class, () -> new EwmaEstimator(10).setCapacity(0));
+    }
+
+    /**
+     * Feeds evenly spread messages, starting at {@link #START}, up to the first evaluation.
+     * @param delay Delay between messages, in millis.
+     * @return Time of the evaluated message, in epoch millis.
+     */
+    private static long evaluate(final EwmaEstimator estimator, final long delay) {
+        for (long time = START; ; time += delay) {
+            final RateReading reading = estimator.addMessage(time);
+            if (reading != null) {
+                assertEquals(delay, reading.getAverageDelay());
+                return time;
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package thermostat.util.synapse;
+
+import org.junit.jupiter.api.Test;
+import thermostat.util.entities.ChannelSettings;
+import thermostat.util.enumeration.ControllerType;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HysteresisControllerTest {
+    private static final long FAST = 10; // Far below the target delay, in millis
+
+    @Test
+    void unboundedRaisesStopAtDefaultCeiling() {
+        final ChannelSettings settings = new ChannelSettings(0, 0, 1f, true, false, ControllerType.HYSTERESIS, false);
+        assertEquals(120, raise(settings, 50));
+    }
+
+    @Test
+    void boundedRaisesStopAtMaximum() {
+        final ChannelSettings settings = new ChannelSettings(0, 300, 1f, true, false, ControllerType.HYSTERESIS, false);
+        assertEquals(300, raise(settings, 50));
+    }
+
+    @Test
+    void raiseNeverLowersManualSlowmode() {
+        final ChannelSettings settings = new ChannelSettings(0, 0, 1f, true, false, ControllerType.HYSTERESIS, false);
+        assertEquals(600, new HysteresisController().nextSlowmode(600, FAST, settings));
+    }
+
+    private static int raise(final ChannelSettings settings, final int evaluations) {
+        final HysteresisController controller = new HysteresisController();
+        int slowmode = 0;
+        for (int evaluation = 0; evaluation < evaluations; ++evaluation) {
+            slowmode = controller.nextSlowmode(slowmode, FAST, settings);
+        }
+        return slowmode;
+    }
+}
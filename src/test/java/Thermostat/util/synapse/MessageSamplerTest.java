@@ -0,0 +1,164 @@
+package thermostat.util.synapse;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageSamplerTest {
+    private static final long START = 1_600_000_000_000L;
+
+    /**
+     * Recorded messages in a window, as in a full window of the estimators.
+     */
+    private static final int WINDOW = 100;
+
+    @Test
+    void recordsEveryMessageOfAnOrdinaryChannel() {
+        final MessageSampler sampler = new MessageSampler();
+        for (int message = 0; message < 6000; ++message) {
+            sampler.count(START + message * 10L); // 100 messages per second, right at the limit
+            assertTrue(sampler.sample());
+        }
+        assertEquals(1, sampler.getFactor());
+    }
+
+    @Test
+    void raisesTheFactorToTheSmallestPowerOfTwo() {
+        assertEquals(2, factorAt(150));
+        assertEquals(16, factorAt(1000));
+        assertEquals(64, factorAt(100_000)); // Capped
+    }
+
+    @Test
+    void recordsEveryKthMessage() {
+        final MessageSampler sampler = new MessageSampler();
+        feed(sampler, 1000, 2);
+        assertEquals(16, sampler.getFactor());
+
+        int recorded = 0;
+        for (int message = 0; message < 1600; ++message) {
+            sampler.count(START + 2000 + message * 1000L / 1600);
+            if (sampler.sample()) {
+                ++recorded;
+            }
+        }
+        assertEquals(100, recorded);
+    }
+
+    @Test
+    void lowersTheFactorOneStepAtATime() {
+        final MessageSampler sampler = new MessageSampler();
+        feed(sampler, 1000, 2);
+        assertEquals(16, sampler.getFactor());
+
+        // 500 messages a second are still above half of what a factor of 8 allows.
+        long time = START + 2000;
+        for (int second = 0; second < 3; ++second, time += 1000) {
+            for (int message = 0; message < 500; ++message) {
+                sampler.count(time + message * 2L);
+            }
+        }
+        assertEquals(16, sampler.getFactor());
+
+        // 100 messages a second: one step per second, until a factor of 2
+        // would record half of the limit, which is not under it.
+        for (int second = 0; second < 5; ++second, time += 1000) {
+            for (int message = 0; message < 100; ++message) {
+                sampler.count(time + message * 10L);
+            }
+        }
+        assertEquals(4, sampler.getFactor());
+    }
+
+    @Test
+    void silentSecondsCountAsZero() {
+        final MessageSampler sampler = new MessageSampler();
+        feed(sampler, 1000, 2);
+        assertTrue(sampler.count(START + 10_000));
+        assertEquals(8, sampler.getFactor());
+        assertFalse(sampler.count(START + 10_001));
+    }
+
+    @Test
+    void sampledDelayIsWithinTheBoundForSteadyTraffic() {
+        for (final int rate : new int[] {150, 400, 1000, 5000}) {
+            final double[] error = measureError(rate, false);
+            assertTrue(error[1] < 1.0 / WINDOW, "Worst relative error " + error[1] + " at " + rate + " msg/s");
+        }
+    }
+
+    @Test
+    void sampledDelayIsWithinTheBoundOnAverageForRandomTraffic() {
+        for (final int rate : new int[] {150, 400, 1000, 5000}) {
+            final double[] error = measureError(rate, true);
+            assertTrue(error[0] < 1.0 / WINDOW, "Mean relative error " + error[0] + " at " + rate + " msg/s");
+            assertTrue(error[1] < 5.0 / WINDOW, "Worst relative error " + error[1] + " at " + rate + " msg/s");
+        }
+    }
+
+    /**
+     * Feeds a minute of messages. After every message, the sampled average delay of
+     * a full window, divided by the factor, is compared with the exact average delay
+     * over the same amount of latest messages.
+     * @param rate Messages per second.
+     * @param poisson Whether the messages arrive at random, rather than evenly spread.
+     * @return Mean and worst relative error.
+     */
+    private static double[] measureError(final int rate, final boolean poisson) {
+        final Random random = new Random(rate);
+        final MessageSampler sampler = new MessageSampler();
+        final long[] times = new long[rate * 60];
+        final long[] window = new long[WINDOW];
+        int recorded = 0, lastChange = 0, measured = 0;
+        double time = START, sum = 0, worst = 0;
+
+        for (int message = 0; message < times.length; ++message) {
+            time += (poisson ? -Math.log(1 - random.nextDouble()) : 1) * 1000 / rate;
+            times[message] = (long) time;
+            if (sampler.count(times[message])) {
+                lastChange = message;
+            }
+            if (sampler.sample()) {
+                window[recorded++ % WINDOW] = times[message];
+            }
+
+            final int factor = sampler.getFactor();
+            final int gaps = (WINDOW - 1) * factor;
+            if (recorded < WINDOW || message - lastChange < gaps + factor) {
+                continue; // Window not yet full at this factor
+            }
+
+            final long newest = window[(recorded - 1) % WINDOW], oldest = window[recorded % WINDOW];
+            final double sampled = (double) (newest - oldest) / (WINDOW - 1) / factor;
+            final double exact = (double) (times[message] - times[message - gaps]) / gaps;
+            final double error = Math.abs(sampled - exact) / exact;
+            sum += error;
+            worst = Math.max(worst, error);
+            ++measured;
+        }
+        assertTrue(measured > 0);
+        return new double[] {sum / measured, worst};
+    }
+
+    /**
+     * @return The factor after two seconds at a rate.
+     */
+    private static int factorAt(final int rate) {
+        final MessageSampler sampler = new MessageSampler();
+        feed(sampler, rate, 2);
+        return sampler.getFactor();
+    }
+
+    /**
+     * Counts evenly spread messages over some seconds, starting at {@link #START}.
+     */
+    private static void feed(final MessageSampler sampler, final int rate, final int seconds) {
+        for (int message = 0; message < rate * seconds; ++message) {
+            sampler.count(START + message * 1000L / rate);
+        }
+    }
+}
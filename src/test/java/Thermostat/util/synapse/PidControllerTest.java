@@ -0,0 +1,130 @@
+package thermostat.util.synapse;
+
+import org.junit.jupiter.api.Test;
+import thermostat.util.entities.ChannelSettings;
+import thermostat.util.enumeration.ControllerType;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PidControllerTest {
+    private static final long START = 1_600_000_000_000L;
+
+    /**
+     * Time between evaluations, in millis.
+     */
+    private static final long INTERVAL = 10_000;
+
+    private static final ChannelSettings SETTINGS =
+            new ChannelSettings(0, 0, 1f, true, false, ControllerType.PID, false);
+
+    @Test
+    void channelAtTheTargetKeepsItsSlowmode() {
+        final PidController controller = new PidController();
+        for (int evaluation = 0; evaluation < 20; ++evaluation) {
+            assertEquals(5, controller.nextSlowmode(5, SlowmodeController.TARGET_DELAY, SETTINGS, START + evaluation * INTERVAL));
+        }
+    }
+
+    @Test
+    void backToBackEvaluationsDoNotKick() {
+        final PidController controller = new PidController();
+        final long time = settle(controller);
+
+        // The rate doubles, and the next evaluation comes a millisecond later.
+        final int next = controller.nextSlowmode(0, SlowmodeController.TARGET_DELAY / 2, SETTINGS, time + 1);
+        assertTrue(next <= 5, "Slowmode jumped to " + next);
+    }
+
+    @Test
+    void changingTheSensitivityDoesNotKick() {
+        final PidController controller = new PidController();
+        final long time = settle(controller);
+
+        // Right after the change, twice the target delay is a proportional step of 6 * ln(2) seconds, nothing more.
+        final int next = controller.nextSlowmode(0, SlowmodeController.TARGET_DELAY, SETTINGS.withSensOffset(2f), time + 1);
+        assertEquals(4, next);
+    }
+
+    @Test
+    void keepsWithinTheBounds() {
+        final PidController controller = new PidController();
+        final ChannelSettings bounded = SETTINGS.withBounds(5, 30);
+        int slowmode = 0;
+        for (int evaluation = 0; evaluation < 50; ++evaluation) {
+            slowmode = controller.nextSlowmode(slowmode, 10, bounded, START + evaluation * INTERVAL);
+            assertTrue(slowmode >= 5 && slowmode <= 30, "Slowmode " + slowmode);
+        }
+        assertEquals(30, slowmode);
+        // The integral did not wind up: the slowmode comes down as soon as the channel calms.
+        assertTrue(controller.nextSlowmode(slowmode, 10_000, bounded, START + 50 * INTERVAL) < 30);
+    }
+
+    @Test
+    void settlesFasterAndWithFewerChangesThanTheLadder() {
+        for (final int[] channel : new int[][] {{20, 300}, {50, 200}, {20, 800}, {60, 100}}) {
+            final Simulation pid = new Simulation(channel[0], channel[1]).run(new PidController());
+            final Simulation ladder = new Simulation(channel[0], channel[1]).run(LadderController.INSTANCE);
+            final String name = channel[0] + " members at " + channel[1] + "ms";
+
+            assertTrue(pid.settledAt < ladder.settledAt, name + ": settled at " + pid.settledAt + ", ladder at " + ladder.settledAt);
+            assertTrue(pid.changes < ladder.changes, name + ": " + pid.changes + " changes, ladder " + ladder.changes);
+            assertEquals(1, (double) pid.averageDelay() / SlowmodeController.TARGET_DELAY, 0.1, name);
+        }
+    }
+
+    /**
+     * Evaluates a channel without slowmode that is right at the target, a few times.
+     * @return Time of the latest evaluation, in epoch millis.
+     */
+    private static long settle(final PidController controller) {
+        long time = START;
+        for (int evaluation = 0; evaluation < 5; ++evaluation, time += INTERVAL) {
+            assertEquals(0, controller.nextSlowmode(0, SlowmodeController.TARGET_DELAY, SETTINGS, time));
+        }
+        return time - INTERVAL;
+    }
+
+    /**
+     * A channel whose members each write as often as the slowmode lets them,
+     * up to a natural pace, evaluated every {@link #INTERVAL}.
+     */
+    private static final class Simulation {
+        private static final int EVALUATIONS = 60;
+
+        private final int members;
+        private final long naturalDelay;
+        private int slowmode = 0;
+        private int changes = 0;
+
+        /**
+         * Evaluation after which the slowmode did not change anymore.
+         */
+        private int settledAt = 0;
+
+        Simulation(final int members, final long naturalDelay) {
+            this.members = members;
+            this.naturalDelay = naturalDelay;
+        }
+
+        long averageDelay() {
+            return Math.max(naturalDelay, slowmode * 1000L / members);
+        }
+
+        Simulation run(final SlowmodeController controller) {
+            for (int evaluation = 0; evaluation < EVALUATIONS; ++evaluation) {
+                final long time = START + evaluation * INTERVAL;
+                int next = (controller instanceof PidController)
+                        ? ((PidController) controller).nextSlowmode(slowmode, averageDelay(), SETTINGS, time)
+                        : controller.nextSlowmode(slowmode, averageDelay(), SETTINGS);
+                next = Math.max(0, Math.min(next, 120)); // As kept within the bounds by SynapseMonitor
+                if (next != slowmode) {
+                    ++changes;
+                    settledAt = evaluation + 1;
+                }
+                slowmode = next;
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package thermostat.util.synapse;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuantileSketchTest {
+    @Test
+    void quantilesAreWithinAFewPercent() {
+        final QuantileSketch sketch = new QuantileSketch();
+        final Random random = new Random(3);
+        final long[] delays = new long[50_000];
+        for (int index = 0; index < delays.length; ++index) {
+            // Log-normal delays around two seconds, like an ordinary chat.
+            delays[index] = Math.round(Math.exp(Math.log(2000) + random.nextGaussian()));
+            sketch.add(delays[index]);
+        }
+        Arrays.sort(delays);
+
+        assertEquals(delays.length, sketch.getTotal());
+        for (final double quantile : new double[] {0.1, 0.25, 0.5, 0.75, 0.9, 0.99}) {
+            final long exact = delays[(int) Math.floor(quantile * (delays.length - 1))];
+            final long estimate = sketch.getQuantile(quantile);
+            assertTrue(Math.abs(estimate - exact) <= 0.05 * exact,
+                    "Quantile " + quantile + ": estimated " + estimate + ", exact " + exact);
+        }
+    }
+
+    @Test
+    void emptySketchHasNoQuantiles() {
+        assertEquals(0, new QuantileSketch().getQuantile(0.5));
+    }
+
+    @Test
+    void shortAndLongDelaysShareTheOuterBuckets() {
+        final QuantileSketch sketch = new QuantileSketch();
+        sketch.add(0);
+        sketch.add(-5);
+        assertEquals(10, sketch.getQuantile(1));
+
+        sketch.add(Long.MAX_VALUE);
+        assertTrue(sketch.getQuantile(1) >= 3_600_000);
+    }
+
+    @Test
+    void mergeAddsTheBuckets() {
+        final QuantileSketch first = new QuantileSketch(), second = new QuantileSketch();
+        for (int index = 0; index < 100; ++index) {
+            first.add(100);
+            second.add(10_000);
+        }
+        first.merge(second);
+        assertEquals(200, first.getTotal());
+        assertTrue(first.getQuantile(0.25) < 110);
+        assertTrue(first.getQuantile(0.75) > 9_000);
+    }
+
+    @Test
+    void decayHalvesTheBuckets() {
+        final QuantileSketch sketch = new QuantileSketch();
+        for (int index = 0; index < 101; ++index) {
+            sketch.add(500);
+        }
+        sketch.decay();
+        assertEquals(50, sketch.getTotal());
+        sketch.decay();
+        assertEquals(25, sketch.getTotal());
+    }
+
+    @Test
+    void survivesSerialization() {
+        final QuantileSketch sketch = new QuantileSketch();
+        for (long delay = 10; delay < 100_000; delay += 37) {
+            sketch.add(delay);
+        }
+
+        final QuantileSketch copy = QuantileSketch.fromBytes(sketch.toBytes());
+        assertNotNull(copy);
+        assertEquals(sketch.getTotal(), copy.getTotal());
+        assertEquals(sketch.getQuantile(0.5), copy.getQuantile(0.5));
+        assertArrayEquals(sketch.toBytes(), copy.toBytes());
+    }
+
+    @Test
+    void rejectsForeignData() {
+        assertNull(QuantileSketch.fromBytes(null));
+        assertNull(QuantileSketch.fromBytes(new byte[12]));
+
+        final byte[] bytes = new QuantileSketch().toBytes();
+        bytes[3] = 2; // Another version
+        assertNull(QuantileSketch.fromBytes(bytes));
+    }
+}
@@ -0,0 +1,112 @@
+package thermostat.util.synapse;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RaidDetectorTest {
+    private static final long START = 1_600_000_000_000L;
+    private static final String[] CHANNELS = {"1", "2", "3", "4", "5"};
+
+    @Test
+    void steadyTrafficOfAFreshGuildIsNoRaid() {
+        final RaidDetector detector = new RaidDetector();
+        final long end = feed(detector, START, 5, TimeUnit.HOURS.toSeconds(1));
+
+        assertFalse(detector.isRaiding());
+        assertFalse(detector.poll(end));
+        assertEquals(5, detector.getBaseline(), 0.1);
+    }
+
+    @Test
+    void noRaidBeforeTheBaselineWarmedUp() {
+        final RaidDetector detector = new RaidDetector();
+        feed(detector, START, 30, 40);
+        assertFalse(detector.isWarm());
+        assertFalse(detector.isRaiding());
+    }
+
+    @Test
+    void burstOverManyChannelsStartsAndEndsARaid() {
+        final RaidDetector detector = new RaidDetector();
+        long time = feed(detector, START, 1, 300);
+        assertTrue(detector.isWarm());
+        assertEquals(1, detector.getBaseline(), 0.05);
+
+        time = feed(detector, time, 20, 5);
+        assertTrue(detector.isRaiding());
+        final double baseline = detector.getBaseline();
+
+        // The raid holds for its minimum duration, then ends once the pace is back.
+        time = feed(detector, time, 1, 30);
+        assertFalse(detector.poll(time));
+        time = feed(detector, time, 1, 40);
+        assertTrue(detector.poll(time));
+        assertFalse(detector.isRaiding());
+        assertEquals(baseline, detector.getBaseline(), 0.05, "Raid seconds are not learned");
+    }
+
+    @Test
+    void burstInOneChannelIsNoRaid() {
+        final RaidDetector detector = new RaidDetector();
+        final long time = feed(detector, START, 1, 300) + TimeUnit.SECONDS.toMillis(20); // Span free of other channels
+        for (int message = 0; message < 200; ++message) {
+            detector.addMessage("1", time + message * 10L);
+        }
+        assertFalse(detector.isRaiding());
+    }
+
+    @Test
+    void raidThatOutlastsTheMaximumBecomesTheBaseline() {
+        final RaidDetector detector = new RaidDetector();
+        detector.setBaseline(0); // A quiet Guild, restored from a snapshot
+        long time = feed(detector, START, 5, 10);
+        assertTrue(detector.isRaiding());
+
+        time = feed(detector, time, 5, TimeUnit.MINUTES.toSeconds(5));
+        assertFalse(detector.poll(time));
+        time = feed(detector, time, 5, TimeUnit.MINUTES.toSeconds(5));
+        assertTrue(detector.poll(time));
+        assertEquals(5, detector.getBaseline(), 0.5);
+
+        feed(detector, time, 5, TimeUnit.MINUTES.toSeconds(10));
+        assertFalse(detector.isRaiding());
+    }
+
+    @Test
+    void silentSecondsLowerTheBaseline() {
+        final RaidDetector detector = new RaidDetector();
+        final long time = feed(detector, START, 4, 30);
+        detector.poll(time + TimeUnit.SECONDS.toMillis(40));
+        // 30 seconds of 4 messages and about as many without any, averaged.
+        assertEquals(2, detector.getBaseline(), 0.05);
+        assertTrue(detector.isWarm());
+    }
+
+    @Test
+    void ignoresInvalidBaselines() {
+        final RaidDetector detector = new RaidDetector();
+        detector.setBaseline(-1);
+        detector.setBaseline(Double.NaN);
+        assertFalse(detector.isWarm());
+        assertEquals(0, detector.getBaseline());
+    }
+
+    /**
+     * Feeds evenly spread messages, rotating over {@link #CHANNELS}.
+     * @param start Time of the first message, in epoch millis.
+     * @param rate Messages per second.
+     * @param seconds Amount of seconds.
+     * @return Time right after the last second, in epoch millis.
+     */
+    private static long feed(final RaidDetector detector, final long start, final int rate, final long seconds) {
+        for (long message = 0; message < rate * seconds; ++message) {
+            detector.addMessage(CHANNELS[(int) (message % CHANNELS.length)], start + message * 1000 / rate);
+        }
+        return start + seconds * 1000;
+    }
+}
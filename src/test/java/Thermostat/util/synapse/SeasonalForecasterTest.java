@@ -0,0 +1,136 @@
+package thermostat.util.synapse;
+
+import org.junit.jupiter.api.Test;
+import thermostat.util.entities.ChannelSettings;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SeasonalForecasterTest {
+    /**
+     * Midnight UTC, so the hours of the test line up with the hours of the day.
+     */
+    private static final long MIDNIGHT = 1_600_128_000_000L;
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1), DAY = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * Quiet channel with a daily peak at 20:00.
+     */
+    private static final int QUIET = 20, PEAK_HOUR = 20;
+
+    @Test
+    void waitsForAWeekOfHours() {
+        final SeasonalForecaster forecaster = new SeasonalForecaster();
+        feed(forecaster, 6, 3600);
+        assertFalse(forecaster.isReady());
+        assertEquals(0, forecaster.getFloor(MIDNIGHT + 6 * DAY + PEAK_HOUR * HOUR, settings(0, 0)));
+    }
+
+    @Test
+    void silentHoursCountAsZero() {
+        final SeasonalForecaster forecaster = new SeasonalForecaster();
+        forecaster.addMessage(MIDNIGHT);
+        forecaster.advance(MIDNIGHT + 8 * DAY);
+        assertTrue(forecaster.isReady());
+        assertTrue(forecaster.forecast((MIDNIGHT + 8 * DAY) / HOUR) < 1);
+    }
+
+    @Test
+    void forecastsTheDailyPeak() {
+        final SeasonalForecaster forecaster = new SeasonalForecaster();
+        feed(forecaster, 21, 3600);
+        final long today = (MIDNIGHT + 21 * DAY) / HOUR;
+
+        assertEquals(3600, forecaster.forecast(today + PEAK_HOUR), 3600 * 0.25);
+        assertTrue(forecaster.forecast(today + 12) < 3600 / 10.0, "Quiet hours stay far below the peak");
+    }
+
+    @Test
+    void raisesTheFloorShortlyBeforeAHotPeak() {
+        final SeasonalForecaster forecaster = new SeasonalForecaster();
+        feed(forecaster, 21, 3600); // One message a second, faster than the target delay
+        final long today = MIDNIGHT + 21 * DAY;
+
+        assertEquals(10, forecaster.getFloor(today + PEAK_HOUR * HOUR - TimeUnit.MINUTES.toMillis(5), settings(0, 0)));
+        assertEquals(10, forecaster.getFloor(today + PEAK_HOUR * HOUR + TimeUnit.MINUTES.toMillis(30), settings(0, 0)));
+        assertEquals(0, forecaster.getFloor(today + PEAK_HOUR * HOUR - TimeUnit.MINUTES.toMillis(30), settings(0, 0)));
+        assertEquals(0, forecaster.getFloor(today + 12 * HOUR, settings(0, 0)));
+    }
+
+    @Test
+    void keepsTheFloorWithinTheBounds() {
+        final SeasonalForecaster forecaster = new SeasonalForecaster();
+        feed(forecaster, 21, 3600);
+        final long peak = MIDNIGHT + 21 * DAY + PEAK_HOUR * HOUR;
+
+        assertEquals(7, forecaster.getFloor(peak, settings(0, 7)));
+        assertEquals(12, forecaster.getFloor(peak, settings(12, 0)));
+    }
+
+    @Test
+    void milderPeaksGetALowerFloor() {
+        final SeasonalForecaster warm = new SeasonalForecaster();
+        feed(warm, 21, 1800); // One message every two seconds
+        assertEquals(5, warm.getFloor(MIDNIGHT + 21 * DAY + PEAK_HOUR * HOUR, settings(0, 0)));
+
+        final SeasonalForecaster calm = new SeasonalForecaster();
+        feed(calm, 21, 600); // A peak, but slower than twice the target delay
+        assertEquals(0, calm.getFloor(MIDNIGHT + 21 * DAY + PEAK_HOUR * HOUR, settings(0, 0)));
+    }
+
+    @Test
+    void survivesSerialization() {
+        final SeasonalForecaster forecaster = new SeasonalForecaster();
+        assertNull(forecaster.toBytes());
+        feed(forecaster, 8, 3600);
+
+        final byte[] bytes = forecaster.toBytes();
+        assertNotNull(bytes);
+        final SeasonalForecaster restored = new SeasonalForecaster();
+        assertTrue(restored.restore(bytes));
+        assertArrayEquals(bytes, restored.toBytes());
+        assertEquals(forecaster.isReady(), restored.isReady());
+        final long hour = (MIDNIGHT + 8 * DAY) / HOUR + PEAK_HOUR;
+        assertEquals(forecaster.forecast(hour), restored.forecast(hour));
+    }
+
+    @Test
+    void rejectsMalformedModels() {
+        final SeasonalForecaster forecaster = new SeasonalForecaster();
+        assertFalse(forecaster.restore(null));
+        assertFalse(forecaster.restore(new byte[10]));
+
+        final SeasonalForecaster fed = new SeasonalForecaster();
+        fed.addMessage(MIDNIGHT);
+        final byte[] bytes = fed.toBytes();
+        assertNotNull(bytes);
+        bytes[Long.BYTES] = (byte) 0x80; // Negative count of the current hour
+        assertFalse(forecaster.restore(bytes));
+        assertNull(forecaster.toBytes());
+    }
+
+    /**
+     * Feeds days of a quiet channel that peaks every day at {@link #PEAK_HOUR}.
+     * @param days Amount of days.
+     * @param peak Messages of the peak hour.
+     */
+    private static void feed(final SeasonalForecaster forecaster, final int days, final int peak) {
+        for (int hour = 0; hour < days * 24; ++hour) {
+            final int count = (hour % 24 == PEAK_HOUR) ? peak : QUIET;
+            for (int message = 0; message < count; ++message) {
+                forecaster.addMessage(MIDNIGHT + hour * HOUR + message * HOUR / count);
+            }
+        }
+        forecaster.advance(MIDNIGHT + days * DAY);
+    }
+
+    private static ChannelSettings settings(final int min, final int max) {
+        return ChannelSettings.DEFAULT.withBounds(min, max).withMonitored(true);
+    }
+}
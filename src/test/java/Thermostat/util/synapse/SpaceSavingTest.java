@@ -0,0 +1,106 @@
+package thermostat.util.synapse;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpaceSavingTest {
+    @Test
+    void countsExactlyWhileThereAreFreeCounters() {
+        final SpaceSaving sketch = new SpaceSaving(4);
+        for (final long author : new long[] {1, 2, 1, 3, 1, 2}) {
+            sketch.add(author);
+        }
+
+        final SpaceSaving.Snapshot snapshot = sketch.snapshot();
+        assertEquals(6, snapshot.total);
+        assertEquals(3, snapshot.senders.size());
+        assertEquals(1, snapshot.senders.get(0).authorId);
+        assertEquals(3, snapshot.senders.get(0).count);
+        assertEquals(0, snapshot.senders.get(0).error);
+        assertEquals(2, snapshot.senders.get(1).authorId);
+        assertEquals(2, snapshot.senders.get(1).count);
+    }
+
+    @Test
+    void newAuthorTakesOverTheSmallestCounter() {
+        final SpaceSaving sketch = new SpaceSaving(2);
+        sketch.add(1);
+        sketch.add(1);
+        sketch.add(2);
+        sketch.add(3);
+
+        final SpaceSaving.Sender taken = sketch.snapshot().senders.get(1);
+        assertEquals(3, taken.authorId);
+        assertEquals(2, taken.count);
+        assertEquals(1, taken.error);
+    }
+
+    @Test
+    void heavyHittersAreGuaranteedAmongManyAuthors() {
+        final int capacity = 16;
+        final SpaceSaving sketch = new SpaceSaving(capacity);
+        final Map<Long, Long> exact = new HashMap<>();
+        final Random random = new Random(7);
+
+        // Two spammers among 5000 authors that send one or two messages each.
+        for (int message = 0; message < 20_000; ++message) {
+            final long author;
+            final int draw = random.nextInt(100);
+            if (draw < 15) {
+                author = 1;
+            } else if (draw < 25) {
+                author = 2;
+            } else {
+                author = 100 + random.nextInt(5000);
+            }
+            sketch.add(author);
+            exact.merge(author, 1L, Long::sum);
+        }
+
+        final SpaceSaving.Snapshot snapshot = sketch.snapshot();
+        assertEquals(20_000, snapshot.total);
+        for (final SpaceSaving.Sender sender : snapshot.senders) {
+            final long count = exact.getOrDefault(sender.authorId, 0L);
+            assertTrue(sender.count >= count, "Counts never underestimate");
+            assertTrue(sender.count - sender.error <= count, "Guaranteed counts never overestimate");
+            assertTrue(sender.error <= snapshot.total / capacity, "Error is bounded by total/capacity");
+        }
+
+        final List<SpaceSaving.Sender> hitters = snapshot.getHeavyHitters(0.05, 10);
+        assertEquals(2, hitters.size());
+        assertEquals(1, hitters.get(0).authorId);
+        assertEquals(2, hitters.get(1).authorId);
+    }
+
+    @Test
+    void heavyHittersNeedTheMinimumAmount() {
+        final SpaceSaving sketch = new SpaceSaving(4);
+        sketch.add(1);
+        sketch.add(1);
+        sketch.add(2);
+        assertTrue(sketch.snapshot().getHeavyHitters(0.5, 3).isEmpty());
+        assertEquals(1, sketch.snapshot().getHeavyHitters(0.5, 2).size());
+    }
+
+    @Test
+    void resetForgetsEverything() {
+        final SpaceSaving sketch = new SpaceSaving(4);
+        sketch.add(1);
+        sketch.reset();
+        assertEquals(0, sketch.getTotal());
+        assertTrue(sketch.snapshot().senders.isEmpty());
+    }
+
+    @Test
+    void rejectsEmptySketch() {
+        assertThrows(IllegalArgumentException.class, () -> new SpaceSaving(0));
+    }
+}
@@ -0,0 +1,150 @@
+package thermostat.util.synapse;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+    private static final long START = 1_600_000_000_000L;
+    private static final long TICK = 250;
+
+    @Test
+    void firesOnTheTickOfItsDeadline() {
+        final TimingWheel wheel = new TimingWheel(TICK, 8, START);
+        final List<Long> fired = new ArrayList<>();
+        final long[] now = {START};
+        wheel.schedule(START + 600, () -> fired.add(now[0]));
+
+        for (now[0] = START; now[0] < START + 2000; now[0] += 50) {
+            wheel.advance(now[0]);
+        }
+        // 600ms is rounded up to the third tick, which starts at 750ms.
+        assertEquals(List.of(START + 750), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void deadlinesBeyondARotationWaitForTheirRounds() {
+        final TimingWheel wheel = new TimingWheel(TICK, 4, START); // A rotation spans one second
+        final List<String> fired = new ArrayList<>();
+        wheel.schedule(START + 250, () -> fired.add("near"));
+        wheel.schedule(START + 2250, () -> fired.add("far"));
+
+        wheel.advance(START + 1250);
+        assertEquals(List.of("near"), fired);
+        wheel.advance(START + 2000);
+        assertEquals(List.of("near"), fired);
+        wheel.advance(START + 2250);
+        assertEquals(List.of("near", "far"), fired);
+    }
+
+    @Test
+    void pastDeadlinesFireOnTheNextTick() {
+        final TimingWheel wheel = new TimingWheel(TICK, 8, START);
+        wheel.advance(START + 1000);
+
+        final int[] fired = {0};
+        wheel.schedule(START - 5000, () -> ++fired[0]);
+        assertEquals(1, wheel.advance(START + 1000 + TICK));
+        assertEquals(1, fired[0]);
+    }
+
+    @Test
+    void cancelledTimeoutsAreSweptWithoutRunning() {
+        final TimingWheel wheel = new TimingWheel(TICK, 8, START);
+        final int[] fired = {0};
+        final TimingWheel.Timeout cancelled = wheel.schedule(START + 500, () -> ++fired[0]);
+        wheel.schedule(START + 500, () -> ++fired[0]);
+        cancelled.cancel();
+
+        assertTrue(cancelled.isCancelled());
+        assertEquals(2, wheel.size());
+        assertEquals(1, wheel.advance(START + 500));
+        assertEquals(1, fired[0]);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void tasksMayRescheduleThemselves() {
+        final TimingWheel wheel = new TimingWheel(TICK, 8, START);
+        final List<Long> fired = new ArrayList<>();
+        final Runnable[] task = new Runnable[1];
+        final long[] now = {START};
+        task[0] = () -> {
+            fired.add(now[0]);
+            if (fired.size() < 3) {
+                wheel.schedule(now[0] + 1000, task[0]);
+            }
+        };
+        wheel.schedule(START + 1000, task[0]);
+
+        for (now[0] = START; now[0] <= START + 5000; now[0] += TICK) {
+            wheel.advance(now[0]);
+        }
+        assertEquals(List.of(START + 1000, START + 2000, START + 3000), fired);
+    }
+
+    @Test
+    void advancingBeforeTheNextTickDoesNothing() {
+        final TimingWheel wheel = new TimingWheel(TICK, 8, START);
+        wheel.schedule(START, () -> { });
+        assertEquals(1, wheel.advance(START));
+        assertEquals(START + TICK, wheel.getNextTick());
+        assertEquals(0, wheel.advance(START + TICK - 1));
+        assertEquals(START + TICK, wheel.getNextTick());
+    }
+
+    @Test
+    void rejectsInvalidSizes() {
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel(0, 8, START));
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel(TICK, 0, START));
+        assertFalse(new TimingWheel(TICK, 5, START).schedule(START, () -> { }).isCancelled());
+    }
+
+    /**
+     * Timers of 200k channels on one wheel, each re-armed every 10 seconds as
+     * by SynapseDispatcher, over ten simulated minutes. The cost of a tick must
+     * stay proportional to the timers that are due, not to the timers registered.
+     */
+    @Test
+    @Tag("benchmark")
+    void timerOverheadWithManyChannels() {
+        final int channels = 200_000;
+        final long period = TimeUnit.SECONDS.toMillis(10), span = TimeUnit.MINUTES.toMillis(10);
+        final TimingWheel wheel = new TimingWheel(TICK, 256, START);
+        final long[] now = {START};
+        final long[] fired = {0};
+
+        final Runnable[] timers = new Runnable[channels];
+        for (int channel = 0; channel < channels; ++channel) {
+            final int index = channel;
+            timers[index] = () -> {
+                ++fired[0];
+                wheel.schedule(now[0] + period, timers[index]);
+            };
+            // Spread the first deadlines over a period, like channels that got their first messages at random times.
+            wheel.schedule(START + (channel * 7919L) % period, timers[index]);
+        }
+
+        final long start = System.nanoTime();
+        for (now[0] = START; now[0] <= START + span; now[0] += TICK) {
+            wheel.advance(now[0]);
+        }
+        final long elapsed = System.nanoTime() - start;
+
+        final double perTimer = (double) elapsed / fired[0];
+        System.out.printf("Timing wheel: %d timers, %d fired in %dms, %.0fns per fired timer.%n",
+                channels, fired[0], TimeUnit.NANOSECONDS.toMillis(elapsed), perTimer);
+        assertEquals(channels, wheel.size());
+        assertTrue(fired[0] >= (long) channels * (span / period), "Every timer fires once per period");
+        assertTrue(perTimer < 2_000, "Firing and re-arming a timer takes " + perTimer + "ns");
+    }
+}
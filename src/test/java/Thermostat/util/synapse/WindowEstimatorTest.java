@@ -0,0 +1,168 @@
+package thermostat.util.synapse;
+
+import org.junit.jupiter.api.Test;
+import thermostat.util.entities.MessageWindow;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WindowEstimatorTest {
+    private static final long START = 1_600_000_000_000L;
+
+    @Test
+    void handsOverEveryFullWindowOnce() {
+        final WindowEstimator estimator = new WindowEstimator(4);
+        final List<long[]> handed = new ArrayList<>();
+        for (int message = 0; message < 12; ++message) {
+            final RateReading reading = estimator.addMessage(START + message * 100L);
+            if (reading != null) {
+                handed.add(((MessageWindow) reading).getTimestamps());
+                estimator.recycle(reading);
+            }
+        }
+
+        assertEquals(3, handed.size());
+        assertArrayEquals(new long[] {START, START + 100, START + 200, START + 300}, handed.get(0));
+        assertArrayEquals(new long[] {START + 400, START + 500, START + 600, START + 700}, handed.get(1));
+        assertEquals(0, estimator.getRecentMessages().length);
+    }
+
+    @Test
+    void recycledWindowBecomesTheNextActiveOne() {
+        final WindowEstimator estimator = new WindowEstimator(2);
+        estimator.addMessage(START);
+        final RateReading first = estimator.addMessage(START + 100);
+        assertNotNull(first);
+        estimator.recycle(first);
+
+        estimator.addMessage(START + 200);
+        final RateReading second = estimator.addMessage(START + 300);
+        assertNotNull(second);
+        assertEquals(50, second.getAverageDelay());
+
+        // The first window was swapped in for the second, so it comes back next.
+        estimator.addMessage(START + 400);
+        assertSame(first, estimator.addMessage(START + 500));
+    }
+
+    @Test
+    void unreturnedWindowIsReplacedByANewOne() {
+        final WindowEstimator estimator = new WindowEstimator(2);
+        estimator.addMessage(START);
+        final RateReading first = estimator.addMessage(START + 100);
+        estimator.addMessage(START + 200);
+        final RateReading second = estimator.addMessage(START + 300);
+
+        assertNotNull(second);
+        assertTrue(first != second);
+        assertArrayEquals(new long[] {START, START + 100}, ((MessageWindow) first).getTimestamps());
+    }
+
+    @Test
+    void capacityChangesOnTheNextMessage() {
+        final WindowEstimator estimator = new WindowEstimator(5);
+        estimator.addMessage(START);
+        estimator.addMessage(START + 100);
+        estimator.setCapacity(3);
+        assertEquals(2, estimator.getRecentMessages().length);
+
+        final RateReading reading = estimator.addMessage(START + 200);
+        assertNotNull(reading);
+        assertEquals(3, ((MessageWindow) reading).getCapacity());
+        assertThrows(IllegalArgumentException.class, () -> estimator.setCapacity(0));
+    }
+
+    @Test
+    void staleMessagesAreDiscarded() {
+        final WindowEstimator estimator = new WindowEstimator(5);
+        estimator.addMessage(START);
+        estimator.addMessage(START + 100);
+
+        assertNull(estimator.poll(START + 30_000));
+        assertEquals(2, estimator.getRecentMessages().length);
+        assertNull(estimator.poll(START + 100 + TimeUnit.MINUTES.toMillis(1)));
+        assertEquals(0, estimator.getRecentMessages().length);
+    }
+
+    @Test
+    void releaseForgetsEverything() {
+        final WindowEstimator estimator = new WindowEstimator(3);
+        estimator.addMessage(START);
+        estimator.addMessage(START + 100);
+        estimator.release();
+
+        assertEquals(0, estimator.getRecentMessages().length);
+        estimator.addMessage(START + 200);
+        estimator.addMessage(START + 300);
+        assertNotNull(estimator.addMessage(START + 400));
+    }
+
+    /**
+     * A producer adds messages while an evaluator takes the full windows and gives
+     * them back, and another thread keeps releasing the estimator. Every handed
+     * window must be full, in order, and no message may be handed over twice.
+     */
+    @Test
+    void noMessageIsHandedOverTwiceUnderContention() throws InterruptedException {
+        final int capacity = 16, messages = 500_000;
+        final WindowEstimator estimator = new WindowEstimator(capacity);
+        final BlockingQueue<RateReading> readings = new LinkedBlockingQueue<>();
+        final List<long[]> evaluated = new ArrayList<>();
+        final AtomicBoolean producing = new AtomicBoolean(true);
+
+        final Thread evaluator = new Thread(() -> {
+            try {
+                while (producing.get() || !readings.isEmpty()) {
+                    final RateReading reading = readings.poll(10, TimeUnit.MILLISECONDS);
+                    if (reading != null) {
+                        evaluated.add(((MessageWindow) reading).getTimestamps());
+                        estimator.recycle(reading);
+                    }
+                }
+            } catch (InterruptedException ignored) {
+            }
+        });
+        final Thread releaser = new Thread(() -> {
+            while (producing.get()) {
+                estimator.release();
+                Thread.yield();
+            }
+        });
+        evaluator.start();
+        releaser.start();
+
+        for (int message = 0; message < messages; ++message) {
+            final RateReading reading = estimator.addMessage(START + message);
+            if (reading != null) {
+                readings.add(reading);
+            }
+        }
+        producing.set(false);
+        releaser.join();
+        evaluator.join();
+
+        final Set<Long> seen = new HashSet<>();
+        for (final long[] window : evaluated) {
+            assertEquals(capacity, window.length);
+            for (int index = 0; index < window.length; ++index) {
+                assertTrue(index == 0 || window[index] > window[index - 1], "Window out of order");
+                assertTrue(seen.add(window[index]), "Message handed over twice");
+            }
+        }
+        assertTrue(evaluated.size() > 0);
+    }
+}